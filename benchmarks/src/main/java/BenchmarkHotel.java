@@ -0,0 +1,279 @@
+import bench.HotelFixture;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seeds an empty database with rooms, guests and a history of bookings and payments,
+ * then runs the benchmarked operations through {@link HotelService}.
+ */
+public class BenchmarkHotel implements HotelFixture {
+    private static final String[] ROOM_TYPES = {"Standard", "Deluxe", "Suite"};
+    private static final double[] ROOM_PRICES = {100, 150, 250};
+    private static final String[] PAYMENT_METHODS = {"Credit Card", "Cash", "Bank Transfer"};
+    private static final int SEED_BATCH_SIZE = 5000;
+
+    private DatabaseConfig config;
+    private HotelService service;
+    private int maxBookingId;
+
+    @Override
+    public void open(String url, int rooms, int guests, int bookings) throws Exception {
+        config = new DatabaseConfig(url, "sa", "", SqlDialect.fromUrl(url));
+        try (Connection conn = DriverManager.getConnection(config.url(), config.username(), config.password())) {
+            new SchemaMigrator().migrate(conn);
+            seed(conn, rooms, guests, bookings);
+            seedRates(conn);
+            Rollups.rebuild(conn);
+        }
+        // Started after seeding so the availability index and room cache see the data.
+        // The night audit would otherwise rewrite seeded bookings while benchmarks run.
+        System.setProperty("hotel.audit.time", "off");
+        // A journal of its own rather than the user's; benchmarks that compare without one set "off"
+        if (System.getProperty("hotel.journal.dir") == null) {
+            System.setProperty("hotel.journal.dir", Files.createTempDirectory("hotel-journal").toString());
+        }
+        service = HotelService.start(config);
+    }
+
+    @Override
+    public void restart() throws Exception {
+        service.close();
+        service = null;
+        service = HotelService.start(config);
+    }
+
+    private void seed(Connection conn, int rooms, int guests, int bookings) throws SQLException {
+        conn.setAutoCommit(false);
+
+        int[] roomIds = new int[rooms];
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO rooms (room_number, type, price, status) VALUES (?, ?, ?, 'Available')",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rooms; i++) {
+                pstmt.setString(1, roomNumber(i));
+                pstmt.setString(2, ROOM_TYPES[i % ROOM_TYPES.length]);
+                pstmt.setDouble(3, ROOM_PRICES[i % ROOM_PRICES.length]);
+                pstmt.executeUpdate();
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    rs.next();
+                    roomIds[i] = rs.getInt(1);
+                }
+            }
+        }
+
+        int[] guestIds = new int[guests];
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO users (username, password, role, fullname) VALUES (?, ?, 'guest', ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < guests; i++) {
+                pstmt.setString(1, guestUsername(i));
+                pstmt.setString(2, guestPassword(i));
+                pstmt.setString(3, "Guest " + i);
+                pstmt.executeUpdate();
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    rs.next();
+                    guestIds[i] = rs.getInt(1);
+                }
+            }
+        }
+        conn.commit();
+
+        // Back-to-back two-night stays per room, mostly in the past with a few weeks still ahead
+        int perRoom = Math.max(1, bookings / rooms);
+        LocalDate today = LocalDate.now();
+        LocalDate first = today.minusDays(perRoom * 3L - 30);
+        String insert = "INSERT INTO bookings (guest_id, room_id, check_in_date, check_out_date, total_price, " +
+                "status, created_at, status_changed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            for (int n = 0; n < bookings; n++) {
+                int room = n % rooms;
+                LocalDate checkIn = first.plusDays((n / rooms) * 3L);
+                LocalDate checkOut = checkIn.plusDays(2);
+                String status = n % 20 == 0 ? "Cancelled"
+                        : checkOut.isBefore(today) ? "Checked Out"
+                        : checkIn.isAfter(today) ? "Booked" : "Checked In";
+                LocalDateTime createdAt = checkIn.minusDays(7).atTime(12, 0);
+
+                pstmt.setInt(1, guestIds[n % guests]);
+                pstmt.setInt(2, roomIds[room]);
+                pstmt.setDate(3, java.sql.Date.valueOf(checkIn));
+                pstmt.setDate(4, java.sql.Date.valueOf(checkOut));
+                pstmt.setDouble(5, ROOM_PRICES[room % ROOM_PRICES.length] * 2);
+                pstmt.setString(6, status);
+                pstmt.setObject(7, createdAt);
+                pstmt.setObject(8, "Booked".equals(status) ? null : checkIn.atTime(14, 0));
+                pstmt.addBatch();
+                if ((n + 1) % SEED_BATCH_SIZE == 0) {
+                    pstmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            pstmt.executeBatch();
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO payments (booking_id, amount, payment_date, method) " +
+                    "SELECT id, total_price, created_at, CASE MOD(id, 3) " +
+                    "WHEN 0 THEN '" + PAYMENT_METHODS[0] + "' WHEN 1 THEN '" + PAYMENT_METHODS[1] +
+                    "' ELSE '" + PAYMENT_METHODS[2] + "' END FROM bookings");
+            try (ResultSet rs = stmt.executeQuery("SELECT MAX(id) FROM bookings")) {
+                maxBookingId = rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    // Weekend and summer pricing plus a weekly discount, so quotes exercise every rate rule
+    private void seedRates(Connection conn) throws SQLException {
+        int year = LocalDate.now().getYear();
+        try (Statement stmt = conn.createStatement()) {
+            for (String type : ROOM_TYPES) {
+                stmt.executeUpdate("INSERT INTO rate_day_of_week (room_type, day_of_week, multiplier) " +
+                        "VALUES ('" + type + "', 5, 1.2), ('" + type + "', 6, 1.2)");
+                for (int y = year; y <= year + 2; y++) {
+                    stmt.executeUpdate("INSERT INTO rate_seasons (room_type, name, start_date, end_date, multiplier) " +
+                            "VALUES ('" + type + "', 'Summer " + y + "', DATE '" + y + "-06-15', DATE '" + y + "-09-15', 1.3)");
+                }
+                stmt.executeUpdate("INSERT INTO rate_length_of_stay (room_type, min_nights, discount_percent) " +
+                        "VALUES ('" + type + "', 7, 10)");
+            }
+        }
+    }
+
+    @Override
+    public String roomNumber(int index) {
+        return "B" + index;
+    }
+
+    @Override
+    public String guestUsername(int index) {
+        return "bench_guest_" + index;
+    }
+
+    @Override
+    public String guestPassword(int index) {
+        return "pw" + index;
+    }
+
+    @Override
+    public int maxBookingId() {
+        return maxBookingId;
+    }
+
+    @Override
+    public String login(String username, String password) throws Exception {
+        ReferenceData.UserInfo user = service.authenticate(username, password);
+        return user == null ? null : user.role();
+    }
+
+    @Override
+    public double quote(String roomNumber, LocalDate checkIn, LocalDate checkOut) throws Exception {
+        return service.quote(roomNumber, checkIn, checkOut);
+    }
+
+    @Override
+    public int freeRoomQuotes(LocalDate checkIn, LocalDate checkOut) throws Exception {
+        return service.freeRoomQuotes(checkIn, checkOut).size();
+    }
+
+    @Override
+    public int book(String username, String roomNumber, LocalDate checkIn, LocalDate checkOut) throws Exception {
+        return service.book(username, roomNumber, checkIn, checkOut, PAYMENT_METHODS[0]).bookingId();
+    }
+
+    @Override
+    public StatusChange changeBookingStatus(int bookingId, String status) throws Exception {
+        try {
+            BookingDao.StatusChange change = service.updateBookingStatus(bookingId, BookingStatus.of(status),
+                    "benchmark");
+            return change == null ? new StatusChange(false, 0, null)
+                    : new StatusChange(true, change.conflicts(), change.status().label());
+        } catch (BookingStatus.TransitionRejected e) {
+            return new StatusChange(false, e.conflicts(), e.current().label());
+        }
+    }
+
+    // Straight to the database: the availability index doesn't need the reopened stays for these benchmarks
+    @Override
+    public int reopenBookings() throws Exception {
+        try (Connection conn = DriverManager.getConnection(config.url(), config.username(), config.password());
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "UPDATE bookings SET status = 'Booked', version = version + 1 WHERE id <= ?")) {
+            pstmt.setInt(1, maxBookingId);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public int bookBlock(String username, int roomsPerType, LocalDate checkIn, LocalDate checkOut) throws Exception {
+        Map<String, Integer> roomsByType = new LinkedHashMap<>();
+        for (String type : ROOM_TYPES) {
+            roomsByType.put(type, roomsPerType);
+        }
+        return service.bookBlock(username, roomsByType, checkIn, checkOut, PAYMENT_METHODS[0]).bookings().size();
+    }
+
+    @Override
+    public int bookingsPage(String guestUsername, int afterId, int limit) throws Exception {
+        return service.bookingsPage(guestUsername, afterId, null, limit).size();
+    }
+
+    @Override
+    public Object loadBookingGrid(boolean columnar, int pageSize) throws Exception {
+        List<Object> pages = new ArrayList<>();
+        BookingColumns.Dictionary roomNumbers = new BookingColumns.Dictionary();
+        int afterId = 0;
+        while (true) {
+            List<HotelService.BookingRow> rows = service.bookingsPage(null, afterId, null, pageSize);
+            if (rows.isEmpty()) return pages;
+            if (columnar) {
+                BookingColumns page = new BookingColumns(pageSize, roomNumbers);
+                rows.forEach(page::add);
+                pages.add(page);
+            } else {
+                List<Object[]> page = new ArrayList<>(pageSize);
+                for (HotelService.BookingRow row : rows) {
+                    page.add(new Object[]{row.id(), row.roomNumber(), row.checkIn().toString(),
+                            row.checkOut().toString(), row.totalPrice(), row.status()});
+                }
+                pages.add(page);
+            }
+            afterId = rows.get(rows.size() - 1).id();
+        }
+    }
+
+    @Override
+    public int revenueReport(LocalDate from, LocalDate to) throws Exception {
+        return service.revenue(from, to).size();
+    }
+
+    @Override
+    public int activityReport(LocalDate from, LocalDate to) throws Exception {
+        return service.activity(from, to).size();
+    }
+
+    @Override
+    public int occupancyReport() throws Exception {
+        return service.occupancy().size();
+    }
+
+    @Override
+    public void close() {
+        if (service != null) {
+            service.close();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking a block of rooms in one transaction. Every block takes a fresh night, so the
+ * run is a fixed number of single shots rather than as many calls as fit in a time window.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(batchSize = 10)
+@Measurement(batchSize = 10)
+@State(Scope.Benchmark)
+public class BlockBookingBenchmarks {
+
+    private static final String URL = "jdbc:h2:mem:hotel_block_bench";
+
+    @Param("600")
+    public int rooms;
+
+    // Rooms of each of the three room types, so a block is three times this size
+    @Param({"10", "100"})
+    public int roomsPerType;
+
+    private HotelFixture hotel;
+    private LocalDate nextNight;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        hotel = HotelFixture.load();
+        hotel.open(URL, rooms, 100, 10_000);
+        nextNight = LocalDate.now().plusYears(4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Benchmark
+    public int bookBlock() throws Exception {
+        LocalDate checkIn = nextNight;
+        nextNight = nextNight.plusDays(1);
+        return hotel.bookBlock(hotel.guestUsername(0), roomsPerType, checkIn, checkIn.plusDays(1));
+    }
+}
@@ -0,0 +1,104 @@
+package bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many desks working one booking at once. Every thread tries to check in, check out or
+ * cancel the current booking, and whoever sees it reach a final status moves everyone on
+ * to the next. The score is status changes attempted per second; the counters split them
+ * into transitions applied and rejected, and count conflicts, where another thread changed
+ * the booking between a thread reading it and updating it. The single-thread run is the
+ * uncontended baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+@State(Scope.Benchmark)
+public class BookingContentionBenchmarks {
+
+    private static final String URL = "jdbc:h2:mem:hotel_contention_bench";
+    private static final String[] CHANGES = {"Checked In", "Checked Out", "Cancelled"};
+    private static final Set<String> FINAL = Set.of("Checked Out", "Cancelled", "No-Show");
+
+    private HotelFixture hotel;
+    private int maxBookingId;
+    private final AtomicInteger current = new AtomicInteger();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long transitions;
+        public long rejections;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            transitions = 0;
+            rejections = 0;
+            conflicts = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        hotel = HotelFixture.load();
+        hotel.open(URL, 100, 100, 50_000);
+        maxBookingId = hotel.maxBookingId();
+    }
+
+    @Setup(Level.Iteration)
+    public void reopen() throws Exception {
+        hotel.reopenBookings();
+        current.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void oneDesk(Outcomes outcomes) throws Exception {
+        changeCurrentBooking(outcomes);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void eightDesks(Outcomes outcomes) throws Exception {
+        changeCurrentBooking(outcomes);
+    }
+
+    private void changeCurrentBooking(Outcomes outcomes) throws Exception {
+        int index = current.get();
+        String status = CHANGES[ThreadLocalRandom.current().nextInt(CHANGES.length)];
+        HotelFixture.StatusChange change = hotel.changeBookingStatus(index % maxBookingId + 1, status);
+        outcomes.conflicts += change.conflicts();
+        if (change.changed()) {
+            outcomes.transitions++;
+        } else {
+            outcomes.rejections++;
+        }
+        if (change.status() == null || FINAL.contains(change.status())) {
+            current.compareAndSet(index, index + 1);
+        }
+    }
+}
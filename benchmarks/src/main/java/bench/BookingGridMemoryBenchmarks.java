@@ -0,0 +1,79 @@
+package bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap kept by a million bookings loaded into the bookings grid's page layout: columnar
+ * pages against a boxed Object[] per row. The score is the time to load them; the
+ * retainedBytes counter is the heap still in use afterwards, measured after a full GC,
+ * so divide it by the booking count for bytes per row.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BookingGridMemoryBenchmarks {
+
+    private static final String URL = "jdbc:h2:mem:hotel_grid_bench";
+    private static final int PAGE_SIZE = 200;
+
+    @Param("1000000")
+    public int bookings;
+
+    @Param({"true", "false"})
+    public boolean columnar;
+
+    private HotelFixture hotel;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        hotel = HotelFixture.load();
+        hotel.open(URL, 500, 5000, bookings);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Benchmark
+    public Object loadAll(Footprint footprint) throws Exception {
+        long before = usedHeapAfterGc();
+        Object grid = hotel.loadBookingGrid(columnar, PAGE_SIZE);
+        footprint.retainedBytes += usedHeapAfterGc() - before;
+        return grid;
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,112 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Login, quoting, booking, the bookings grid and the reports, each against a freshly
+ * seeded in-memory H2 database in MySQL mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class HotelBenchmarks {
+
+    // The H2 dialect adds MySQL mode and the other settings the application needs
+    private static final String URL = "jdbc:h2:mem:hotel_bench";
+    private static final int PAGE_SIZE = 200;
+
+    @Param("500")
+    public int rooms;
+
+    @Param("5000")
+    public int guests;
+
+    @Param("100000")
+    public int bookings;
+
+    private HotelFixture hotel;
+    private LocalDate today;
+    // New bookings go one night at a time into dates the seed data never reaches
+    private LocalDate firstFreeNight;
+    private final AtomicInteger bookingSequence = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        hotel = HotelFixture.load();
+        hotel.open(URL, rooms, guests, bookings);
+        today = LocalDate.now();
+        firstFreeNight = today.plusYears(3);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Benchmark
+    public String login() throws Exception {
+        int guest = ThreadLocalRandom.current().nextInt(guests);
+        return hotel.login(hotel.guestUsername(guest), hotel.guestPassword(guest));
+    }
+
+    @Benchmark
+    public double quote() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate checkIn = today.plusDays(random.nextInt(365));
+        return hotel.quote(hotel.roomNumber(random.nextInt(rooms)), checkIn, checkIn.plusDays(1 + random.nextInt(14)));
+    }
+
+    @Benchmark
+    public int freeRoomQuotes() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate checkIn = today.plusDays(random.nextInt(365));
+        return hotel.freeRoomQuotes(checkIn, checkIn.plusDays(1 + random.nextInt(14)));
+    }
+
+    @Benchmark
+    public int createBooking() throws Exception {
+        int n = bookingSequence.getAndIncrement();
+        LocalDate checkIn = firstFreeNight.plusDays(n / rooms);
+        return hotel.book(hotel.guestUsername(n % guests), hotel.roomNumber(n % rooms), checkIn, checkIn.plusDays(1));
+    }
+
+    @Benchmark
+    public int bookingsPage() throws Exception {
+        int afterId = ThreadLocalRandom.current().nextInt(Math.max(1, hotel.maxBookingId() - PAGE_SIZE));
+        return hotel.bookingsPage(null, afterId, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public int guestBookingsPage() throws Exception {
+        return hotel.bookingsPage(hotel.guestUsername(ThreadLocalRandom.current().nextInt(guests)), 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public int revenueReport() throws Exception {
+        return hotel.revenueReport(today.minusMonths(11).withDayOfMonth(1), today);
+    }
+
+    @Benchmark
+    public int activityReport() throws Exception {
+        return hotel.activityReport(today.minusMonths(11).withDayOfMonth(1), today);
+    }
+
+    @Benchmark
+    public int occupancyReport() throws Exception {
+        return hotel.occupancyReport();
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import java.time.LocalDate;
+
+/**
+ * What the benchmarks need from the application. The application classes live in the
+ * default package, which JMH-generated code can't import, so the implementation is the
+ * default-package {@code BenchmarkHotel} loaded by name.
+ */
+public interface HotelFixture extends AutoCloseable {
+
+    String IMPLEMENTATION = "BenchmarkHotel";
+
+    // Migrates a fresh database at the URL, seeds it and starts the service on it
+    void open(String url, int rooms, int guests, int bookings) throws Exception;
+
+    // Closes the service and starts it again on the same data, as launching the application does
+    void restart() throws Exception;
+
+    String roomNumber(int index);
+
+    String guestUsername(int index);
+
+    String guestPassword(int index);
+
+    // Id of the newest seeded booking
+    int maxBookingId();
+
+    String login(String username, String password) throws Exception;
+
+    double quote(String roomNumber, LocalDate checkIn, LocalDate checkOut) throws Exception;
+
+    // Number of rooms free and priced for the stay
+    int freeRoomQuotes(LocalDate checkIn, LocalDate checkOut) throws Exception;
+
+    int book(String username, String roomNumber, LocalDate checkIn, LocalDate checkOut) throws Exception;
+
+    /**
+     * Whether a status change was applied, how many times another thread changed the
+     * booking first, and the booking's status afterwards (null if it doesn't exist).
+     */
+    record StatusChange(boolean changed, int conflicts, String status) {
+    }
+
+    // As the check-in, check-out and cancel buttons do; a change the lifecycle refuses is not an error here
+    StatusChange changeBookingStatus(int bookingId, String status) throws Exception;
+
+    // Puts every seeded booking back to Booked so a benchmark can take them through their lifecycle again
+    int reopenBookings() throws Exception;
+
+    // Books roomsPerType rooms of every room type as one block; returns the number of rooms booked
+    int bookBlock(String username, int roomsPerType, LocalDate checkIn, LocalDate checkOut) throws Exception;
+
+    // Number of rows in the page
+    int bookingsPage(String guestUsername, int afterId, int limit) throws Exception;
+
+    /**
+     * Loads every booking into pages laid out as the bookings grid keeps them: columnar,
+     * or as a boxed Object[] per row like the DefaultTableModel-style grid before it.
+     * Returns the pages so they stay reachable while their size is measured.
+     */
+    Object loadBookingGrid(boolean columnar, int pageSize) throws Exception;
+
+    int revenueReport(LocalDate from, LocalDate to) throws Exception;
+
+    int activityReport(LocalDate from, LocalDate to) throws Exception;
+
+    int occupancyReport() throws Exception;
+
+    @Override
+    void close();
+
+    static HotelFixture load() throws ReflectiveOperationException {
+        return (HotelFixture) Class.forName(IMPLEMENTATION).getDeclaredConstructor().newInstance();
+    }
+}
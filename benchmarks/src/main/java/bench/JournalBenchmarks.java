@@ -0,0 +1,68 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The check-in path with and without the booking event journal. Sampled rather than
+ * averaged so the percentiles show what the journal adds to the slowest check-ins too.
+ * Each iteration reopens the seeded bookings and checks them in one after another; it is
+ * kept short so it doesn't run out of bookings the lifecycle still lets it check in.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class JournalBenchmarks {
+
+    private static final String URL = "jdbc:h2:mem:hotel_journal_bench";
+
+    @Param({"true", "false"})
+    public boolean journal;
+
+    private HotelFixture hotel;
+    private int maxBookingId;
+    private final AtomicInteger nextBooking = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("hotel.journal.dir",
+                journal ? Files.createTempDirectory("hotel-journal").toString() : "off");
+        hotel = HotelFixture.load();
+        hotel.open(URL, 200, 1000, 200_000);
+        maxBookingId = hotel.maxBookingId();
+    }
+
+    @Setup(Level.Iteration)
+    public void reopen() throws Exception {
+        hotel.reopenBookings();
+        nextBooking.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Benchmark
+    public HotelFixture.StatusChange checkIn() throws Exception {
+        return hotel.changeBookingStatus(nextBooking.getAndIncrement() % maxBookingId + 1, "Checked In");
+    }
+}
@@ -0,0 +1,52 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starting the service on an already migrated database, as every launch does: connecting,
+ * checking migrations and loading the availability index, rate plans and room cache. The
+ * log line of each start breaks the time down by step.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class StartupBenchmarks {
+
+    private static final String URL = "jdbc:h2:mem:hotel_startup_bench";
+
+    @Param("200000")
+    public int bookings;
+
+    private HotelFixture hotel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        hotel = HotelFixture.load();
+        hotel.open(URL, 500, 5000, bookings);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        hotel.close();
+    }
+
+    @Benchmark
+    public void start() throws Exception {
+        hotel.restart();
+    }
+}
@@ -0,0 +1,108 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Moves closed bookings (checked out, cancelled or no-show) whose stay ended before a
+ * cutoff, together with their payments, from the hot tables into bookings_archive and
+ * payments_archive. Day-to-day queries then only pay for bookings that can still change.
+ *
+ * Work is done in transactions of {@link #BATCH_SIZE} bookings. Each batch locks the
+ * bookings it moves, so a status change or a second archiver waits for it rather than
+ * seeing half-moved rows, and nothing is left to resume if the run stops part way.
+ */
+public class Archiver {
+    private static final Logger LOG = Logger.getLogger(Archiver.class.getName());
+
+    public record Summary(LocalDate cutoff, int bookings, int payments, long elapsedNanos) {
+        @Override
+        public String toString() {
+            return String.format("Archived %,d bookings and %,d payments that ended before %s (%.1f s)",
+                    bookings, payments, cutoff, elapsedNanos / 1e9);
+        }
+    }
+
+    static final int BATCH_SIZE = 500;
+
+    private static final String CLOSED = "status IN ('Checked Out', 'Cancelled', 'No-Show')";
+
+    private final ConnectionPool pool;
+
+    public Archiver(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Archives every closed booking that checked out before the cutoff. Stops between
+     * batches if the thread is interrupted; batches already moved stay moved.
+     */
+    public Summary archive(LocalDate cutoff) throws SQLException {
+        long start = System.nanoTime();
+        int bookings = 0;
+        int payments = 0;
+        try (Connection conn = pool.getConnection()) {
+            while (!Thread.currentThread().isInterrupted()) {
+                int[] moved = DataAccess.inTransaction(conn, c -> moveBatch(c, cutoff));
+                bookings += moved[0];
+                payments += moved[1];
+                if (moved[0] < BATCH_SIZE) break;
+            }
+        }
+        Summary summary = new Summary(cutoff, bookings, payments, System.nanoTime() - start);
+        if (bookings > 0) LOG.info(summary.toString());
+        return summary;
+    }
+
+    // Returns {bookings, payments} moved
+    private static int[] moveBatch(Connection conn, LocalDate cutoff) throws SQLException {
+        // Archived rows leave the index, so each batch simply takes the next ones it finds
+        int[] ids = new int[BATCH_SIZE];
+        int size = 0;
+        String select = "SELECT id FROM bookings WHERE " + CLOSED + " AND check_out_date < ? LIMIT ? FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(select)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(cutoff));
+            pstmt.setInt(2, BATCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids[size++] = rs.getInt(1);
+                }
+            }
+        }
+        if (size == 0) return new int[]{0, 0};
+        ids = Arrays.copyOf(ids, size);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String in = " IN (" + "?,".repeat(size - 1) + "?)";
+        // Bookings first: the archived payments reference them
+        int bookings = update(conn, "INSERT INTO bookings_archive (id, guest_id, room_id, check_in_date, " +
+                "check_out_date, total_price, status, created_at, status_changed_at, archived_at) " +
+                "SELECT id, guest_id, room_id, check_in_date, check_out_date, total_price, status, created_at, " +
+                "status_changed_at, ? FROM bookings WHERE id" + in, now, ids);
+        int payments = update(conn, "INSERT INTO payments_archive (id, booking_id, amount, payment_date, method, " +
+                "archived_at) SELECT id, booking_id, amount, payment_date, method, ? FROM payments " +
+                "WHERE booking_id" + in, now, ids);
+        update(conn, "DELETE FROM payments WHERE booking_id" + in, null, ids);
+        update(conn, "DELETE FROM bookings WHERE id" + in, null, ids);
+        if (bookings != size) {
+            throw new SQLException("Archived " + bookings + " of " + size + " locked bookings");
+        }
+        return new int[]{bookings, payments};
+    }
+
+    private static int update(Connection conn, String sql, Timestamp archivedAt, int[] ids) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (archivedAt != null) pstmt.setTimestamp(i++, archivedAt);
+            for (int id : ids) {
+                pstmt.setInt(i++, id);
+            }
+            return pstmt.executeUpdate();
+        }
+    }
+}
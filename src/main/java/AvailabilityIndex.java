@@ -0,0 +1,429 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of each room's booked stays, used to answer date-range availability
+ * and to reject overlapping bookings before they reach the database.
+ * Stays are half-open [check-in, check-out) intervals of epoch days.
+ */
+public class AvailabilityIndex {
+    private static final String MAINTENANCE = "Maintenance";
+    // Statuses whose stays no longer hold the room
+    private static final Set<String> INACTIVE = Set.of("Cancelled", "No-Show", "Checked Out");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, RoomSchedule> schedules = new HashMap<>();
+    // Room numbers sorted so free-room lists come back in a stable order
+    private final TreeMap<String, Integer> roomIdsByNumber = new TreeMap<>();
+    private final Map<Integer, String> roomNumbersById = new HashMap<>();
+    private final Map<Integer, Integer> roomByBooking = new HashMap<>();
+    private final Set<Integer> outOfService = new HashSet<>();
+    // Holds get negative ids until the booking row exists
+    private final AtomicInteger nextHoldId = new AtomicInteger();
+    // Changes made while reload reads the database, to apply again to what it read
+    private List<Consumer<AvailabilityIndex>> changedDuringReload;
+
+    /**
+     * A provisional reservation taken before the booking is written.
+     */
+    public final class Hold {
+        private final int roomId;
+        private final int holdId;
+
+        private Hold(int roomId, int holdId) {
+            this.roomId = roomId;
+            this.holdId = holdId;
+        }
+
+        // Swaps the provisional id for the real booking id
+        public void confirm(int bookingId) {
+            lock.writeLock().lock();
+            try {
+                recordChange(index -> index.confirmHold(roomId, holdId, bookingId));
+                confirmHold(roomId, holdId, bookingId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void release() {
+            lock.writeLock().lock();
+            try {
+                recordChange(index -> index.removeBooking(holdId));
+                removeBooking(holdId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public static AvailabilityIndex load(Connection conn) throws SQLException {
+        AvailabilityIndex index = new AvailabilityIndex();
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT id, room_number, status FROM rooms")) {
+                while (rs.next()) {
+                    index.addRoom(rs.getInt("id"), rs.getString("room_number"), rs.getString("status"));
+                }
+            }
+
+            // Only stays that still matter: not cancelled and not yet over
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT id, room_id, check_in_date, check_out_date, status FROM bookings " +
+                            "WHERE check_out_date >= CURRENT_DATE " +
+                            "AND status NOT IN ('Cancelled', 'No-Show', 'Checked Out')")) {
+                while (rs.next()) {
+                    index.addBooking(rs.getInt("id"), rs.getInt("room_id"),
+                            rs.getDate("check_in_date").toLocalDate(), rs.getDate("check_out_date").toLocalDate());
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Rereads rooms and stays from the database in place, after a bulk change such as an
+     * import or the night audit. Holds outstanding and changes made while the database is
+     * read are applied again to what was read, so a booking in progress keeps its room.
+     */
+    public synchronized void reload(Connection conn) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            changedDuringReload = new ArrayList<>();
+            // Holds taken before the reload aren't in the database yet
+            roomByBooking.forEach((id, roomId) -> {
+                if (id >= 0) return;
+                int[] stay = schedules.get(roomId).get(id);
+                if (stay != null) changedDuringReload.add(index -> index.holdStay(roomId, id, stay[0], stay[1]));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        AvailabilityIndex loaded;
+        try {
+            loaded = load(conn);
+        } catch (SQLException | RuntimeException e) {
+            lock.writeLock().lock();
+            changedDuringReload = null;
+            lock.writeLock().unlock();
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changedDuringReload.forEach(change -> change.accept(loaded));
+            changedDuringReload = null;
+            schedules.clear();
+            schedules.putAll(loaded.schedules);
+            roomIdsByNumber.clear();
+            roomIdsByNumber.putAll(loaded.roomIdsByNumber);
+            roomNumbersById.clear();
+            roomNumbersById.putAll(loaded.roomNumbersById);
+            roomByBooking.clear();
+            roomByBooking.putAll(loaded.roomByBooking);
+            outOfService.clear();
+            outOfService.addAll(loaded.outOfService);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Call with the write lock held
+    private void recordChange(Consumer<AvailabilityIndex> change) {
+        if (changedDuringReload != null) changedDuringReload.add(change);
+    }
+
+    public void addRoom(int roomId, String roomNumber, String status) {
+        lock.writeLock().lock();
+        try {
+            recordChange(index -> index.addRoom(roomId, roomNumber, status));
+            schedules.putIfAbsent(roomId, new RoomSchedule());
+            roomIdsByNumber.put(roomNumber, roomId);
+            roomNumbersById.put(roomId, roomNumber);
+            setOutOfService(roomId, status);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void roomStatusChanged(int roomId, String status) {
+        lock.writeLock().lock();
+        try {
+            recordChange(index -> index.roomStatusChanged(roomId, status));
+            setOutOfService(roomId, status);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setOutOfService(int roomId, String status) {
+        if (MAINTENANCE.equals(status)) {
+            outOfService.add(roomId);
+        } else {
+            outOfService.remove(roomId);
+        }
+    }
+
+    public Integer roomId(String roomNumber) {
+        lock.readLock().lock();
+        try {
+            return roomIdsByNumber.get(roomNumber);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Adds a stay that is already in the database
+    public void addBooking(int bookingId, int roomId, LocalDate checkIn, LocalDate checkOut) {
+        lock.writeLock().lock();
+        try {
+            recordChange(index -> index.addBooking(bookingId, roomId, checkIn, checkOut));
+            holdStay(roomId, bookingId, (int) checkIn.toEpochDay(), (int) checkOut.toEpochDay());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The rest mutate without recording; call with the write lock held
+
+    private void holdStay(int roomId, int bookingId, int from, int to) {
+        // Replaying onto a reload can repeat a stay it already read
+        if (roomByBooking.containsKey(bookingId)) return;
+        schedules.computeIfAbsent(roomId, id -> new RoomSchedule()).add(bookingId, from, to);
+        roomByBooking.put(bookingId, roomId);
+    }
+
+    private void confirmHold(int roomId, int holdId, int bookingId) {
+        RoomSchedule schedule = schedules.get(roomId);
+        if (schedule == null) return;
+        if (roomByBooking.containsKey(bookingId)) {
+            // The change feed, or a reload, already read the committed booking back
+            schedule.remove(holdId);
+            roomByBooking.remove(holdId);
+        } else if (schedule.rename(holdId, bookingId)) {
+            roomByBooking.remove(holdId);
+            roomByBooking.put(bookingId, roomId);
+        }
+    }
+
+    /**
+     * Applies a booking written elsewhere, such as by another client. A stay that is
+     * already indexed only picks up the status change.
+     */
+    public void syncBooking(int bookingId, int roomId, LocalDate checkIn, LocalDate checkOut, String status) {
+        lock.writeLock().lock();
+        try {
+            recordChange(index -> index.syncBooking(bookingId, roomId, checkIn, checkOut, status));
+            if (roomByBooking.containsKey(bookingId)) {
+                applyStatus(bookingId, status);
+            } else if (!checkOut.isBefore(LocalDate.now()) && !INACTIVE.contains(status)) {
+                holdStay(roomId, bookingId, (int) checkIn.toEpochDay(), (int) checkOut.toEpochDay());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reserves the room for the stay if it's free, or returns null when it overlaps another stay.
+     */
+    public Hold tryHold(int roomId, LocalDate checkIn, LocalDate checkOut) {
+        int from = (int) checkIn.toEpochDay();
+        int to = (int) checkOut.toEpochDay();
+        if (from >= to) throw new IllegalArgumentException("Check-in must be before check-out");
+
+        lock.writeLock().lock();
+        try {
+            RoomSchedule schedule = schedules.get(roomId);
+            if (schedule == null || outOfService.contains(roomId) || schedule.overlaps(from, to)) {
+                return null;
+            }
+            int holdId = nextHoldId.decrementAndGet();
+            recordChange(index -> index.holdStay(roomId, holdId, from, to));
+            holdStay(roomId, holdId, from, to);
+            return new Hold(roomId, holdId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void bookingStatusChanged(int bookingId, String status) {
+        lock.writeLock().lock();
+        try {
+            recordChange(index -> index.bookingStatusChanged(bookingId, status));
+            applyStatus(bookingId, status);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyStatus(int bookingId, String status) {
+        switch (status) {
+            case "Cancelled", "No-Show" -> removeBooking(bookingId);
+            case "Checked Out" -> endBookingBy(bookingId, (int) LocalDate.now().toEpochDay());
+            default -> {
+            }
+        }
+    }
+
+    private void removeBooking(int bookingId) {
+        Integer roomId = roomByBooking.remove(bookingId);
+        if (roomId != null) {
+            schedules.get(roomId).remove(bookingId);
+        }
+    }
+
+    // An early check-out frees the rest of the stay
+    private void endBookingBy(int bookingId, int day) {
+        Integer roomId = roomByBooking.get(bookingId);
+        if (roomId == null) return;
+        RoomSchedule schedule = schedules.get(roomId);
+        int[] stay = schedule.get(bookingId);
+        if (stay == null) return;
+        schedule.remove(bookingId);
+        if (stay[0] < day) {
+            schedule.add(bookingId, stay[0], Math.min(stay[1], day));
+        } else {
+            roomByBooking.remove(bookingId);
+        }
+    }
+
+    public boolean isFree(int roomId, LocalDate checkIn, LocalDate checkOut) {
+        lock.readLock().lock();
+        try {
+            RoomSchedule schedule = schedules.get(roomId);
+            return schedule != null && !outOfService.contains(roomId)
+                    && !schedule.overlaps((int) checkIn.toEpochDay(), (int) checkOut.toEpochDay());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Room numbers with no stay overlapping [checkIn, checkOut), in room number order.
+     */
+    public List<String> freeRooms(LocalDate checkIn, LocalDate checkOut) {
+        int from = (int) checkIn.toEpochDay();
+        int to = (int) checkOut.toEpochDay();
+        List<String> free = new ArrayList<>();
+        if (from >= to) return free;
+
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Integer> room : roomIdsByNumber.entrySet()) {
+                int roomId = room.getValue();
+                if (!outOfService.contains(roomId) && !schedules.get(roomId).overlaps(from, to)) {
+                    free.add(room.getKey());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return free;
+    }
+
+    /**
+     * One room's stays sorted by start day, with a running maximum of end days so an
+     * overlap check is a single binary search even if legacy data already overlaps.
+     */
+    private static final class RoomSchedule {
+        private int[] starts = new int[4];
+        private int[] ends = new int[4];
+        private int[] bookingIds = new int[4];
+        private int[] maxEnd = new int[4];
+        private int size;
+
+        boolean overlaps(int from, int to) {
+            // Stays starting before 'to' overlap if any of them ends after 'from'
+            int count = lowerBound(to);
+            return count > 0 && maxEnd[count - 1] > from;
+        }
+
+        // Number of stays that start before the given day
+        private int lowerBound(int day) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < day) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void add(int bookingId, int from, int to) {
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                bookingIds = Arrays.copyOf(bookingIds, capacity);
+                maxEnd = Arrays.copyOf(maxEnd, capacity);
+            }
+            int pos = lowerBound(from + 1);
+            int tail = size - pos;
+            System.arraycopy(starts, pos, starts, pos + 1, tail);
+            System.arraycopy(ends, pos, ends, pos + 1, tail);
+            System.arraycopy(bookingIds, pos, bookingIds, pos + 1, tail);
+            starts[pos] = from;
+            ends[pos] = to;
+            bookingIds[pos] = bookingId;
+            size++;
+            rebuildMaxEnd(pos);
+        }
+
+        boolean remove(int bookingId) {
+            int pos = indexOf(bookingId);
+            if (pos < 0) return false;
+            int tail = size - pos - 1;
+            System.arraycopy(starts, pos + 1, starts, pos, tail);
+            System.arraycopy(ends, pos + 1, ends, pos, tail);
+            System.arraycopy(bookingIds, pos + 1, bookingIds, pos, tail);
+            size--;
+            rebuildMaxEnd(pos);
+            return true;
+        }
+
+        boolean rename(int oldId, int newId) {
+            int pos = indexOf(oldId);
+            if (pos < 0) return false;
+            bookingIds[pos] = newId;
+            return true;
+        }
+
+        int[] get(int bookingId) {
+            int pos = indexOf(bookingId);
+            return pos < 0 ? null : new int[]{starts[pos], ends[pos]};
+        }
+
+        private int indexOf(int bookingId) {
+            for (int i = 0; i < size; i++) {
+                if (bookingIds[i] == bookingId) return i;
+            }
+            return -1;
+        }
+
+        private void rebuildMaxEnd(int from) {
+            for (int i = from; i < size; i++) {
+                maxEnd[i] = i == 0 ? ends[0] : Math.max(maxEnd[i - 1], ends[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A page of the bookings grid stored a column at a time in primitive arrays instead of
+ * boxed values per row: dates as epoch days, the status as a {@link BookingStatus}
+ * ordinal and room numbers as codes into a dictionary shared by every page. A row costs
+ * 25 bytes this way. Cells only become objects again when the table asks for them, which
+ * it does for the rows on screen. Not thread-safe.
+ */
+public class BookingColumns {
+
+    /**
+     * Gives each distinct string a small code. Room numbers repeat on every booking of
+     * the room, so a page holds codes and the strings are stored once.
+     */
+    public static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[64];
+
+        public int code(String value) {
+            Integer code = codes.get(value);
+            if (code != null) return code;
+            int next = codes.size();
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = value;
+            codes.put(value, next);
+            return next;
+        }
+
+        public String value(int code) {
+            return values[code];
+        }
+
+        public int size() {
+            return codes.size();
+        }
+    }
+
+    private static final BookingStatus[] STATUSES = BookingStatus.values();
+
+    private final Dictionary roomNumbers;
+    private int[] ids;
+    private int[] rooms;
+    private int[] checkIns;
+    private int[] checkOuts;
+    private double[] totals;
+    private byte[] statuses;
+    private int size;
+
+    public BookingColumns(int capacity, Dictionary roomNumbers) {
+        this.roomNumbers = roomNumbers;
+        ids = new int[capacity];
+        rooms = new int[capacity];
+        checkIns = new int[capacity];
+        checkOuts = new int[capacity];
+        totals = new double[capacity];
+        statuses = new byte[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(HotelService.BookingRow row) {
+        if (size == ids.length) {
+            int capacity = Math.max(16, size * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            rooms = Arrays.copyOf(rooms, capacity);
+            checkIns = Arrays.copyOf(checkIns, capacity);
+            checkOuts = Arrays.copyOf(checkOuts, capacity);
+            totals = Arrays.copyOf(totals, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+        set(size++, row);
+    }
+
+    public void set(int index, HotelService.BookingRow row) {
+        ids[index] = row.id();
+        rooms[index] = roomNumbers.code(row.roomNumber());
+        checkIns[index] = (int) row.checkIn().toEpochDay();
+        checkOuts[index] = (int) row.checkOut().toEpochDay();
+        totals[index] = row.totalPrice();
+        statuses[index] = (byte) BookingStatus.of(row.status()).ordinal();
+    }
+
+    public void setStatus(int index, BookingStatus status) {
+        statuses[index] = (byte) status.ordinal();
+    }
+
+    public int id(int index) {
+        return ids[index];
+    }
+
+    // Row of the booking, or -1 if it isn't on this page
+    public int indexOf(int bookingId) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == bookingId) return i;
+        }
+        return -1;
+    }
+
+    // A cell in the grid's column order, decoded on demand
+    public Object value(int index, int column) {
+        return switch (column) {
+            case 0 -> ids[index];
+            case 1 -> roomNumbers.value(rooms[index]);
+            case 2 -> LocalDate.ofEpochDay(checkIns[index]);
+            case 3 -> LocalDate.ofEpochDay(checkOuts[index]);
+            case 4 -> totals[index];
+            case 5 -> STATUSES[statuses[index]].label();
+            default -> throw new IndexOutOfBoundsException("No column " + column);
+        };
+    }
+}
@@ -0,0 +1,271 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Booking writes that have to happen together.
+ */
+public class BookingDao {
+
+    public record BookingResult(int bookingId, LocalDateTime createdAt, long elapsedNanos) {
+    }
+
+    public record BlockResult(int[] bookingIds, LocalDateTime createdAt, long elapsedNanos) {
+    }
+
+    /**
+     * A status change that was applied. conflicts counts the times another writer changed
+     * the booking between this one reading it and updating it.
+     */
+    public record StatusChange(int bookingId, BookingStatus previousStatus, BookingStatus status, int version,
+                               int conflicts, LocalDateTime changedAt) {
+    }
+
+    private BookingDao() {
+    }
+
+    /**
+     * Inserts the booking, its payment and the room status change as one transaction,
+     * along with their rollups. Guest and room come from the reference data cache,
+     * so no lookups are needed here.
+     *
+     * @throws IllegalStateException if the room already has a booking overlapping the stay,
+     *         e.g. one made by another client the availability index hasn't seen yet
+     */
+    public static BookingResult createBooking(Connection conn, int guestId, ReferenceData.RoomInfo room,
+                                              LocalDate checkIn, LocalDate checkOut, double total,
+                                              String paymentMethod) throws SQLException {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int bookingId = DataAccess.inTransaction(conn, c -> {
+            lockFreeRooms(c, List.of(room), checkIn, checkOut);
+            int id = insertBooking(c, guestId, room.id(), checkIn, checkOut, total, now);
+            createPayment(c, id, total, paymentMethod, room.type(), now);
+            updateRoomStatus(c, room.id(), "Booked");
+            Rollups.recordBookingCreated(c, now.toLocalDate());
+            return id;
+        });
+        return new BookingResult(bookingId, now, System.nanoTime() - start);
+    }
+
+    /**
+     * Books several rooms for the same guest and stay in one transaction, using one JDBC
+     * batch each for the bookings, the payments and the room statuses. Rollups are updated
+     * once per room type rather than once per room. totals[i] is the price of rooms.get(i).
+     *
+     * @throws IllegalStateException if any of the rooms already has a booking overlapping the stay
+     */
+    public static BlockResult createBlock(Connection conn, int guestId, List<ReferenceData.RoomInfo> rooms,
+                                          LocalDate checkIn, LocalDate checkOut, double[] totals,
+                                          String paymentMethod) throws SQLException {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int[] bookingIds = DataAccess.inTransaction(conn, c -> {
+            lockFreeRooms(c, rooms, checkIn, checkOut);
+            int[] ids = insertBookings(c, guestId, rooms, checkIn, checkOut, totals, now);
+
+            String paymentSql = "INSERT INTO payments (booking_id, amount, payment_date, method) VALUES (?, ?, ?, ?)";
+            try (PreparedStatement pstmt = c.prepareStatement(paymentSql)) {
+                for (int i = 0; i < ids.length; i++) {
+                    pstmt.setInt(1, ids[i]);
+                    pstmt.setDouble(2, totals[i]);
+                    pstmt.setTimestamp(3, Timestamp.valueOf(now));
+                    pstmt.setString(4, paymentMethod);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+
+            try (PreparedStatement pstmt = c.prepareStatement("UPDATE rooms SET status = ? WHERE id = ?")) {
+                for (ReferenceData.RoomInfo room : rooms) {
+                    pstmt.setString(1, "Booked");
+                    pstmt.setInt(2, room.id());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+
+            Map<String, double[]> byType = new TreeMap<>();
+            for (int i = 0; i < rooms.size(); i++) {
+                double[] sum = byType.computeIfAbsent(rooms.get(i).type(), t -> new double[2]);
+                sum[0] += totals[i];
+                sum[1]++;
+            }
+            for (Map.Entry<String, double[]> type : byType.entrySet()) {
+                Rollups.recordPayments(c, now.toLocalDate(), paymentMethod, type.getKey(), type.getValue()[0],
+                        (int) type.getValue()[1]);
+            }
+            Rollups.recordBookingsCreated(c, now.toLocalDate(), ids.length);
+            return ids;
+        });
+        return new BlockResult(bookingIds, now, System.nanoTime() - start);
+    }
+
+    // Locks the rooms' rows, in id order so two blocks can't deadlock, and checks no live booking
+    // overlaps the stay. The availability index hasn't seen other clients' newest bookings, so
+    // this is what stops two clients booking the same room.
+    private static void lockFreeRooms(Connection conn, List<ReferenceData.RoomInfo> rooms, LocalDate checkIn,
+                                      LocalDate checkOut) throws SQLException {
+        List<ReferenceData.RoomInfo> byId = new ArrayList<>(rooms);
+        byId.sort(Comparator.comparingInt(ReferenceData.RoomInfo::id));
+        String overlapSql = "SELECT id FROM bookings WHERE room_id = ? AND status IN ('Booked', 'Checked In') " +
+                "AND check_in_date < ? AND check_out_date > ?";
+        try (PreparedStatement lock = conn.prepareStatement("SELECT id FROM rooms WHERE id = ? FOR UPDATE");
+             PreparedStatement overlap = conn.prepareStatement(overlapSql)) {
+            overlap.setMaxRows(1);
+            for (ReferenceData.RoomInfo room : byId) {
+                lock.setInt(1, room.id());
+                try (ResultSet rs = lock.executeQuery()) {
+                    if (!rs.next()) throw new IllegalStateException("Room " + room.roomNumber() + " no longer exists");
+                }
+                overlap.setInt(1, room.id());
+                overlap.setDate(2, java.sql.Date.valueOf(checkOut));
+                overlap.setDate(3, java.sql.Date.valueOf(checkIn));
+                try (ResultSet rs = overlap.executeQuery()) {
+                    if (rs.next()) {
+                        throw new IllegalStateException("Room " + room.roomNumber() + " is not available for those dates");
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[] insertBookings(Connection conn, int guestId, List<ReferenceData.RoomInfo> rooms,
+                                        LocalDate checkIn, LocalDate checkOut, double[] totals,
+                                        LocalDateTime createdAt) throws SQLException {
+        String sql = "INSERT INTO bookings (guest_id, room_id, check_in_date, check_out_date, total_price, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        int[] ids = new int[rooms.size()];
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rooms.size(); i++) {
+                pstmt.setInt(1, guestId);
+                pstmt.setInt(2, rooms.get(i).id());
+                pstmt.setDate(3, java.sql.Date.valueOf(checkIn));
+                pstmt.setDate(4, java.sql.Date.valueOf(checkOut));
+                pstmt.setDouble(5, totals[i]);
+                pstmt.setTimestamp(6, Timestamp.valueOf(createdAt));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length; i++) {
+                    if (!rs.next()) throw new SQLException("Failed to get booking IDs");
+                    ids[i] = rs.getInt(1);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static int insertBooking(Connection conn, int guestId, int roomId, LocalDate checkIn,
+                                     LocalDate checkOut, double total, LocalDateTime createdAt) throws SQLException {
+        String sql = "INSERT INTO bookings (guest_id, room_id, check_in_date, check_out_date, total_price, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, guestId);
+            pstmt.setInt(2, roomId);
+            pstmt.setDate(3, java.sql.Date.valueOf(checkIn));
+            pstmt.setDate(4, java.sql.Date.valueOf(checkOut));
+            pstmt.setDouble(5, total);
+            pstmt.setTimestamp(6, Timestamp.valueOf(createdAt));
+
+            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                if (rs.next()) return rs.getInt(1);
+            }
+        }
+        throw new SQLException("Failed to get booking ID");
+    }
+
+    // Call inside a transaction so the revenue rollup commits with the payment
+    public static void createPayment(Connection conn, int bookingId, double amount, String method,
+                                     String roomType, LocalDateTime paidAt) throws SQLException {
+        Metrics.get().time("createPayment", () -> {
+            String sql = "INSERT INTO payments (booking_id, amount, payment_date, method) VALUES (?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, bookingId);
+                pstmt.setDouble(2, amount);
+                pstmt.setTimestamp(3, Timestamp.valueOf(paidAt));
+                pstmt.setString(4, method);
+                pstmt.executeUpdate();
+            }
+            Rollups.recordPayment(conn, paidAt.toLocalDate(), method, roomType, amount);
+            return null;
+        });
+    }
+
+    /**
+     * Moves a booking to a new status if its lifecycle allows it from the status it has,
+     * and counts the change in the activity rollup. Returns null if the id doesn't exist.
+     *
+     * The update only applies if the booking still has the status and version it was
+     * read with, so two desks racing on one booking can't both win. The loser reads the
+     * booking again and either applies its change on top or, more often, is rejected.
+     *
+     * @throws BookingStatus.TransitionRejected if the booking can't make the change
+     */
+    public static StatusChange changeBookingStatus(Connection conn, int bookingId, BookingStatus status)
+            throws SQLException {
+        int conflicts = 0;
+        // Statuses only move forward, so this goes round at most a couple of times
+        while (true) {
+            CurrentStatus current = currentStatus(conn, bookingId);
+            if (current == null) return null;
+            if (!current.status().canBecome(status)) {
+                throw new BookingStatus.TransitionRejected(bookingId, current.status(), status, conflicts);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            boolean changed = DataAccess.inTransaction(conn, c -> {
+                String sql = "UPDATE bookings SET status = ?, status_changed_at = ?, version = version + 1 " +
+                        "WHERE id = ? AND status = ? AND version = ?";
+                try (PreparedStatement pstmt = c.prepareStatement(sql)) {
+                    pstmt.setString(1, status.label());
+                    pstmt.setTimestamp(2, Timestamp.valueOf(now));
+                    pstmt.setInt(3, bookingId);
+                    pstmt.setString(4, current.status().label());
+                    pstmt.setInt(5, current.version());
+                    if (pstmt.executeUpdate() == 0) return false;
+                }
+                Rollups.recordStatusChange(c, now.toLocalDate(), status.label());
+                return true;
+            });
+            if (changed) {
+                return new StatusChange(bookingId, current.status(), status, current.version() + 1, conflicts, now);
+            }
+            conflicts++;
+        }
+    }
+
+    private record CurrentStatus(BookingStatus status, int version) {
+    }
+
+    private static CurrentStatus currentStatus(Connection conn, int bookingId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT status, version FROM bookings WHERE id = ?")) {
+            pstmt.setInt(1, bookingId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new CurrentStatus(BookingStatus.of(rs.getString(1)), rs.getInt(2)) : null;
+            }
+        }
+    }
+
+    public static void updateRoomStatus(Connection conn, int roomId, String status) throws SQLException {
+        String sql = "UPDATE rooms SET status = ? WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, status);
+            pstmt.setInt(2, roomId);
+            pstmt.executeUpdate();
+        }
+    }
+}
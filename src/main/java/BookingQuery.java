@@ -0,0 +1,117 @@
+import java.time.LocalDate;
+import java.util.Comparator;
+
+/**
+ * What the bookings grid is filtered and sorted by. Null fields don't filter. The filters
+ * become bound conditions on indexed columns and the sort becomes the ORDER BY, with the
+ * booking id breaking ties so that pages can be read by keyset on (sort value, id).
+ *
+ * @param checkInFrom first check-in date to include
+ * @param checkInTo   last check-in date to include
+ * @param guestName   start of the guest's full name
+ * @param minPrice    lowest total price to include
+ * @param maxPrice    highest total price to include
+ */
+public record BookingQuery(BookingStatus status, LocalDate checkInFrom, LocalDate checkInTo, String roomType,
+                           String guestName, Double minPrice, Double maxPrice, Sort sort, boolean descending) {
+
+    public static final BookingQuery ALL = new BookingQuery(null, null, null, null, null, null, null, Sort.ID, false);
+
+    public enum Sort {
+        ID("b.id"),
+        CHECK_IN("b.check_in_date"),
+        CHECK_OUT("b.check_out_date"),
+        TOTAL_PRICE("b.total_price"),
+        STATUS("b.status");
+
+        private final String column;
+
+        Sort(String column) {
+            this.column = column;
+        }
+
+        Comparable<?> valueIn(HotelService.BookingRow row) {
+            return switch (this) {
+                case ID -> row.id();
+                case CHECK_IN -> row.checkIn();
+                case CHECK_OUT -> row.checkOut();
+                case TOTAL_PRICE -> row.totalPrice();
+                case STATUS -> row.status();
+            };
+        }
+    }
+
+    /**
+     * A row's place in the query's order: pages start after one and, when a known page
+     * is fetched again, end at one.
+     */
+    public record Cursor(Object sortValue, int id) {
+    }
+
+    public BookingQuery sortedBy(Sort sort, boolean descending) {
+        return new BookingQuery(status, checkInFrom, checkInTo, roomType, guestName, minPrice, maxPrice, sort,
+                descending);
+    }
+
+    // Whether this lists every booking in id order, so new bookings belong at the end
+    public boolean listsAllInIdOrder() {
+        return equals(ALL);
+    }
+
+    public Cursor cursorAt(HotelService.BookingRow row) {
+        return new Cursor(sort.valueIn(row), row.id());
+    }
+
+    // The query's order, for merging rows read from more than one table
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Comparator<HotelService.BookingRow> order() {
+        Comparator<HotelService.BookingRow> order = (a, b) -> {
+            int c = ((Comparable) sort.valueIn(a)).compareTo(sort.valueIn(b));
+            return c != 0 ? c : Integer.compare(a.id(), b.id());
+        };
+        return descending ? order.reversed() : order;
+    }
+
+    /**
+     * The filters, plus the page bounds: after the cursor, and up to and including upTo.
+     * Either bound may be null.
+     */
+    public SqlConditions conditions(String guestUsername, Cursor after, Cursor upTo) {
+        SqlConditions where = new SqlConditions()
+                .equal("u.username", guestUsername)
+                .equal("b.status", status == null ? null : status.label())
+                .atLeast("b.check_in_date", checkInFrom)
+                .atMost("b.check_in_date", checkInTo)
+                .equal("r.type", roomType)
+                .startsWith("u.fullname", guestName)
+                .atLeast("b.total_price", minPrice)
+                .atMost("b.total_price", maxPrice);
+        if (after != null) keyset(where, after, !descending, false);
+        if (upTo != null) keyset(where, upTo, descending, true);
+        return where;
+    }
+
+    // Rows beyond the cursor in the given direction, or up to it when inclusive
+    private void keyset(SqlConditions where, Cursor cursor, boolean greater, boolean inclusive) {
+        String op = greater ? ">" : "<";
+        String idOp = inclusive ? op + "=" : op;
+        if (sort == Sort.ID) {
+            where.add("b.id " + idOp + " ?", cursor.id());
+        } else {
+            // The first, redundant comparison gives the database a range to seek on
+            where.add(sort.column + " " + op + "= ? AND (" + sort.column + " " + op + " ? OR b.id " + idOp + " ?)",
+                    cursor.sortValue(), cursor.sortValue(), cursor.id());
+        }
+    }
+
+    // Whether the guest's user row has to be joined
+    public boolean needsUsers(String guestUsername) {
+        return guestUsername != null || guestName != null;
+    }
+
+    public String orderBy() {
+        String direction = descending ? " DESC" : "";
+        return sort == Sort.ID ? " ORDER BY b.id" + direction
+                : " ORDER BY " + sort.column + direction + ", b.id" + direction;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Where a booking is in its lifecycle. A booking starts Booked and is then checked in,
+ * cancelled or marked a no-show; a checked-in stay can only be checked out. Checked Out,
+ * Cancelled and No-Show are final.
+ */
+public enum BookingStatus {
+    BOOKED("Booked", "booked"),
+    CHECKED_IN("Checked In", "checked in"),
+    CHECKED_OUT("Checked Out", "checked out"),
+    CANCELLED("Cancelled", "cancelled"),
+    NO_SHOW("No-Show", "marked as a no-show");
+
+    private final String label;
+    private final String pastTense;
+
+    BookingStatus(String label, String pastTense) {
+        this.label = label;
+        this.pastTense = pastTense;
+    }
+
+    // As stored in bookings.status and shown in the UI
+    public String label() {
+        return label;
+    }
+
+    public boolean canBecome(BookingStatus next) {
+        return switch (this) {
+            case BOOKED -> next == CHECKED_IN || next == CANCELLED || next == NO_SHOW;
+            case CHECKED_IN -> next == CHECKED_OUT;
+            case CHECKED_OUT, CANCELLED, NO_SHOW -> false;
+        };
+    }
+
+    public boolean isFinal() {
+        return this == CHECKED_OUT || this == CANCELLED || this == NO_SHOW;
+    }
+
+    public static BookingStatus of(String label) {
+        for (BookingStatus status : values()) {
+            if (status.label.equals(label)) return status;
+        }
+        throw new IllegalArgumentException("Unknown booking status: " + label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * A change the lifecycle doesn't allow from the booking's current status, usually
+     * because another desk or the guest changed it first.
+     */
+    public static class TransitionRejected extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        private final int bookingId;
+        private final BookingStatus current;
+        private final BookingStatus requested;
+        private final int conflicts;
+
+        public TransitionRejected(int bookingId, BookingStatus current, BookingStatus requested, int conflicts) {
+            super(current == requested
+                    ? "Booking " + bookingId + " is already " + current
+                    : "Booking " + bookingId + " is " + current + " and can't be " + requested.pastTense);
+            this.bookingId = bookingId;
+            this.current = current;
+            this.requested = requested;
+            this.conflicts = conflicts;
+        }
+
+        public int bookingId() {
+            return bookingId;
+        }
+
+        public BookingStatus current() {
+            return current;
+        }
+
+        public BookingStatus requested() {
+            return requested;
+        }
+
+        // How many times the booking changed between reading it and trying to update it
+        public int conflicts() {
+            return conflicts;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Streams a CSV file into rooms, users or historical bookings using JDBC batches.
+ * Each batch commits on its own, so memory stays flat however large the file is.
+ * Rows that fail validation or insertion go to a rejected-rows file next to the input.
+ */
+public class BulkImporter {
+
+    public enum Kind {
+        ROOMS("room_number", "type", "price", "status"),
+        USERS("username", "password", "role", "fullname"),
+        BOOKINGS("guest_username", "room_number", "check_in_date", "check_out_date", "total_price",
+                "status", "payment_amount", "payment_date", "payment_method");
+
+        private final String[] columns;
+
+        Kind(String... columns) {
+            this.columns = columns;
+        }
+
+        public String[] columns() {
+            return columns;
+        }
+    }
+
+    public record Progress(long read, long imported, long rejected, double rowsPerSecond, boolean done) {
+        @Override
+        public String toString() {
+            return String.format("%,d read, %,d imported, %,d rejected (%,.0f rows/s)",
+                    read, imported, rejected, rowsPerSecond);
+        }
+    }
+
+    private static final Set<String> ROOM_TYPES = Set.of("Standard", "Deluxe", "Suite");
+    private static final Set<String> ROLES = Set.of("admin", "staff", "guest");
+    private static final Set<String> PAYMENT_METHODS = Set.of("Credit Card", "Cash", "Bank Transfer");
+
+    private final ReferenceData referenceData;
+    private final int batchSize;
+
+    public BulkImporter(ReferenceData referenceData, int batchSize) {
+        this.referenceData = referenceData;
+        this.batchSize = batchSize;
+    }
+
+    public static Path rejectedFileFor(Path input) {
+        return input.resolveSibling(input.getFileName() + ".rejected.csv");
+    }
+
+    /**
+     * Imports the file, reporting progress after every batch. Stops between batches
+     * if the thread is interrupted; batches already committed stay committed.
+     */
+    public Progress importFile(Connection conn, Kind kind, Path input, Consumer<Progress> onProgress)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        long read = 0;
+        long imported = 0;
+        long rejected = 0;
+
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(input, StandardCharsets.UTF_8));
+             BufferedWriter rejects = Files.newBufferedWriter(rejectedFileFor(input), StandardCharsets.UTF_8)) {
+
+            List<String> header = csv.next();
+            if (header == null) throw new IOException("File is empty");
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                positions.put(header.get(i).trim().toLowerCase(), i);
+            }
+            writeRow(rejects, header, "reason");
+
+            Batch batch = newBatch(kind, conn);
+            List<String> fields;
+            while ((fields = csv.next()) != null) {
+                read++;
+                Object[] row;
+                try {
+                    row = parse(kind, conn, fields, positions);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    rejected++;
+                    writeRow(rejects, fields, e.getMessage());
+                    continue;
+                }
+                batch.add(fields, row);
+
+                if (batch.size() >= batchSize) {
+                    int ok = batch.flush(rejects);
+                    imported += ok;
+                    rejected += batchSize - ok;
+                    onProgress.accept(progress(read, imported, rejected, start, false));
+                    if (Thread.currentThread().isInterrupted()) break;
+                }
+            }
+
+            int pending = batch.size();
+            int ok = batch.flush(rejects);
+            imported += ok;
+            rejected += pending - ok;
+        }
+
+        Progress result = progress(read, imported, rejected, start, true);
+        onProgress.accept(result);
+        return result;
+    }
+
+    private static Progress progress(long read, long imported, long rejected, long start, boolean done) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        return new Progress(read, imported, rejected, read / seconds, done);
+    }
+
+    private Object[] parse(Kind kind, Connection conn, List<String> fields, Map<String, Integer> positions)
+            throws SQLException {
+        Object[] row = new Object[kind.columns().length];
+        for (int i = 0; i < row.length; i++) {
+            Integer pos = positions.get(kind.columns()[i]);
+            String value = pos != null && pos < fields.size() ? fields.get(pos).trim() : "";
+            row[i] = value.isEmpty() ? null : value;
+        }
+
+        switch (kind) {
+            case ROOMS -> {
+                required(row, 0, "room_number");
+                oneOf(required(row, 1, "type"), ROOM_TYPES, "type");
+                row[2] = positiveDouble(required(row, 2, "price"), "price");
+                row[3] = row[3] == null ? "Available" : oneOf((String) row[3], HotelService.ROOM_STATUSES, "status");
+            }
+            case USERS -> {
+                required(row, 0, "username");
+                required(row, 1, "password");
+                oneOf(required(row, 2, "role"), ROLES, "role");
+            }
+            case BOOKINGS -> {
+                ReferenceData.UserInfo guest = referenceData.user(conn, required(row, 0, "guest_username"));
+                if (guest == null) throw new IllegalArgumentException("unknown guest " + row[0]);
+                ReferenceData.RoomInfo room = referenceData.room(conn, required(row, 1, "room_number"));
+                if (room == null) throw new IllegalArgumentException("unknown room " + row[1]);
+                row[0] = guest.id();
+                row[1] = room.id();
+
+                LocalDate checkIn = LocalDate.parse(required(row, 2, "check_in_date"));
+                LocalDate checkOut = LocalDate.parse(required(row, 3, "check_out_date"));
+                if (!checkIn.isBefore(checkOut)) throw new IllegalArgumentException("check-in not before check-out");
+                row[2] = java.sql.Date.valueOf(checkIn);
+                row[3] = java.sql.Date.valueOf(checkOut);
+                row[4] = positiveDouble(required(row, 4, "total_price"), "total_price");
+                // Every lifecycle status, so an export including no-shows imports again
+                row[5] = (row[5] == null ? BookingStatus.BOOKED : BookingStatus.of((String) row[5])).label();
+
+                if (row[6] != null) {
+                    row[6] = positiveDouble((String) row[6], "payment_amount");
+                    String paidAt = required(row, 7, "payment_date");
+                    row[7] = Timestamp.valueOf(paidAt.length() == 10
+                            ? LocalDate.parse(paidAt).atStartOfDay() : LocalDateTime.parse(paidAt.replace(' ', 'T')));
+                    oneOf(required(row, 8, "payment_method"), PAYMENT_METHODS, "payment_method");
+                }
+            }
+        }
+        return row;
+    }
+
+    private static String required(Object[] row, int index, String column) {
+        if (row[index] == null) throw new IllegalArgumentException("missing " + column);
+        return (String) row[index];
+    }
+
+    private static String oneOf(String value, Collection<String> allowed, String column) {
+        if (!allowed.contains(value)) throw new IllegalArgumentException("invalid " + column + " '" + value + "'");
+        return value;
+    }
+
+    private static double positiveDouble(String value, String column) {
+        try {
+            double parsed = Double.parseDouble(value);
+            if (parsed < 0 || Double.isNaN(parsed)) throw new NumberFormatException();
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + column + " '" + value + "'");
+        }
+    }
+
+    private Batch newBatch(Kind kind, Connection conn) {
+        return switch (kind) {
+            case ROOMS -> new Batch(conn,
+                    "INSERT INTO rooms (room_number, type, price, status) VALUES (?, ?, ?, ?)", null);
+            case USERS -> new Batch(conn,
+                    "INSERT INTO users (username, password, role, fullname) VALUES (?, ?, ?, ?)", null);
+            case BOOKINGS -> new Batch(conn,
+                    "INSERT INTO bookings (guest_id, room_id, check_in_date, check_out_date, total_price, status) " +
+                            "VALUES (?, ?, ?, ?, ?, ?)",
+                    "INSERT INTO payments (booking_id, amount, payment_date, method) VALUES (?, ?, ?, ?)");
+        };
+    }
+
+    /**
+     * Rows waiting to be written. For bookings, the payment for each row follows in a
+     * second batch keyed by the generated booking ids.
+     */
+    private static final class Batch {
+        private final Connection conn;
+        private final String sql;
+        private final String paymentSql;
+        private final List<List<String>> sources = new ArrayList<>();
+        private final List<Object[]> rows = new ArrayList<>();
+
+        Batch(Connection conn, String sql, String paymentSql) {
+            this.conn = conn;
+            this.sql = sql;
+            this.paymentSql = paymentSql;
+        }
+
+        void add(List<String> source, Object[] row) {
+            sources.add(source);
+            rows.add(row);
+        }
+
+        int size() {
+            return rows.size();
+        }
+
+        // Writes the batch in one transaction; returns how many rows were imported
+        int flush(Writer rejects) throws SQLException, IOException {
+            if (rows.isEmpty()) return 0;
+            try {
+                DataAccess.inTransaction(conn, c -> {
+                    writeAll(c);
+                    return null;
+                });
+                return rows.size();
+            } catch (BatchUpdateException e) {
+                // Something in the batch was rejected by the database; retry row by row to find it
+                return writeOneByOne(rejects);
+            } finally {
+                sources.clear();
+                rows.clear();
+            }
+        }
+
+        private void writeAll(Connection c) throws SQLException {
+            int columns = paymentSql != null ? 6 : 4;
+            try (PreparedStatement pstmt = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (Object[] row : rows) {
+                    bind(pstmt, row, 0, columns);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+
+                if (paymentSql != null) {
+                    writePayments(c, pstmt.getGeneratedKeys());
+                }
+            }
+        }
+
+        private void writePayments(Connection c, ResultSet keys) throws SQLException {
+            try (keys; PreparedStatement pstmt = c.prepareStatement(paymentSql)) {
+                boolean any = false;
+                for (Object[] row : rows) {
+                    if (!keys.next()) throw new SQLException("Missing generated booking id");
+                    if (row[6] == null) continue;
+                    pstmt.setInt(1, keys.getInt(1));
+                    pstmt.setDouble(2, (Double) row[6]);
+                    pstmt.setTimestamp(3, (Timestamp) row[7]);
+                    pstmt.setString(4, (String) row[8]);
+                    pstmt.addBatch();
+                    any = true;
+                }
+                if (any) pstmt.executeBatch();
+            }
+        }
+
+        private int writeOneByOne(Writer rejects) throws SQLException, IOException {
+            int ok = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                Object[] row = rows.get(i);
+                try {
+                    DataAccess.inTransaction(conn, c -> {
+                        try (PreparedStatement pstmt = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                            bind(pstmt, row, 0, paymentSql != null ? 6 : 4);
+                            pstmt.executeUpdate();
+                            if (paymentSql != null && row[6] != null) {
+                                try (ResultSet keys = pstmt.getGeneratedKeys();
+                                     PreparedStatement payment = c.prepareStatement(paymentSql)) {
+                                    if (!keys.next()) throw new SQLException("Missing generated booking id");
+                                    payment.setInt(1, keys.getInt(1));
+                                    payment.setDouble(2, (Double) row[6]);
+                                    payment.setTimestamp(3, (Timestamp) row[7]);
+                                    payment.setString(4, (String) row[8]);
+                                    payment.executeUpdate();
+                                }
+                            }
+                        }
+                        return null;
+                    });
+                    ok++;
+                } catch (SQLException e) {
+                    writeRow(rejects, sources.get(i), e.getMessage());
+                }
+            }
+            return ok;
+        }
+
+        private static void bind(PreparedStatement pstmt, Object[] row, int from, int count) throws SQLException {
+            for (int i = 0; i < count; i++) {
+                pstmt.setObject(i + 1, row[from + i]);
+            }
+        }
+    }
+
+    private static void writeRow(Writer out, List<String> fields, String reason) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (String field : fields) {
+            line.append(quote(field)).append(',');
+        }
+        line.append(quote(reason)).append('\n');
+        out.write(line.toString());
+    }
+
+    private static String quote(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Minimal RFC 4180 reader: quoted fields may contain commas, doubled quotes and newlines.
+     */
+    static final class CsvReader implements AutoCloseable {
+        private final BufferedReader in;
+
+        CsvReader(Reader in) {
+            this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+        }
+
+        // Next record, or null at end of input; blank lines are skipped
+        List<String> next() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) return null;
+            } while (line.isBlank());
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) break;
+                    // Quoted field continues on the next line
+                    line = in.readLine();
+                    if (line == null) throw new IOException("Unterminated quoted field");
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
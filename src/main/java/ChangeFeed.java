@@ -0,0 +1,149 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks up rows changed by any client since the last poll, using the updated_at column
+ * the database maintains on rooms, bookings, payments and users. Each poll is one
+ * indexed range scan per table that normally returns nothing.
+ *
+ * A transaction can commit after a row stamped later than its own has been seen, so
+ * every poll looks back {@link #OVERLAP_MILLIS} behind the watermark and skips rows it
+ * has already delivered at the same timestamp.
+ */
+public class ChangeFeed {
+
+    public interface Listener {
+        void changed(DomainEvent event) throws SQLException;
+    }
+
+    private static final long OVERLAP_MILLIS = 5_000;
+    // Beyond this many rows in one poll the listener is told to reload instead
+    private static final int MAX_ROWS = 1_000;
+
+    private interface RowReader {
+        DomainEvent read(ResultSet rs) throws SQLException;
+    }
+
+    private static final class Table {
+        private final String name;
+        private final String sql;
+        private final BulkImporter.Kind kind;
+        private final RowReader reader;
+        private Timestamp watermark;
+        // Rows delivered within the overlap window, with the timestamp they were delivered at
+        private final Map<Integer, Timestamp> delivered = new HashMap<>();
+
+        Table(String name, String sql, BulkImporter.Kind kind, RowReader reader) {
+            this.name = name;
+            this.sql = sql;
+            this.kind = kind;
+            this.reader = reader;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final Listener listener;
+    private final List<Table> tables = List.of(
+            new Table("rooms",
+                    "SELECT id, room_number, type, price, status, updated_at FROM rooms",
+                    BulkImporter.Kind.ROOMS,
+                    rs -> new DomainEvent.RoomSynced(new ReferenceData.RoomInfo(rs.getInt("id"),
+                            rs.getString("room_number"), rs.getString("type"), rs.getDouble("price"),
+                            rs.getString("status")))),
+            new Table("bookings",
+                    "SELECT b.id, b.room_id, r.room_number, u.username, b.check_in_date, b.check_out_date, " +
+                            "b.total_price, b.status, b.updated_at " +
+                            "FROM bookings b " +
+                            "JOIN rooms r ON b.room_id = r.id " +
+                            "JOIN users u ON b.guest_id = u.id",
+                    BulkImporter.Kind.BOOKINGS,
+                    rs -> new DomainEvent.BookingSynced(rs.getInt("room_id"), rs.getString("username"),
+                            new HotelService.BookingRow(rs.getInt("id"), rs.getString("room_number"),
+                                    rs.getDate("check_in_date").toLocalDate(),
+                                    rs.getDate("check_out_date").toLocalDate(),
+                                    rs.getDouble("total_price"), rs.getString("status")))),
+            new Table("payments",
+                    "SELECT id, booking_id, updated_at FROM payments",
+                    BulkImporter.Kind.BOOKINGS,
+                    rs -> new DomainEvent.PaymentSynced(rs.getInt("id"), rs.getInt("booking_id"))),
+            new Table("users",
+                    "SELECT id, username, fullname, role, updated_at FROM users",
+                    BulkImporter.Kind.USERS,
+                    rs -> new DomainEvent.UserSynced(new HotelService.UserAccount(rs.getInt("id"),
+                            rs.getString("username"), rs.getString("fullname"), rs.getString("role")))));
+
+    public ChangeFeed(ConnectionPool pool, Listener listener) {
+        this.pool = pool;
+        this.listener = listener;
+    }
+
+    // Starts from what is in the database now; earlier changes are assumed to be loaded already
+    public void start() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (Table table : tables) {
+                try (ResultSet rs = stmt.executeQuery("SELECT MAX(updated_at) FROM " + table.name)) {
+                    Timestamp max = rs.next() ? rs.getTimestamp(1) : null;
+                    table.watermark = max != null ? max : new Timestamp(0);
+                }
+            }
+        }
+    }
+
+    // Delivers every change since the previous poll; returns how many rows were delivered
+    public int poll() throws SQLException {
+        int delivered = 0;
+        try (Connection conn = pool.getConnection()) {
+            for (Table table : tables) {
+                delivered += poll(conn, table);
+            }
+        }
+        return delivered;
+    }
+
+    private int poll(Connection conn, Table table) throws SQLException {
+        Timestamp since = new Timestamp(table.watermark.getTime() - OVERLAP_MILLIS);
+        String alias = table.name.equals("bookings") ? "b." : "";
+        String sql = table.sql + " WHERE " + alias + "updated_at > ? ORDER BY " + alias + "updated_at LIMIT ?";
+
+        int count = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, since);
+            pstmt.setInt(2, MAX_ROWS + table.delivered.size() + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    Timestamp updatedAt = rs.getTimestamp("updated_at");
+                    if (updatedAt.after(table.watermark)) table.watermark = updatedAt;
+                    if (updatedAt.equals(table.delivered.put(id, updatedAt))) continue;
+
+                    if (++count > MAX_ROWS) {
+                        // A bulk change: cheaper to reload than to apply row by row
+                        skipToEnd(conn, table);
+                        listener.changed(new DomainEvent.DataImported(table.kind));
+                        return count;
+                    }
+                    listener.changed(table.reader.read(rs));
+                }
+            }
+        }
+        long horizon = table.watermark.getTime() - OVERLAP_MILLIS;
+        table.delivered.values().removeIf(updatedAt -> updatedAt.getTime() <= horizon);
+        return count;
+    }
+
+    private void skipToEnd(Connection conn, Table table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(updated_at) FROM " + table.name)) {
+            if (rs.next() && rs.getTimestamp(1) != null) table.watermark = rs.getTimestamp(1);
+        }
+        table.delivered.clear();
+    }
+}
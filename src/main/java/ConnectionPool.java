@@ -0,0 +1,578 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Small JDBC connection pool with validation, idle eviction, leak detection,
+ * a per-connection prepared statement cache, statement timing, and cancelling the
+ * statement a thread is waiting on.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+    // Told about every statement execution on a pooled connection
+    public interface StatementListener {
+        // updatedRows is -1 for queries
+        void statementExecuted(String sql, long nanos, long updatedRows, SQLException error);
+    }
+
+    public record Stats(int active, int idle, int waiting, long borrows, double avgWaitMillis,
+                        double maxWaitMillis, long created, long discarded, long leaks,
+                        long statementHits, long statementMisses) {
+        @Override
+        public String toString() {
+            return String.format("pool: %d active, %d idle, %d waiting, avg wait %.1f ms (max %.1f ms), " +
+                            "%d borrows, %d leaks, statement cache %d/%d hits",
+                    active, idle, waiting, avgWaitMillis, maxWaitMillis, borrows, leaks,
+                    statementHits, statementHits + statementMisses);
+        }
+    }
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+
+    private long borrowTimeoutMillis = 10_000;
+    private long validateAfterIdleMillis = 1_000;
+    private int validationTimeoutSeconds = 2;
+    private long idleTimeoutMillis = 10 * 60_000;
+    private long leakThresholdMillis = 60_000;
+    private int statementCacheSize = 64;
+    private volatile StatementListener statementListener;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    // The statement each thread is executing right now, for cancelStatement
+    private final Map<Thread, Statement> executing = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+
+    public ConnectionPool(String url, String username, String password, int minSize, int maxSize) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size " + minSize + ".." + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Open the minimum up front so a bad URL or password fails fast
+        for (int i = 0; i < minSize; i++) {
+            idle.push(open());
+        }
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 30, 30, TimeUnit.SECONDS);
+    }
+
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public void setValidateAfterIdleMillis(long validateAfterIdleMillis) {
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public void setStatementListener(StatementListener statementListener) {
+        this.statementListener = statementListener;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Borrows a connection. Closing it returns it to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = open();
+            }
+            recordWait(System.nanoTime() - start);
+
+            Lease lease = new Lease(pooled, leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null);
+            leased.add(lease);
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.poll();
+            }
+            if (pooled == null) return null;
+
+            // Only ping connections that sat idle long enough for the server to drop them
+            long idleFor = System.currentTimeMillis() - pooled.lastUsed;
+            if (idleFor < validateAfterIdleMillis || pooled.isValid(validationTimeoutSeconds)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        created.increment();
+        return new PooledConnection(physical);
+    }
+
+    private void recordWait(long nanos) {
+        borrows.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void release(Lease lease) {
+        leased.remove(lease);
+        PooledConnection pooled = lease.pooled;
+        try {
+            if (closed || pooled.broken || !pooled.reset()) {
+                discard(pooled);
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.push(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        discarded.increment();
+        pooled.closePhysical();
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Evict connections idle for too long, keeping at least minSize open
+            List<PooledConnection> expired = new ArrayList<>();
+            synchronized (idle) {
+                Iterator<PooledConnection> it = idle.descendingIterator();
+                while (it.hasNext() && idle.size() + leased.size() > minSize) {
+                    PooledConnection pooled = it.next();
+                    if (now - pooled.lastUsed > idleTimeoutMillis) {
+                        it.remove();
+                        expired.add(pooled);
+                    }
+                }
+            }
+            expired.forEach(this::discard);
+
+            // Top back up to the minimum
+            while (!closed && idleCount() + leased.size() < minSize) {
+                PooledConnection pooled = open();
+                synchronized (idle) {
+                    idle.addLast(pooled);
+                }
+            }
+
+            // Report connections held longer than the leak threshold, once each
+            if (leakThresholdMillis > 0) {
+                for (Lease lease : leased) {
+                    if (now - lease.borrowedAt > leakThresholdMillis && lease.leakReported.compareAndSet(false, true)) {
+                        leaks.increment();
+                        LOG.log(Level.WARNING, "Connection held for " + (now - lease.borrowedAt)
+                                + " ms without being closed", lease.borrowSite);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Connection pool housekeeping failed", e);
+        }
+    }
+
+    private int idleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public Stats stats() {
+        long borrowCount = borrows.sum();
+        double avgWait = borrowCount == 0 ? 0 : waitNanos.sum() / 1e6 / borrowCount;
+        return new Stats(leased.size(), idleCount(), permits.getQueueLength(), borrowCount, avgWait,
+                maxWaitNanos.get() / 1e6, created.sum(), discarded.sum(), leaks.sum(),
+                statementHits.sum(), statementMisses.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            idle.forEach(PooledConnection::closePhysical);
+            idle.clear();
+        }
+    }
+
+    private static boolean isConnectionError(Throwable t) {
+        // SQLState class 08 is a connection exception
+        return t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Asks the database to stop the statement the thread is executing, if any. The thread
+     * gets an SQLException from it. Returns whether there was a statement to cancel.
+     */
+    public boolean cancelStatement(Thread thread) {
+        Statement statement = executing.get(thread);
+        if (statement == null) return false;
+        try {
+            statement.cancel();
+            return true;
+        } catch (SQLException e) {
+            LOG.log(Level.FINE, "Cannot cancel statement", e);
+            return false;
+        }
+    }
+
+    // Invokes a statement method, timing it if it's one of the execute methods
+    private Object execute(Object statement, Method method, Object[] args, String preparedSql) throws Throwable {
+        if (!method.getName().startsWith("execute")) {
+            return invoke(statement, method, args);
+        }
+        Thread thread = Thread.currentThread();
+        executing.put(thread, (Statement) statement);
+        try {
+            StatementListener listener = statementListener;
+            if (listener == null) {
+                return invoke(statement, method, args);
+            }
+
+            String sql = preparedSql != null ? preparedSql
+                    : args != null && args.length > 0 && args[0] instanceof String text ? text : "(batch)";
+            long start = System.nanoTime();
+            try {
+                Object result = invoke(statement, method, args);
+                listener.statementExecuted(sql, System.nanoTime() - start, updatedRows(result), null);
+                return result;
+            } catch (SQLException e) {
+                listener.statementExecuted(sql, System.nanoTime() - start, -1, e);
+                throw e;
+            }
+        } finally {
+            executing.remove(thread);
+        }
+    }
+
+    private static long updatedRows(Object result) {
+        if (result instanceof Integer count) return count;
+        if (result instanceof Long count) return count;
+        long total = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) total += Math.max(0, count);
+            return total;
+        }
+        if (result instanceof long[] counts) {
+            for (long count : counts) total += Math.max(0, count);
+            return total;
+        }
+        return -1;
+    }
+
+    // Wraps a statement the cache doesn't manage so its executions are still timed
+    private Statement timed(Statement statement, String preparedSql) {
+        Class<?> type = statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> execute(statement, method, args, preparedSql));
+    }
+
+    // A physical connection plus its statement cache
+    private final class PooledConnection {
+        final Connection physical;
+        final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile boolean broken;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        boolean isValid(int timeoutSeconds) {
+            try {
+                return physical.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // Puts the connection back into a clean state; false if it can't be reused
+        boolean reset() {
+            try {
+                if (physical.isClosed()) return false;
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly()) {
+                    physical.setReadOnly(false);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            String key = autoGeneratedKeys + ":" + sql;
+            CachedStatement cached = statements.get(key);
+            if (cached != null && !cached.inUse) {
+                statementHits.increment();
+                cached.inUse = true;
+                return cached.proxy;
+            }
+
+            statementMisses.increment();
+            PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+            if (cached != null || statementCacheSize <= 0) {
+                // Same SQL already open on this connection (or caching is off): hand out an uncached one
+                return (PreparedStatement) timed(statement, sql);
+            }
+
+            try {
+                cached = new CachedStatement(statement, sql, key);
+            } catch (SQLException e) {
+                statement.close();
+                throw e;
+            }
+            cached.inUse = true;
+            statements.put(key, cached);
+            evictStatements();
+            return cached.proxy;
+        }
+
+        private void evictStatements() {
+            Iterator<CachedStatement> it = statements.values().iterator();
+            while (statements.size() > statementCacheSize && it.hasNext()) {
+                CachedStatement eldest = it.next();
+                if (!eldest.inUse) {
+                    it.remove();
+                    eldest.closePhysical();
+                }
+            }
+        }
+
+        void closePhysical() {
+            statements.values().forEach(CachedStatement::closePhysical);
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // Already gone
+            }
+        }
+
+        private final class CachedStatement implements InvocationHandler {
+            final PreparedStatement physicalStatement;
+            final PreparedStatement proxy;
+            volatile boolean inUse;
+
+            final String sql;
+            final String key;
+            // Settings as prepared, put back on close so one borrower's don't reach the next
+            final int fetchSize;
+            final int queryTimeout;
+            final int maxRows;
+
+            CachedStatement(PreparedStatement physicalStatement, String sql, String key) throws SQLException {
+                this.sql = sql;
+                this.key = key;
+                this.physicalStatement = physicalStatement;
+                this.fetchSize = physicalStatement.getFetchSize();
+                this.queryTimeout = physicalStatement.getQueryTimeout();
+                this.maxRows = physicalStatement.getMaxRows();
+                this.proxy = (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class}, this);
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (inUse) {
+                            try {
+                                reset();
+                            } catch (SQLException e) {
+                                // Not reusable in an unknown state
+                                statements.remove(key);
+                                closePhysical();
+                            }
+                            inUse = false;
+                        }
+                        return null;
+                    case "isClosed":
+                        return !inUse;
+                    default:
+                        if (!inUse) throw new SQLException("Statement is closed");
+                        try {
+                            return execute(physicalStatement, method, args, sql);
+                        } catch (SQLException e) {
+                            if (isConnectionError(e)) broken = true;
+                            throw e;
+                        }
+                }
+            }
+
+            private void reset() throws SQLException {
+                physicalStatement.clearParameters();
+                physicalStatement.clearBatch();
+                if (physicalStatement.getFetchSize() != fetchSize) physicalStatement.setFetchSize(fetchSize);
+                if (physicalStatement.getQueryTimeout() != queryTimeout) physicalStatement.setQueryTimeout(queryTimeout);
+                if (physicalStatement.getMaxRows() != maxRows) physicalStatement.setMaxRows(maxRows);
+            }
+
+            void closePhysical() {
+                try {
+                    physicalStatement.close();
+                } catch (SQLException ignored) {
+                    // Connection is going away anyway
+                }
+            }
+        }
+    }
+
+    // One borrow of a pooled connection, handed out as a Connection proxy
+    private final class Lease implements InvocationHandler {
+        final PooledConnection pooled;
+        final Connection proxy;
+        final Throwable borrowSite;
+        final long borrowedAt = System.currentTimeMillis();
+        final AtomicBoolean returned = new AtomicBoolean();
+        final AtomicBoolean leakReported = new AtomicBoolean();
+
+        Lease(PooledConnection pooled, Throwable borrowSite) {
+            this.pooled = pooled;
+            this.borrowSite = borrowSite;
+            this.proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (returned.compareAndSet(false, true)) {
+                    release(this);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return returned.get() || pooled.physical.isClosed();
+            }
+            if (returned.get()) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+
+            try {
+                if (name.equals("prepareStatement") && args.length == 1) {
+                    return pooled.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (name.equals("prepareStatement") && args.length == 2 && args[1] instanceof Integer keys) {
+                    return pooled.prepare((String) args[0], keys);
+                }
+                Object result = ConnectionPool.invoke(pooled.physical, method, args);
+                if (result instanceof CallableStatement) {
+                    return result;
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return timed(statement, (String) args[0]);
+                }
+                if (result instanceof Statement statement) {
+                    return timed(statement, null);
+                }
+                return result;
+            } catch (SQLException e) {
+                if (isConnectionError(e)) pooled.broken = true;
+                throw e;
+            }
+        }
+    }
+}
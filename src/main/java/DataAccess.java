@@ -0,0 +1,207 @@
+import javax.swing.*;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs JDBC work off the Swing event thread (or an HTTP dispatcher thread) and hands
+ * results back on the EDT.
+ */
+public class DataAccess implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    // Work that gets its own connections, e.g. a HotelService call
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws Exception;
+    }
+
+    private static final int MAX_QUEUED_TASKS = 256;
+    private static final int MAX_TRANSACTION_ATTEMPTS = 3;
+
+    private final ConnectionPool pool;
+    private final ExecutorService executor;
+    private final Set<Future<?>> inFlight = ConcurrentHashMap.newKeySet();
+
+    public DataAccess(ConnectionPool pool) {
+        this.pool = pool;
+        this.executor = newExecutor();
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    private static ExecutorService newExecutor() {
+        // Virtual threads when running on JDK 21+, a bounded pool on 17
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+                Thread t = new Thread(r, "db-worker-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            return new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(MAX_QUEUED_TASKS), threadFactory);
+        }
+    }
+
+    /**
+     * Runs the work on the executor with its own pooled connection. Cancelling the
+     * returned future interrupts the worker and cancels the statement it is executing.
+     */
+    public <T> CompletableFuture<T> submit(SqlWork<T> work) {
+        return submit(() -> {
+            try (Connection connection = pool.getConnection()) {
+                return work.run(connection);
+            }
+        });
+    }
+
+    public <T> CompletableFuture<T> submit(Call<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // The thread running the work, only while it runs; guarded by itself
+        Thread[] worker = new Thread[1];
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            synchronized (worker) {
+                worker[0] = Thread.currentThread();
+            }
+            try {
+                result.complete(work.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                synchronized (worker) {
+                    worker[0] = null;
+                }
+            }
+            return null;
+        });
+
+        inFlight.add(result);
+        result.whenComplete((value, error) -> {
+            inFlight.remove(result);
+            if (result.isCancelled()) {
+                task.cancel(true);
+                // An interrupt doesn't reach a query the database is still running
+                synchronized (worker) {
+                    if (worker[0] != null) pool.cancelStatement(worker[0]);
+                }
+            }
+        });
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the work off the EDT and delivers the outcome on the EDT, unless the call was cancelled.
+     */
+    public <T> CompletableFuture<T> load(SqlWork<T> work, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        return deliverOnEdt(submit(work), onSuccess, onError);
+    }
+
+    public <T> CompletableFuture<T> load(Call<T> work, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        return deliverOnEdt(submit(work), onSuccess, onError);
+    }
+
+    // As above for work already submitted, e.g. prefetched before anything was waiting for it
+    public <T> CompletableFuture<T> load(CompletableFuture<T> submitted, Consumer<T> onSuccess,
+                                         Consumer<Throwable> onError) {
+        return deliverOnEdt(submitted, onSuccess, onError);
+    }
+
+    private static <T> CompletableFuture<T> deliverOnEdt(CompletableFuture<T> future, Consumer<T> onSuccess,
+                                                         Consumer<Throwable> onError) {
+        future.whenComplete((value, error) -> SwingUtilities.invokeLater(() -> {
+            if (future.isCancelled()) return;
+            if (error == null) {
+                onSuccess.accept(value);
+            } else {
+                onError.accept(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        }));
+        return future;
+    }
+
+    /**
+     * Runs the work as one transaction, rolling back on failure and retrying when the
+     * database picked it as a deadlock or lock-wait victim.
+     */
+    public static <T> T inTransaction(Connection conn, SqlWork<T> work) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    T result = work.run(conn);
+                    conn.commit();
+                    return result;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    if (attempt >= MAX_TRANSACTION_ATTEMPTS || !isRetryable(e)) throw e;
+                    sleepBeforeRetry(attempt);
+                } catch (RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    static boolean isRetryable(SQLException e) {
+        return e instanceof SQLTransactionRollbackException || SqlDialect.isRetryable(e);
+    }
+
+    private static void sleepBeforeRetry(int attempt) throws SQLException {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(10, 50) * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying transaction", e);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    // Cancels every outstanding call, e.g. when the user logs out
+    public void cancelAll() {
+        for (Future<?> future : inFlight) {
+            future.cancel(true);
+        }
+    }
+
+    // Stops running work but leaves the pool open for whoever else shares it
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+        pool.close();
+    }
+}
@@ -0,0 +1,531 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streams bookings or payments for a date range from a forward-only, read-only cursor
+ * straight into a file through one reused direct buffer, so heap use stays the same
+ * whether the range holds a hundred rows or tens of millions.
+ *
+ * CSV is written for spreadsheets and accounting tools. The columnar format is for
+ * loading elsewhere: a header naming each column and its type, then row groups of up to
+ * {@link #ROW_GROUP_SIZE} rows, each holding one column after another as little-endian
+ * values. Dates are epoch days, timestamps are wall-clock milliseconds since 1970-01-01,
+ * and strings are dictionary-encoded per row group as unsigned 1, 2 or 4 byte codes, 0
+ * meaning null. A row group of 0 rows ends the file, followed by the total row count.
+ */
+public class DataExporter {
+
+    public enum Type {
+        INT, DOUBLE, DATE, TIMESTAMP, STRING
+    }
+
+    public record Column(String name, Type type) {
+    }
+
+    public enum Kind {
+        BOOKINGS("SELECT b.id, u.username, u.fullname, r.room_number, r.type, b.check_in_date, b.check_out_date, " +
+                "b.total_price, b.status, b.created_at FROM bookings%1$s b " +
+                "JOIN users u ON u.id = b.guest_id JOIN rooms r ON r.id = b.room_id " +
+                "WHERE b.check_in_date >= ? AND b.check_in_date < ?",
+                new Column("booking_id", Type.INT), new Column("guest_username", Type.STRING),
+                new Column("guest_name", Type.STRING), new Column("room_number", Type.STRING),
+                new Column("room_type", Type.STRING), new Column("check_in_date", Type.DATE),
+                new Column("check_out_date", Type.DATE), new Column("total_price", Type.DOUBLE),
+                new Column("status", Type.STRING), new Column("created_at", Type.TIMESTAMP)),
+        PAYMENTS("SELECT p.id, p.booking_id, p.amount, p.payment_date, p.method, r.type FROM payments%1$s p " +
+                "JOIN bookings%1$s b ON b.id = p.booking_id JOIN rooms r ON r.id = b.room_id " +
+                "WHERE p.payment_date >= ? AND p.payment_date < ?",
+                new Column("payment_id", Type.INT), new Column("booking_id", Type.INT),
+                new Column("amount", Type.DOUBLE), new Column("payment_date", Type.TIMESTAMP),
+                new Column("method", Type.STRING), new Column("room_type", Type.STRING));
+
+        // %1$s is the table suffix: empty for the hot tables, _archive for history
+        private final String sql;
+        private final Column[] columns;
+
+        Kind(String sql, Column... columns) {
+            this.sql = sql;
+            this.columns = columns;
+        }
+
+        public Column[] columns() {
+            return columns.clone();
+        }
+    }
+
+    public enum Format {
+        CSV("csv"), COLUMNAR("hcol");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public record Progress(long rows, long bytes, double rowsPerSecond, double megabytesPerSecond, boolean done) {
+        @Override
+        public String toString() {
+            return String.format("%,d rows, %,.1f MB (%,.0f rows/s, %,.1f MB/s)",
+                    rows, bytes / 1e6, rowsPerSecond, megabytesPerSecond);
+        }
+    }
+
+    static final byte[] MAGIC = {'H', 'C', 'O', 'L'};
+    static final int VERSION = 1;
+    static final int ROW_GROUP_SIZE = 65_536;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int FETCH_SIZE = 10_000;
+    private static final int PROGRESS_EVERY = 100_000;
+
+    private final Kind kind;
+    private final Format format;
+    private final boolean includeHistory;
+
+    /**
+     * @param includeHistory also export archived rows, after the hot ones
+     */
+    public DataExporter(Kind kind, Format format, boolean includeHistory) {
+        this.kind = kind;
+        this.format = format;
+        this.includeHistory = includeHistory;
+    }
+
+    /**
+     * Exports rows dated from..to inclusive: bookings by check-in date, payments by
+     * payment date. The file is written under a temporary name and moved into place
+     * once complete, so a cancelled or failed export leaves nothing behind. Stops with
+     * an InterruptedIOException if the thread is interrupted.
+     */
+    public Progress export(Connection conn, LocalDate from, LocalDate to, Path file, Consumer<Progress> onProgress)
+            throws SQLException, IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        Progress result;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            result = export(conn, from, to, channel, onProgress);
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        try {
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        onProgress.accept(result);
+        return result;
+    }
+
+    // Writes to any channel; the caller owns it and reports the final progress
+    Progress export(Connection conn, LocalDate from, LocalDate to, WritableByteChannel channel,
+                    Consumer<Progress> onProgress) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        Sink sink = new Sink(channel);
+        RowWriter writer = format == Format.CSV ? new CsvWriter(kind.columns) : new ColumnarWriter(kind.columns);
+        writer.begin(sink);
+
+        conn.setReadOnly(true);
+        for (String suffix : includeHistory ? new String[]{"", "_archive"} : new String[]{""}) {
+            try (PreparedStatement pstmt = conn.prepareStatement(String.format(kind.sql, suffix),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(SqlDialect.of(conn).streamingFetchSize(FETCH_SIZE));
+                if (kind == Kind.PAYMENTS) {
+                    pstmt.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+                    pstmt.setTimestamp(2, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+                } else {
+                    pstmt.setDate(1, java.sql.Date.valueOf(from));
+                    pstmt.setDate(2, java.sql.Date.valueOf(to.plusDays(1)));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        writer.row(rs, sink);
+                        if (++rows % PROGRESS_EVERY == 0) {
+                            onProgress.accept(progress(rows, sink.bytes(), start, false));
+                            if (Thread.currentThread().isInterrupted()) {
+                                // Closing a streaming MySQL result set would otherwise read the rest of it
+                                pstmt.cancel();
+                                throw new InterruptedIOException("Export cancelled after " + rows + " rows");
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        writer.end(sink, rows);
+        sink.flush();
+        return progress(rows, sink.bytes(), start, true);
+    }
+
+    private static Progress progress(long rows, long bytes, long start, boolean done) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        return new Progress(rows, bytes, rows / seconds, bytes / 1e6 / seconds, done);
+    }
+
+    private interface RowWriter {
+        void begin(Sink sink) throws IOException;
+
+        void row(ResultSet rs, Sink sink) throws SQLException, IOException;
+
+        void end(Sink sink, long rows) throws IOException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Column[] columns;
+
+        CsvWriter(Column[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public void begin(Sink sink) throws IOException {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) sink.put((byte) ',');
+                sink.putString(columns[i].name());
+            }
+            sink.put((byte) '\n');
+        }
+
+        @Override
+        public void row(ResultSet rs, Sink sink) throws SQLException, IOException {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) sink.put((byte) ',');
+                int column = i + 1;
+                switch (columns[i].type()) {
+                    case INT -> sink.putDigits(rs.getInt(column));
+                    // Amounts are stored rounded to cents; written without exponents for spreadsheets
+                    case DOUBLE -> sink.putCents(Math.round(rs.getDouble(column) * 100));
+                    case DATE -> {
+                        LocalDate date = rs.getObject(column, LocalDate.class);
+                        if (date != null) sink.putDate(date);
+                    }
+                    case TIMESTAMP -> {
+                        LocalDateTime time = rs.getObject(column, LocalDateTime.class);
+                        if (time != null) {
+                            sink.putDate(time.toLocalDate());
+                            sink.put((byte) ' ');
+                            sink.putPadded(time.getHour(), 2);
+                            sink.put((byte) ':');
+                            sink.putPadded(time.getMinute(), 2);
+                            sink.put((byte) ':');
+                            sink.putPadded(time.getSecond(), 2);
+                        }
+                    }
+                    case STRING -> {
+                        String value = rs.getString(column);
+                        if (value != null) sink.putCsvField(value);
+                    }
+                }
+            }
+            sink.put((byte) '\n');
+        }
+
+        @Override
+        public void end(Sink sink, long rows) {
+        }
+    }
+
+    private static final class ColumnarWriter implements RowWriter {
+        private final Column[] columns;
+        private final ColumnBuffer[] buffers;
+        private int size;
+
+        ColumnarWriter(Column[] columns) {
+            this.columns = columns;
+            this.buffers = new ColumnBuffer[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                buffers[i] = new ColumnBuffer(columns[i].type());
+            }
+        }
+
+        @Override
+        public void begin(Sink sink) throws IOException {
+            sink.put(MAGIC);
+            sink.putInt(VERSION);
+            sink.putInt(columns.length);
+            for (Column column : columns) {
+                sink.put((byte) column.type().ordinal());
+                byte[] name = column.name().getBytes(StandardCharsets.UTF_8);
+                sink.putShort((short) name.length);
+                sink.put(name);
+            }
+        }
+
+        @Override
+        public void row(ResultSet rs, Sink sink) throws SQLException, IOException {
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i].read(rs, i + 1, size);
+            }
+            if (++size == ROW_GROUP_SIZE) {
+                writeGroup(sink);
+            }
+        }
+
+        @Override
+        public void end(Sink sink, long rows) throws IOException {
+            if (size > 0) writeGroup(sink);
+            sink.putInt(0);
+            sink.putLong(rows);
+        }
+
+        private void writeGroup(Sink sink) throws IOException {
+            sink.putInt(size);
+            for (ColumnBuffer buffer : buffers) {
+                buffer.write(sink, size);
+            }
+            size = 0;
+        }
+    }
+
+    // One column of the current row group; the arrays are reused from group to group
+    private static final class ColumnBuffer {
+        private final Type type;
+        private int[] ints;
+        private long[] longs;
+        private double[] doubles;
+        private Map<String, Integer> codes;
+        private List<String> dictionary;
+
+        ColumnBuffer(Type type) {
+            this.type = type;
+            switch (type) {
+                case INT, DATE -> ints = new int[ROW_GROUP_SIZE];
+                case TIMESTAMP -> longs = new long[ROW_GROUP_SIZE];
+                case DOUBLE -> doubles = new double[ROW_GROUP_SIZE];
+                case STRING -> {
+                    ints = new int[ROW_GROUP_SIZE];
+                    codes = new HashMap<>();
+                    dictionary = new ArrayList<>();
+                }
+            }
+        }
+
+        void read(ResultSet rs, int column, int row) throws SQLException {
+            switch (type) {
+                case INT -> ints[row] = rs.getInt(column);
+                case DOUBLE -> doubles[row] = rs.getDouble(column);
+                case DATE -> {
+                    LocalDate date = rs.getObject(column, LocalDate.class);
+                    ints[row] = date == null ? Integer.MIN_VALUE : (int) date.toEpochDay();
+                }
+                case TIMESTAMP -> {
+                    LocalDateTime time = rs.getObject(column, LocalDateTime.class);
+                    longs[row] = time == null ? Long.MIN_VALUE
+                            : time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+                }
+                case STRING -> {
+                    String value = rs.getString(column);
+                    ints[row] = value == null ? 0 : codes.computeIfAbsent(value, v -> {
+                        dictionary.add(v);
+                        return dictionary.size();
+                    });
+                }
+            }
+        }
+
+        void write(Sink sink, int rows) throws IOException {
+            switch (type) {
+                case INT, DATE -> {
+                    for (int i = 0; i < rows; i++) sink.putInt(ints[i]);
+                }
+                case TIMESTAMP -> {
+                    for (int i = 0; i < rows; i++) sink.putLong(longs[i]);
+                }
+                case DOUBLE -> {
+                    for (int i = 0; i < rows; i++) sink.putDouble(doubles[i]);
+                }
+                case STRING -> {
+                    sink.putInt(dictionary.size());
+                    for (String value : dictionary) {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        sink.putShort((short) bytes.length);
+                        sink.put(bytes);
+                    }
+                    // Narrowest code that fits the dictionary, usually one byte
+                    int width = dictionary.size() < 0xFF ? 1 : dictionary.size() < 0xFFFF ? 2 : 4;
+                    sink.put((byte) width);
+                    for (int i = 0; i < rows; i++) {
+                        switch (width) {
+                            case 1 -> sink.put((byte) ints[i]);
+                            case 2 -> sink.putShort((short) ints[i]);
+                            default -> sink.putInt(ints[i]);
+                        }
+                    }
+                    codes.clear();
+                    dictionary.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Little-endian output through a single direct buffer that is drained to the channel
+     * whenever it fills.
+     */
+    private static final class Sink {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long flushed;
+
+        Sink(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        long bytes() {
+            return flushed + buffer.position();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(2);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void putDigits(long value) throws IOException {
+            ensure(20);
+            if (value < 0) {
+                buffer.put((byte) '-');
+                value = -value;
+            }
+            int first = buffer.position();
+            do {
+                buffer.put((byte) ('0' + value % 10));
+                value /= 10;
+            } while (value > 0);
+            // Digits went in backwards
+            for (int i = first, j = buffer.position() - 1; i < j; i++, j--) {
+                byte swap = buffer.get(i);
+                buffer.put(i, buffer.get(j));
+                buffer.put(j, swap);
+            }
+        }
+
+        void putPadded(int value, int width) throws IOException {
+            ensure(width);
+            for (int divisor = (int) Math.pow(10, width - 1); divisor > 0; divisor /= 10) {
+                buffer.put((byte) ('0' + value / divisor % 10));
+            }
+        }
+
+        void putCents(long cents) throws IOException {
+            if (cents < 0) {
+                put((byte) '-');
+                cents = -cents;
+            }
+            putDigits(cents / 100);
+            put((byte) '.');
+            putPadded((int) (cents % 100), 2);
+        }
+
+        void putDate(LocalDate date) throws IOException {
+            putPadded(date.getYear(), 4);
+            put((byte) '-');
+            putPadded(date.getMonthValue(), 2);
+            put((byte) '-');
+            putPadded(date.getDayOfMonth(), 2);
+        }
+
+        // ASCII is copied byte for byte; anything else goes through the UTF-8 encoder
+        void putString(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) >= 0x80) {
+                    put(value.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+            ensure(value.length());
+            if (value.length() > buffer.remaining()) {
+                put(value.getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        }
+
+        void putCsvField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                putString(value);
+                return;
+            }
+            put((byte) '"');
+            putString(value.replace("\"", "\"\""));
+            put((byte) '"');
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Where the database is and how to talk to it. Each setting is taken from a system
+ * property, then the matching environment variable, then hotel.properties in the
+ * working directory, then the built-in default:
+ * <pre>
+ * hotel.db.url       HOTEL_DB_URL       JDBC URL, or "mem" / "file:&lt;path&gt;" for embedded H2
+ * hotel.db.user      HOTEL_DB_USER
+ * hotel.db.password  HOTEL_DB_PASSWORD
+ * hotel.db.dialect   HOTEL_DB_DIALECT   mysql or h2; normally worked out from the URL
+ * </pre>
+ */
+public record DatabaseConfig(String url, String username, String password, SqlDialect dialect) {
+
+    // Lets Connector/J collapse JDBC batches into multi-row inserts
+    public static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/hotel_db?rewriteBatchedStatements=true";
+    public static final String DEFAULT_USERNAME = "root";
+    public static final String DEFAULT_PASSWORD = "root"; // Replace with your MySQL password
+
+    private static final String PROPERTIES_FILE = "hotel.properties";
+
+    public DatabaseConfig {
+        url = dialect.prepareUrl(url);
+    }
+
+    public static DatabaseConfig load() throws IOException {
+        Properties file = new Properties();
+        Path path = Path.of(PROPERTIES_FILE);
+        if (Files.isRegularFile(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                file.load(in);
+            }
+        }
+
+        String url = expandUrl(setting(file, "hotel.db.url", DEFAULT_URL));
+        String dialect = setting(file, "hotel.db.dialect", null);
+        boolean embedded = url.startsWith("jdbc:h2:");
+        return new DatabaseConfig(url,
+                setting(file, "hotel.db.user", embedded ? "sa" : DEFAULT_USERNAME),
+                setting(file, "hotel.db.password", embedded ? "" : DEFAULT_PASSWORD),
+                dialect != null ? SqlDialect.fromName(dialect) : SqlDialect.fromUrl(url));
+    }
+
+    // A private in-memory H2 database, gone when the process exits
+    public static DatabaseConfig inMemory(String name) {
+        return new DatabaseConfig("jdbc:h2:mem:" + name, "sa", "", SqlDialect.H2);
+    }
+
+    // An H2 database kept in the given file, created on first use
+    public static DatabaseConfig file(Path path) {
+        return new DatabaseConfig("jdbc:h2:file:" + path.toAbsolutePath(), "sa", "", SqlDialect.H2);
+    }
+
+    private static String expandUrl(String url) {
+        if (url.equalsIgnoreCase("mem")) return inMemory("hotel_db").url();
+        if (url.startsWith("file:")) return file(Path.of(url.substring("file:".length()))).url();
+        return url;
+    }
+
+    private static String setting(Properties file, String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        if (value == null) value = file.getProperty(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean isEmbedded() {
+        return dialect == SqlDialect.H2;
+    }
+
+    @Override
+    public String toString() {
+        // Never log the password
+        return "DatabaseConfig[url=" + url + ", user=" + username + ", dialect=" + dialect + "]";
+    }
+}
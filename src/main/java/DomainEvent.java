@@ -0,0 +1,53 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Something that changed in the hotel, published by {@link HotelService} after the
+ * change has committed.
+ */
+public sealed interface DomainEvent {
+
+    record RoomAdded(int roomId, String roomNumber, String type, double price, String status)
+            implements DomainEvent {
+    }
+
+    record RoomStatusChanged(int roomId, String roomNumber, String previousStatus, String status)
+            implements DomainEvent {
+    }
+
+    record BookingCreated(int bookingId, String guestUsername, String roomNumber, LocalDate checkIn,
+                          LocalDate checkOut, double totalPrice, String status, LocalDateTime createdAt)
+            implements DomainEvent {
+    }
+
+    record BookingStatusChanged(int bookingId, String status, LocalDateTime changedAt) implements DomainEvent {
+    }
+
+    record PaymentRecorded(int bookingId, double amount, String method, String roomType, LocalDateTime paidAt)
+            implements DomainEvent {
+    }
+
+    record UserAdded(int userId, String username, String fullName, String role) implements DomainEvent {
+    }
+
+    // Rows read back by the ChangeFeed, which may include this client's own writes
+    record RoomSynced(ReferenceData.RoomInfo room) implements DomainEvent {
+    }
+
+    record BookingSynced(int roomId, String guestUsername, HotelService.BookingRow booking) implements DomainEvent {
+    }
+
+    record PaymentSynced(int paymentId, int bookingId) implements DomainEvent {
+    }
+
+    record UserSynced(HotelService.UserAccount user) implements DomainEvent {
+    }
+
+    // Closed bookings moved out of the hot tables; lists that leave out history lose them
+    record BookingsArchived(int bookings, int payments) implements DomainEvent {
+    }
+
+    // Too many rows changed to describe one by one; listeners should reload
+    record DataImported(BulkImporter.Kind kind) implements DomainEvent {
+    }
+}
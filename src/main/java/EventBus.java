@@ -0,0 +1,115 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process publish/subscribe for {@link DomainEvent}s. Publishing calls subscribers on
+ * the publishing thread; Swing code should use {@link #subscribeOnEdt}, which batches
+ * events per frame.
+ */
+public class EventBus {
+    private static final Logger LOG = Logger.getLogger(EventBus.class.getName());
+
+    // About one screen refresh
+    private static final int FRAME_MILLIS = 16;
+
+    private final List<Consumer<DomainEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns an action that unsubscribes.
+     */
+    public Runnable subscribe(Consumer<DomainEvent> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    /**
+     * Delivers events on the EDT, at most one batch per frame, so a burst of writes
+     * becomes one round of model updates and one repaint.
+     */
+    public Runnable subscribeOnEdt(Consumer<List<DomainEvent>> subscriber) {
+        return subscribe(new EdtBatcher(subscriber));
+    }
+
+    public void publish(DomainEvent event) {
+        for (Consumer<DomainEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                // One broken listener must not stop the others or fail the write that published
+                LOG.log(Level.WARNING, "Event subscriber failed on " + event, e);
+            }
+        }
+    }
+
+    private static final class EdtBatcher implements Consumer<DomainEvent> {
+        private final Consumer<List<DomainEvent>> subscriber;
+        private final ConcurrentLinkedQueue<DomainEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Timer timer;
+
+        EdtBatcher(Consumer<List<DomainEvent>> subscriber) {
+            this.subscriber = subscriber;
+            this.timer = new Timer(FRAME_MILLIS, e -> flush());
+            timer.setRepeats(false);
+        }
+
+        @Override
+        public void accept(DomainEvent event) {
+            pending.add(event);
+            if (scheduled.compareAndSet(false, true)) {
+                timer.restart();
+            }
+        }
+
+        private void flush() {
+            scheduled.set(false);
+            List<DomainEvent> batch = new ArrayList<>();
+            DomainEvent event;
+            while ((event = pending.poll()) != null) {
+                batch.add(event);
+            }
+            if (!batch.isEmpty()) {
+                subscriber.accept(coalesce(batch));
+            }
+        }
+    }
+
+    /**
+     * Folds repeated status changes of one room into a single change from its first
+     * previous status to its last status. Everything else is kept in order.
+     */
+    static List<DomainEvent> coalesce(List<DomainEvent> batch) {
+        Map<Integer, DomainEvent.RoomStatusChanged> rooms = new LinkedHashMap<>();
+        for (DomainEvent event : batch) {
+            if (event instanceof DomainEvent.RoomStatusChanged change) {
+                rooms.merge(change.roomId(), change, (first, last) ->
+                        new DomainEvent.RoomStatusChanged(first.roomId(), first.roomNumber(),
+                                first.previousStatus(), last.status()));
+            }
+        }
+        if (rooms.isEmpty()) return batch;
+
+        List<DomainEvent> coalesced = new ArrayList<>(batch.size());
+        for (DomainEvent event : batch) {
+            if (event instanceof DomainEvent.RoomStatusChanged change) {
+                DomainEvent.RoomStatusChanged merged = rooms.remove(change.roomId());
+                // The first event for a room stands in for all of them; later ones are dropped
+                if (merged != null && !merged.previousStatus().equals(merged.status())) {
+                    coalesced.add(merged);
+                }
+            } else {
+                coalesced.add(event);
+            }
+        }
+        return coalesced;
+    }
+}
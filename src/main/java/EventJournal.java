@@ -0,0 +1,534 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of booking and payment events, kept in memory-mapped segment files
+ * of {@link #SEGMENT_BYTES} each in one directory.
+ *
+ * append() copies the event into the mapped segment and returns. From then on it is in
+ * the OS page cache and survives the process dying. A flusher thread forces dirty pages
+ * to disk in the background, so one fsync covers every event appended while the previous
+ * one ran (group commit) and writers never wait for the disk. Code that must know an
+ * event reached the disk can wait for it with awaitDurable().
+ *
+ * A record is an int payload length, an int CRC32 of the sequence and payload, a long
+ * sequence number and the payload. A zero length marks the end of what was written; a
+ * record that fails its checksum is a write torn by a crash and ends the journal too.
+ */
+public class EventJournal implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(EventJournal.class.getName());
+
+    public enum Type {
+        BOOKING_CREATED, STATUS_CHANGED, PAYMENT_RECORDED
+    }
+
+    /**
+     * @param status the booking's status after the event
+     * @param detail room number for a new booking, payment method for a payment
+     */
+    public record Entry(long sequence, Type type, LocalDateTime occurredAt, int bookingId, String actor,
+                        String status, double amount, String detail) {
+    }
+
+    static final int SEGMENT_BYTES = 16 << 20;
+    private static final int HEADER_BYTES = 16;
+    private static final int MAX_PAYLOAD_BYTES = 1024;
+    private static final String SUFFIX = ".seg";
+    private static final String SPARE = "next.seg.tmp";
+
+    private final Path dir;
+    private final String source;
+    private final FileChannel lockChannel;
+    private final FileLock dirLock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dirty = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    // Encoding space and checksum, used under the lock
+    private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final Thread flusher;
+    // Filled segments whose tail the flusher hasn't forced yet
+    private final List<Range> retired = new ArrayList<>();
+
+    private MappedByteBuffer segment;
+    // Next segment, allocated and paged in ahead of time by the flusher
+    private MappedByteBuffer spare;
+    private volatile long segmentBase;
+    private int flushedTo;
+    private long nextSequence;
+    private volatile long lastSequence;
+    private volatile long durableSequence;
+    private boolean closed;
+
+    private EventJournal(Path dir, FileChannel lockChannel, FileLock dirLock) throws IOException {
+        this.dir = dir;
+        this.lockChannel = lockChannel;
+        this.dirLock = dirLock;
+        this.source = source(dir);
+
+        Files.deleteIfExists(dir.resolve(SPARE));
+        List<Long> bases = segmentBases(dir);
+        if (bases.isEmpty()) {
+            openSegment(1);
+            nextSequence = 1;
+        } else {
+            recover(bases.get(bases.size() - 1));
+        }
+        lastSequence = nextSequence - 1;
+        durableSequence = lastSequence;
+
+        flusher = new Thread(this::flushLoop, "journal-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Opens the journal in the directory, creating it on first use. Only one process can
+     * have a directory open at a time.
+     */
+    public static EventJournal open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        FileChannel lockChannel = FileChannel.open(dir.resolve("journal.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock dirLock = lockChannel.tryLock();
+            if (dirLock == null) throw new IOException("Journal " + dir + " is in use by another process");
+            return new EventJournal(dir, lockChannel, dirLock);
+        } catch (OverlappingFileLockException e) {
+            lockChannel.close();
+            throw new IOException("Journal " + dir + " is already open", e);
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    // Names this journal in the audit table, so several clients' journals don't collide
+    private static String source(Path dir) throws IOException {
+        Path idFile = dir.resolve("journal.id");
+        if (Files.exists(idFile)) return Files.readString(idFile, StandardCharsets.UTF_8).trim();
+        String id = UUID.randomUUID().toString();
+        Files.writeString(idFile, id, StandardCharsets.UTF_8);
+        return id;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    public long durableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Appends the event and returns its sequence number, without waiting for the disk.
+     */
+    public long append(Type type, int bookingId, String actor, String status, double amount, String detail)
+            throws IOException {
+        lock.lock();
+        try {
+            if (closed) throw new IOException("Journal is closed");
+            payload.clear();
+            try {
+                payload.put((byte) type.ordinal());
+                payload.putLong(System.currentTimeMillis());
+                payload.putInt(bookingId);
+                payload.putDouble(amount);
+                putString(actor);
+                putString(status);
+                putString(detail);
+            } catch (BufferOverflowException e) {
+                throw new IllegalArgumentException("Journal entry for booking " + bookingId + " is too large");
+            }
+            int length = payload.position();
+            if (segment.capacity() - segment.position() < HEADER_BYTES + length + 4) {
+                roll();
+            }
+
+            long sequence = nextSequence++;
+            int at = segment.position();
+            segment.putInt(at + 4, checksum(crc, sequence, payload.array(), length));
+            segment.putLong(at + 8, sequence);
+            segment.put(at + HEADER_BYTES, payload.array(), 0, length);
+            segment.putInt(at, length);
+            segment.position(at + HEADER_BYTES + length);
+
+            lastSequence = sequence;
+            dirty.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            payload.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        payload.putShort((short) bytes.length);
+        payload.put(bytes);
+    }
+
+    private static int checksum(CRC32 crc, long sequence, byte[] bytes, int length) {
+        crc.reset();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Waits until the event with this sequence number has been forced to disk. Returns
+     * false if that takes longer than the timeout.
+     */
+    public boolean awaitDurable(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (remaining <= 0) return false;
+                remaining = flushed.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Range(MappedByteBuffer segment, int from, int to) {
+        void force() {
+            segment.force(from, to - from);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<Range> ranges;
+            MappedByteBuffer target;
+            int to;
+            long upTo;
+            lock.lock();
+            try {
+                while (!closed && lastSequence == durableSequence) {
+                    dirty.awaitUninterruptibly();
+                }
+                if (closed && lastSequence == durableSequence) return;
+                ranges = new ArrayList<>(retired);
+                retired.clear();
+                target = segment;
+                to = segment.position();
+                ranges.add(new Range(target, flushedTo, to));
+                upTo = lastSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            if (spare == null && to > SEGMENT_BYTES / 2) {
+                prepareSpare();
+            }
+
+            // Everything appended while this runs goes into the next force
+            try {
+                for (Range range : ranges) {
+                    range.force();
+                }
+            } catch (UncheckedIOException e) {
+                lock.lock();
+                try {
+                    retired.addAll(0, ranges.subList(0, ranges.size() - 1));
+                } finally {
+                    lock.unlock();
+                }
+                LOG.log(Level.WARNING, "Forcing journal to disk failed; retrying", e);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+
+            lock.lock();
+            try {
+                // After a roll in the meantime, the rest of the old segment is in retired
+                if (target == segment) flushedTo = to;
+                if (upTo > durableSequence) durableSequence = upTo;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // The flusher forces what's left of the old segment, so appends don't wait for it here
+    private void roll() throws IOException {
+        retired.add(new Range(segment, flushedTo, segment.position()));
+        openSegment(nextSequence);
+    }
+
+    private void openSegment(long base) throws IOException {
+        Path file = dir.resolve(segmentName(base));
+        if (spare != null) {
+            // Only a rename: the blocks are already allocated and the pages mapped
+            Files.move(dir.resolve(SPARE), file);
+            segment = spare;
+            spare = null;
+        } else {
+            segment = allocate(file);
+        }
+        segmentBase = base;
+        flushedTo = 0;
+    }
+
+    private void prepareSpare() {
+        try {
+            MappedByteBuffer prepared = allocate(dir.resolve(SPARE));
+            lock.lock();
+            try {
+                spare = prepared;
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Preparing the next journal segment failed; it will be created on demand", e);
+        }
+    }
+
+    /**
+     * Writes the file out in full and touches every page, so appends never wait on the
+     * file system allocating blocks or on page faults.
+     */
+    private static MappedByteBuffer allocate(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer zeros = ByteBuffer.allocateDirect(1 << 20);
+            for (long at = 0; at < SEGMENT_BYTES; at += zeros.capacity()) {
+                zeros.clear();
+                while (zeros.hasRemaining()) {
+                    channel.write(zeros, at + zeros.position());
+                }
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+            mapped.load();
+            return mapped;
+        }
+    }
+
+    // Finds the end of the last segment, clearing anything torn by a crash
+    private void recover(long base) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve(segmentName(base)),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+        segmentBase = base;
+        long expected = base;
+        int at = 0;
+        while (true) {
+            int length = validLength(segment, at, expected);
+            if (length < 0) break;
+            at += HEADER_BYTES + length;
+            expected++;
+        }
+        if (at + HEADER_BYTES <= segment.capacity() && segment.getInt(at) != 0) {
+            LOG.warning("Discarding a torn journal record after sequence " + (expected - 1));
+            for (int i = at; i < segment.capacity(); i++) {
+                segment.put(i, (byte) 0);
+            }
+            segment.force();
+        }
+        segment.position(at);
+        flushedTo = at;
+        nextSequence = expected;
+    }
+
+    // Payload length of the record at the position, or -1 if there's no complete record there
+    private int validLength(ByteBuffer buffer, int at, long expectedSequence) {
+        if (at + HEADER_BYTES > buffer.capacity()) return -1;
+        int length = buffer.getInt(at);
+        if (length <= 0 || length > MAX_PAYLOAD_BYTES || at + HEADER_BYTES + length > buffer.capacity()) return -1;
+        if (buffer.getLong(at + 8) != expectedSequence) return -1;
+        byte[] bytes = new byte[length];
+        buffer.get(at + HEADER_BYTES, bytes);
+        return checksum(crc, expectedSequence, bytes, length) == buffer.getInt(at + 4) ? length : -1;
+    }
+
+    private static String segmentName(long base) {
+        return String.format("%020d%s", base, SUFFIX);
+    }
+
+    private static List<Long> segmentBases(Path dir) throws IOException {
+        List<Long> bases = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> bases.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+        bases.sort(null);
+        return bases;
+    }
+
+    /**
+     * Reads entries after the given sequence number, in order. Replaying from 0 yields the
+     * journal's whole history, which is how the audit table can be rebuilt.
+     */
+    public Cursor cursor(long afterSequence) throws IOException {
+        long base = 1;
+        for (long candidate : segmentBases(dir)) {
+            if (candidate <= afterSequence + 1) base = candidate;
+        }
+        return new Cursor(afterSequence, base);
+    }
+
+    public final class Cursor {
+        private final CRC32 crc = new CRC32();
+        private long after;
+        private long base;
+        private ByteBuffer buffer;
+        private int position;
+
+        private Cursor(long after, long base) throws IOException {
+            this.after = after;
+            this.base = base;
+            this.buffer = mapForReading(base);
+        }
+
+        /**
+         * Passes up to max entries to the consumer and returns how many it passed; fewer
+         * than max means the reader has caught up with the writer.
+         */
+        public int next(int max, Consumer<Entry> consumer) throws IOException {
+            int delivered = 0;
+            while (delivered < max) {
+                long published = lastSequence;
+                int length = buffer == null ? -1 : recordLength();
+                if (length < 0) {
+                    if (!nextSegment()) return delivered;
+                    continue;
+                }
+                long sequence = buffer.getLong(position + 8);
+                if (sequence > published) return delivered;
+                int at = position;
+                position += HEADER_BYTES + length;
+                if (sequence <= after) continue;
+
+                consumer.accept(decode(sequence, at, length));
+                after = sequence;
+                delivered++;
+            }
+            return delivered;
+        }
+
+        private int recordLength() {
+            if (position + HEADER_BYTES > buffer.capacity()) return -1;
+            int length = buffer.getInt(position);
+            return length <= 0 || position + HEADER_BYTES + length > buffer.capacity() ? -1 : length;
+        }
+
+        // Moves on once the writer has moved on; false while this is still the segment being written
+        private boolean nextSegment() throws IOException {
+            if (base == segmentBase) return false;
+            long next = -1;
+            for (long candidate : segmentBases(dir)) {
+                if (candidate > base) {
+                    next = candidate;
+                    break;
+                }
+            }
+            if (next < 0) return false;
+            base = next;
+            buffer = mapForReading(next);
+            position = 0;
+            return true;
+        }
+
+        private Entry decode(long sequence, int at, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            buffer.get(at + HEADER_BYTES, bytes);
+            if (buffer.getInt(at + 4) != checksum(crc, sequence, bytes, length)) {
+                throw new IOException("Journal record " + sequence + " is corrupt");
+            }
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            Type type = Type.values()[in.get()];
+            LocalDateTime occurredAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(in.getLong()),
+                    ZoneId.systemDefault());
+            int bookingId = in.getInt();
+            double amount = in.getDouble();
+            return new Entry(sequence, type, occurredAt, bookingId, getString(in), getString(in), amount,
+                    getString(in));
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The segment being written is read through its own mapping; older ones get a read-only one
+    private ByteBuffer mapForReading(long base) throws IOException {
+        lock.lock();
+        try {
+            if (base == segmentBase) return segment.duplicate();
+        } finally {
+            lock.unlock();
+        }
+        Path file = dir.resolve(segmentName(base));
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            dirty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.force();
+        dirLock.release();
+        lockChannel.close();
+    }
+}
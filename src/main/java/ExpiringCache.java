@@ -0,0 +1,131 @@
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded LRU cache whose entries also expire after a fixed time to live.
+ */
+public class ExpiringCache<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K key) throws SQLException;
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    // Keys being loaded: {loads in flight, invalidations since the first of them began}
+    private final Map<K, long[]> loading = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(String name, int maxSize, long ttl, TimeUnit unit) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ExpiringCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Cached value, or null if absent or expired
+    public synchronized V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            hits.increment();
+            return entry.value;
+        }
+        if (entry != null) {
+            entries.remove(key);
+            evictions.increment();
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Cached value, loading and caching it on a miss. Null results aren't cached.
+     * The loader runs outside the lock so a slow query doesn't block other lookups; a
+     * value whose key was invalidated while it loaded is returned but not cached, since
+     * it may have been read before the change that invalidated it.
+     */
+    public V get(K key, Loader<K, V> loader) throws SQLException {
+        V value = getIfPresent(key);
+        if (value != null) return value;
+
+        long stamp = beginLoad(key);
+        try {
+            value = loader.load(key);
+        } finally {
+            finishLoad(key, stamp, value);
+        }
+        return value;
+    }
+
+    private synchronized long beginLoad(K key) {
+        long[] load = loading.computeIfAbsent(key, k -> new long[2]);
+        load[0]++;
+        return load[1];
+    }
+
+    private synchronized void finishLoad(K key, long stamp, V value) {
+        long[] load = loading.get(key);
+        boolean current = load[1] == stamp;
+        if (--load[0] == 0) loading.remove(key);
+        if (current && value != null) put(key, value);
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        long[] load = loading.get(key);
+        if (load != null) load[1]++;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        for (long[] load : loading.values()) {
+            load[1]++;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return String.format("%s cache: %d entries, %d/%d hits, %d evictions",
+                name, size(), h, total, evictions.sum());
+    }
+}
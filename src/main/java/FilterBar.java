@@ -0,0 +1,148 @@
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableColumn;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.function.IntPredicate;
+
+/**
+ * A row of filter fields above a grid. Edits are debounced: the grid is told to query
+ * again once the user has stopped typing for {@link #DEBOUNCE_MILLIS}, not on every key.
+ * Fields that don't parse are shown in red and left out of the filter.
+ */
+public class FilterBar extends JPanel {
+    static final int DEBOUNCE_MILLIS = 300;
+
+    private static final Color INVALID = new Color(255, 210, 210);
+    private static final String ANY = "Any";
+
+    // Tells the grid which column its header sorts by; the grid runs the query
+    @FunctionalInterface
+    public interface SortListener {
+        void sortBy(int column, boolean descending);
+    }
+
+    private final Timer debounce;
+
+    public FilterBar() {
+        super(new FlowLayout(FlowLayout.LEFT));
+        debounce = new Timer(DEBOUNCE_MILLIS, null);
+        debounce.setRepeats(false);
+    }
+
+    // Called once the fields have settled after an edit
+    public void onChange(Runnable listener) {
+        debounce.addActionListener(e -> listener.run());
+    }
+
+    public JTextField addText(String label, int columns) {
+        JTextField field = new JTextField(columns);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+        });
+        add(new JLabel(label));
+        add(field);
+        return field;
+    }
+
+    // A drop-down whose first entry, "Any", doesn't filter
+    public JComboBox<String> addChoice(String label, String... values) {
+        JComboBox<String> combo = new JComboBox<>();
+        combo.addItem(ANY);
+        for (String value : values) {
+            combo.addItem(value);
+        }
+        combo.addActionListener(e -> debounce.restart());
+        add(new JLabel(label));
+        add(combo);
+        return combo;
+    }
+
+    // Trimmed text, or null when blank
+    public static String text(JTextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    public static String choice(JComboBox<String> combo) {
+        Object selected = combo.getSelectedItem();
+        return selected == null || ANY.equals(selected) ? null : selected.toString();
+    }
+
+    // yyyy-MM-dd, or null when blank or not a date
+    public static LocalDate date(JTextField field) {
+        String text = text(field);
+        LocalDate date = null;
+        try {
+            if (text != null) date = LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            // Left out of the filter; the field shows it
+        }
+        markValid(field, text == null || date != null);
+        return date;
+    }
+
+    public static Double number(JTextField field) {
+        String text = text(field);
+        Double number = null;
+        try {
+            if (text != null) number = Double.valueOf(text);
+        } catch (NumberFormatException e) {
+            // Left out of the filter; the field shows it
+        }
+        markValid(field, text == null || number != null);
+        return number;
+    }
+
+    private static void markValid(JTextField field, boolean valid) {
+        field.setBackground(valid ? UIManager.getColor("TextField.background") : INVALID);
+    }
+
+    /**
+     * Makes clicking a column header sort the grid by that column, and clicking it again
+     * reverse the order. Only columns the predicate accepts can be sorted.
+     */
+    public static void sortOnHeaderClick(JTable table, IntPredicate sortable, SortListener listener) {
+        JTableHeader header = table.getTableHeader();
+        int[] sorted = {-1};
+        boolean[] descending = {false};
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int view = header.columnAtPoint(e.getPoint());
+                if (view < 0) return;
+                int column = table.convertColumnIndexToModel(view);
+                if (!sortable.test(column)) return;
+                descending[0] = column == sorted[0] && !descending[0];
+                sorted[0] = column;
+                // Show the order in the header; the model keeps its own column names
+                for (int i = 0; i < table.getColumnModel().getColumnCount(); i++) {
+                    TableColumn tableColumn = table.getColumnModel().getColumn(i);
+                    String name = table.getModel().getColumnName(tableColumn.getModelIndex());
+                    tableColumn.setHeaderValue(tableColumn.getModelIndex() == column
+                            ? name + (descending[0] ? " \u25BC" : " \u25B2") : name);
+                }
+                header.repaint();
+                listener.sortBy(column, descending[0]);
+            }
+        });
+    }
+}
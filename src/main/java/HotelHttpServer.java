@@ -0,0 +1,654 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JSON over HTTP front end for {@link HotelService}, on the JDK's built-in server.
+ *
+ * Requests beyond the in-flight limit are turned away with 503 straight from the accept
+ * thread instead of queueing, and each service call is cancelled with 504 once it runs
+ * past the request timeout.
+ *
+ * The server listens on loopback only unless hotel.http.address names another interface,
+ * and then only with hotel.api.key set. If the key is set, every request must send it as
+ * X-Api-Key. Calls that act for a user take the user from the token /api/login returns,
+ * sent as "Authorization: Bearer &lt;token&gt;": guests see and book only for themselves,
+ * front desk calls need staff, and audit, archive, rates and reports need admin.
+ *
+ * Endpoints (dates are yyyy-MM-dd):
+ * <pre>
+ * GET  /api/health
+ * POST /api/login                    {"username", "password"}; returns a token
+ * POST /api/logout                   ends the token's session
+ * GET  /api/rooms
+ * GET  /api/availability?checkIn=&amp;checkOut=
+ * GET  /api/quote?room=&amp;checkIn=&amp;checkOut=
+ * POST /api/rates/reload             after editing the rate_* tables (admin)
+ * GET  /api/bookings?guest=&amp;after=&amp;limit=&amp;history=   history=true includes archived bookings; guest=
+ *                                    is staff only, guests always get their own
+ *      &amp;status=&amp;from=&amp;to=&amp;roomType=&amp;name=&amp;minTotal=&amp;maxTotal=   optional filters; from/to bound check-in
+ * POST /api/bookings                 {"room", "checkIn", "checkOut", "paymentMethod"}, plus "username" when
+ *                                    staff book for a guest
+ * POST /api/bookings/block           {"rooms": {type: count}, "checkIn", "checkOut", "paymentMethod"}, likewise
+ * GET  /api/bookings/{id}            the guest's own, or any for staff
+ * POST /api/bookings/{id}/check-in | check-out (staff) | cancel (the guest's own, or any for staff)
+ * GET  /api/reports/occupancy        (admin, as are the other reports)
+ * GET  /api/reports/revenue?from=&amp;to=
+ * GET  /api/reports/activity?from=&amp;to=
+ * POST /api/audit?date=              night audit of the day, yesterday by default (admin)
+ * POST /api/archive?afterDays=       archive closed bookings that ended longer ago than that (admin)
+ * GET  /metrics                      Prometheus text format
+ * </pre>
+ */
+public class HotelHttpServer implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(HotelHttpServer.class.getName());
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 200;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SESSIONS = 10_000;
+    private static final long SESSION_HOURS = 12;
+
+    private final HotelService service;
+    // Its own executor, so the desk UI cancelling its loads never touches an API request
+    private final DataAccess dataAccess;
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final long timeoutMillis;
+    private final String apiKey = System.getProperty("hotel.api.key");
+    // Signed-in users by token
+    private final ExpiringCache<String, ReferenceData.UserInfo> sessions =
+            new ExpiringCache<>("sessions", MAX_SESSIONS, SESSION_HOURS, TimeUnit.HOURS);
+    private final SecureRandom random = new SecureRandom();
+
+    public HotelHttpServer(HotelService service, int port, int maxInFlight, long timeoutMillis) throws IOException {
+        this.service = service;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.timeoutMillis = timeoutMillis;
+        this.workers = newWorkers();
+        this.dataAccess = new DataAccess(service.pool());
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress(apiKey), port), 0);
+        // No executor: the accept thread only does the admission check and hands off
+        server.createContext("/api/", this::admit);
+        server.createContext("/metrics", this::metrics);
+    }
+
+    // Loopback unless configured; anywhere else the API must not be open to whoever can reach it
+    private static InetAddress bindAddress(String apiKey) throws IOException {
+        String configured = System.getProperty("hotel.http.address");
+        InetAddress address = configured == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(configured);
+        if (!address.isLoopbackAddress() && (apiKey == null || apiKey.isEmpty())) {
+            throw new IllegalStateException("Set hotel.api.key before serving the API on " + address);
+        }
+        return address;
+    }
+
+    private static ExecutorService newWorkers() {
+        // The semaphore bounds concurrency, so an unbounded pool is safe here
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+                Thread t = new Thread(r, "http-worker-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+
+    public void start() {
+        server.start();
+        LOG.info("HTTP API listening on " + server.getAddress());
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void admit(HttpExchange exchange) throws IOException {
+        if (!inFlight.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, Map.of("error", "Server busy"));
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    handle(exchange);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            send(exchange, 503, Map.of("error", "Server shutting down"));
+        }
+    }
+
+    // Prometheus scrape endpoint; cheap enough to answer on the accept thread
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!hasApiKey(exchange)) {
+                send(exchange, 401, Map.of("error", "Missing or wrong API key"));
+                return;
+            }
+            byte[] bytes = service.metrics().toPrometheus(service.pool()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) {
+        try (exchange) {
+            try {
+                if (!hasApiKey(exchange)) {
+                    send(exchange, 401, Map.of("error", "Missing or wrong API key"));
+                    return;
+                }
+                route(exchange);
+            } catch (HttpError e) {
+                send(exchange, e.status, Map.of("error", e.getMessage()));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, Map.of("error", e.getMessage()));
+            } catch (IllegalStateException e) {
+                send(exchange, 409, Map.of("error", e.getMessage()));
+            } catch (NoSuchElementException e) {
+                send(exchange, 404, Map.of("error", e.getMessage()));
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Request failed: " + exchange.getRequestURI(), e);
+                send(exchange, 500, Map.of("error", "Internal error"));
+            }
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Client went away", e);
+        }
+    }
+
+    private boolean hasApiKey(HttpExchange exchange) {
+        if (apiKey == null) return true;
+        String sent = exchange.getRequestHeaders().getFirst("X-Api-Key");
+        // Compared in constant time so the key can't be guessed a character at a time
+        return sent != null && MessageDigest.isEqual(apiKey.getBytes(StandardCharsets.UTF_8),
+                sent.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The signed-in user the request's bearer token belongs to
+    private ReferenceData.UserInfo caller(HttpExchange exchange) {
+        ReferenceData.UserInfo user = null;
+        String token = bearerToken(exchange);
+        if (token != null) user = sessions.getIfPresent(token);
+        if (user == null) throw new HttpError(401, "Sign in with /api/login and send the token as a Bearer token");
+        return user;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        return authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring("Bearer ".length()).trim() : null;
+    }
+
+    private static boolean isStaff(ReferenceData.UserInfo user) {
+        return "staff".equals(user.role()) || "admin".equals(user.role());
+    }
+
+    private static void requireStaff(ReferenceData.UserInfo user) {
+        if (!isStaff(user)) throw new HttpError(403, "Staff only");
+    }
+
+    private static void requireAdmin(ReferenceData.UserInfo user) {
+        if (!"admin".equals(user.role())) throw new HttpError(403, "Admin only");
+    }
+
+    // Staff may act for a guest they name; everyone else acts as themselves
+    private static String actingUsername(ReferenceData.UserInfo caller, Map<String, Object> body) {
+        Object named = body.get("username");
+        if (named == null || named.equals(caller.username())) return caller.username();
+        if (!isStaff(caller)) throw new HttpError(403, "Guests can only book for themselves");
+        return string(body, "username");
+    }
+
+    private String newSession(ReferenceData.UserInfo user) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, user);
+        return token;
+    }
+
+    private void route(HttpExchange exchange) throws Exception {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+        Map<String, String> query = query(exchange);
+
+        switch (path[0]) {
+            case "health" -> {
+                requireMethod(method, "GET");
+                ConnectionPool.Stats stats = service.pool().stats();
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("status", "UP");
+                body.put("activeConnections", stats.active());
+                body.put("idleConnections", stats.idle());
+                body.put("waitingForConnection", stats.waiting());
+                body.put("inFlightRequests", inFlightRequests());
+                send(exchange, 200, body);
+            }
+            case "login" -> {
+                requireMethod(method, "POST");
+                Map<String, Object> body = readBody(exchange);
+                String username = string(body, "username");
+                String password = string(body, "password");
+                ReferenceData.UserInfo user = call(() -> service.authenticate(username, password));
+                if (user == null) throw new HttpError(401, "Invalid username or password");
+                send(exchange, 200, Map.of("id", user.id(), "username", user.username(), "role", user.role(),
+                        "token", newSession(user)));
+            }
+            case "logout" -> {
+                requireMethod(method, "POST");
+                String token = bearerToken(exchange);
+                if (token != null) sessions.invalidate(token);
+                send(exchange, 200, Map.of("signedOut", true));
+            }
+            case "rooms" -> {
+                requireMethod(method, "GET");
+                List<Map<String, Object>> rooms = new ArrayList<>();
+                for (ReferenceData.RoomInfo room : call(service::listRooms)) {
+                    rooms.add(Map.of("id", room.id(), "roomNumber", room.roomNumber(), "type", room.type(),
+                            "price", room.price(), "status", room.status()));
+                }
+                send(exchange, 200, rooms);
+            }
+            case "availability" -> {
+                requireMethod(method, "GET");
+                LocalDate checkIn = date(query, "checkIn");
+                LocalDate checkOut = date(query, "checkOut");
+                Map<String, Double> quotes = call(() -> service.freeRoomQuotes(checkIn, checkOut));
+                send(exchange, 200, Map.of("checkIn", checkIn, "checkOut", checkOut,
+                        "rooms", List.copyOf(quotes.keySet()), "totals", quotes));
+            }
+            case "quote" -> {
+                requireMethod(method, "GET");
+                String room = required(query, "room");
+                LocalDate checkIn = date(query, "checkIn");
+                LocalDate checkOut = date(query, "checkOut");
+                double total = call(() -> service.quote(room, checkIn, checkOut));
+                send(exchange, 200, Map.of("room", room, "checkIn", checkIn, "checkOut", checkOut, "total", total));
+            }
+            case "rates" -> {
+                requireMethod(method, "POST");
+                if (path.length != 2 || !path[1].equals("reload")) throw new HttpError(404, "Not found");
+                requireAdmin(caller(exchange));
+                call(() -> {
+                    service.reloadRates();
+                    return null;
+                });
+                send(exchange, 200, Map.of("reloaded", true));
+            }
+            case "audit" -> {
+                requireMethod(method, "POST");
+                requireAdmin(caller(exchange));
+                LocalDate day = query.containsKey("date") ? date(query, "date") : LocalDate.now().minusDays(1);
+                NightAudit.Summary summary = call(() -> service.runNightAudit(day));
+                if (summary == null) throw new HttpError(409, "Night audit for " + day + " is done or in progress");
+                send(exchange, 200, Map.of("businessDate", day, "noShows", summary.noShows(),
+                        "checkedOut", summary.checkedOut(), "roomsReleased", summary.roomsReleased()));
+            }
+            case "archive" -> {
+                requireMethod(method, "POST");
+                requireAdmin(caller(exchange));
+                int afterDays = integer(query, "afterDays", 365);
+                Archiver.Summary summary = call(() -> service.archiveClosedBookings(afterDays));
+                send(exchange, 200, Map.of("cutoff", summary.cutoff(), "bookings", summary.bookings(),
+                        "payments", summary.payments()));
+            }
+            case "bookings" -> bookings(exchange, method, path, query);
+            case "reports" -> reports(exchange, method, path, query);
+            default -> throw new HttpError(404, "Not found");
+        }
+    }
+
+    private void bookings(HttpExchange exchange, String method, String[] path, Map<String, String> query)
+            throws Exception {
+        ReferenceData.UserInfo caller = caller(exchange);
+        if (path.length == 1) {
+            if ("POST".equals(method)) {
+                Map<String, Object> body = readBody(exchange);
+                String username = actingUsername(caller, body);
+                String room = string(body, "room");
+                LocalDate checkIn = parseDate(string(body, "checkIn"), "checkIn");
+                LocalDate checkOut = parseDate(string(body, "checkOut"), "checkOut");
+                String paymentMethod = string(body, "paymentMethod");
+                HotelService.Booked booked = call(() -> service.book(username, room, checkIn, checkOut, paymentMethod));
+                exchange.getResponseHeaders().set("Location", "/api/bookings/" + booked.bookingId());
+                send(exchange, 201, Map.of("id", booked.bookingId(), "room", booked.roomNumber(),
+                        "checkIn", checkIn, "checkOut", checkOut, "total", booked.total()));
+                return;
+            }
+            requireMethod(method, "GET");
+            String guest = isStaff(caller) ? query.get("guest") : caller.username();
+            int after = integer(query, "after", 0);
+            int requested = integer(query, "limit", 100);
+            if (requested < 1) throw new IllegalArgumentException("limit must be at least 1");
+            int limit = Math.min(requested, MAX_PAGE_SIZE);
+            boolean history = Boolean.parseBoolean(query.get("history"));
+            String status = query.get("status");
+            BookingQuery filter = new BookingQuery(status == null ? null : BookingStatus.of(status),
+                    optionalDate(query, "from"), optionalDate(query, "to"), query.get("roomType"), query.get("name"),
+                    decimal(query, "minTotal"), decimal(query, "maxTotal"), BookingQuery.Sort.ID, false);
+            BookingQuery.Cursor start = new BookingQuery.Cursor(after, after);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (HotelService.BookingRow row : call(() -> service.bookingsPage(guest, filter, start, null, limit,
+                    history))) {
+                rows.add(bookingJson(row));
+            }
+            send(exchange, 200, rows);
+            return;
+        }
+
+        if (path.length == 2 && path[1].equals("block")) {
+            requireMethod(method, "POST");
+            Map<String, Object> body = readBody(exchange);
+            String username = actingUsername(caller, body);
+            Map<String, Integer> roomsByType = new LinkedHashMap<>();
+            if (!(body.get("rooms") instanceof Map<?, ?> rooms) || rooms.isEmpty()) {
+                throw new IllegalArgumentException("Missing field: rooms");
+            }
+            for (Map.Entry<?, ?> entry : rooms.entrySet()) {
+                if (!(entry.getValue() instanceof Number count) || count.doubleValue() != count.intValue()) {
+                    throw new IllegalArgumentException("Room count for " + entry.getKey() + " must be a whole number");
+                }
+                roomsByType.put((String) entry.getKey(), count.intValue());
+            }
+            LocalDate checkIn = parseDate(string(body, "checkIn"), "checkIn");
+            LocalDate checkOut = parseDate(string(body, "checkOut"), "checkOut");
+            String paymentMethod = string(body, "paymentMethod");
+            HotelService.BlockBooked block = call(() ->
+                    service.bookBlock(username, roomsByType, checkIn, checkOut, paymentMethod));
+            List<Map<String, Object>> bookings = new ArrayList<>();
+            for (HotelService.Booked booked : block.bookings()) {
+                bookings.add(Map.of("id", booked.bookingId(), "room", booked.roomNumber(), "total", booked.total()));
+            }
+            send(exchange, 201, Map.of("checkIn", checkIn, "checkOut", checkOut, "total", block.total(),
+                    "bookings", bookings));
+            return;
+        }
+
+        int id = parseInt(path[1], "booking id");
+        if (path.length == 2) {
+            requireMethod(method, "GET");
+            HotelService.BookingDetails details = call(() -> service.bookingDetails(id));
+            requireOwnerOrStaff(caller, details);
+            send(exchange, 200, Map.of("id", details.id(), "room", details.roomNumber(),
+                    "guest", details.guestName(), "status", details.status()));
+            return;
+        }
+
+        requireMethod(method, "POST");
+        BookingStatus status = switch (path[2]) {
+            case "check-in" -> BookingStatus.CHECKED_IN;
+            case "check-out" -> BookingStatus.CHECKED_OUT;
+            case "cancel" -> BookingStatus.CANCELLED;
+            default -> throw new HttpError(404, "Not found");
+        };
+        // Guests may only cancel, and only their own bookings
+        if (status != BookingStatus.CANCELLED) {
+            requireStaff(caller);
+        } else if (!isStaff(caller)) {
+            requireOwnerOrStaff(caller, call(() -> service.bookingDetails(id)));
+        }
+        // A change the booking's lifecycle rejects comes back as 409
+        BookingDao.StatusChange change = call(() -> service.updateBookingStatus(id, status, caller.username()));
+        if (change == null) throw new NoSuchElementException("Booking not found");
+        send(exchange, 200, Map.of("id", id, "status", status.label(),
+                "previousStatus", change.previousStatus().label(), "version", change.version()));
+    }
+
+    // Not found rather than forbidden, so guests can't probe which booking ids exist
+    private static void requireOwnerOrStaff(ReferenceData.UserInfo caller, HotelService.BookingDetails details) {
+        if (!isStaff(caller) && !caller.username().equals(details.guestUsername())) {
+            throw new NoSuchElementException("Booking not found");
+        }
+    }
+
+    private void reports(HttpExchange exchange, String method, String[] path, Map<String, String> query)
+            throws Exception {
+        requireMethod(method, "GET");
+        requireAdmin(caller(exchange));
+        if (path.length != 2) throw new HttpError(404, "Not found");
+
+        switch (path[1]) {
+            case "occupancy" -> send(exchange, 200, call(service::occupancy));
+            case "revenue" -> {
+                LocalDate from = date(query, "from");
+                LocalDate to = date(query, "to");
+                List<Map<String, Object>> rows = new ArrayList<>();
+                for (Rollups.RevenueRow row : call(() -> service.revenue(from, to))) {
+                    rows.add(Map.of("month", row.monthStart(), "method", row.method(), "roomType", row.roomType(),
+                            "payments", row.payments(), "revenue", row.revenue()));
+                }
+                send(exchange, 200, rows);
+            }
+            case "activity" -> {
+                LocalDate from = date(query, "from");
+                LocalDate to = date(query, "to");
+                List<Map<String, Object>> rows = new ArrayList<>();
+                for (Rollups.ActivityRow row : call(() -> service.activity(from, to))) {
+                    rows.add(Map.of("day", row.day(), "bookings", row.bookings(),
+                            "cancellations", row.cancellations(), "checkIns", row.checkIns(),
+                            "checkOuts", row.checkOuts(), "noShows", row.noShows()));
+                }
+                send(exchange, 200, rows);
+            }
+            default -> throw new HttpError(404, "Not found");
+        }
+    }
+
+    private static Map<String, Object> bookingJson(HotelService.BookingRow row) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", row.id());
+        json.put("room", row.roomNumber());
+        json.put("checkIn", row.checkIn());
+        json.put("checkOut", row.checkOut());
+        json.put("total", row.totalPrice());
+        json.put("status", row.status());
+        return json;
+    }
+
+    // Runs a service call on the data access executor, giving up once the request timeout passes
+    private <T> T call(DataAccess.Call<T> work) throws Exception {
+        Future<T> future = dataAccess.submit(work);
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HttpError(504, "Request timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HttpError(503, "Server shutting down");
+        } catch (CancellationException e) {
+            throw new HttpError(503, "Request cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RejectedExecutionException) throw new HttpError(503, "Server busy");
+            if (cause instanceof Exception ex) throw ex;
+            throw e;
+        }
+    }
+
+    private int inFlightRequests() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!expected.equals(method)) throw new HttpError(405, "Method not allowed");
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                if (buffer.size() + n > MAX_BODY_BYTES) throw new HttpError(413, "Request body too large");
+                buffer.write(chunk, 0, n);
+            }
+        }
+        return Json.parseObject(buffer.toString(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("Missing parameter: " + name);
+        return value;
+    }
+
+    private static String string(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof String s) || s.isEmpty()) throw new IllegalArgumentException("Missing field: " + name);
+        return s;
+    }
+
+    private static LocalDate date(Map<String, String> query, String name) {
+        return parseDate(required(query, name), name);
+    }
+
+    private static LocalDate optionalDate(Map<String, String> query, String name) {
+        String value = query.get(name);
+        return value == null || value.isEmpty() ? null : parseDate(value, name);
+    }
+
+    private static LocalDate parseDate(String value, String name) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Bad date for " + name + ": " + value);
+        }
+    }
+
+    private static int integer(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        return value == null ? defaultValue : parseInt(value, name);
+    }
+
+    private static Double decimal(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) return null;
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number for " + name + ": " + value);
+        }
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number for " + name + ": " + value);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        workers.shutdownNow();
+        dataAccess.shutdown();
+    }
+
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Drop connections that dribble a request or stall reading a response
+        if (System.getProperty("sun.net.httpserver.maxReqTime") == null) {
+            System.setProperty("sun.net.httpserver.maxReqTime", "30");
+        }
+        if (System.getProperty("sun.net.httpserver.maxRspTime") == null) {
+            System.setProperty("sun.net.httpserver.maxRspTime", "60");
+        }
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("hotel.http.port", DEFAULT_PORT);
+        HotelService service = HotelService.start(DatabaseConfig.load());
+        HotelHttpServer server = new HotelHttpServer(service, port, DEFAULT_MAX_IN_FLIGHT, DEFAULT_TIMEOUT_MILLIS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            service.close();
+        }, "http-shutdown"));
+        server.start();
+    }
+}
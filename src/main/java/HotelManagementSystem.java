@@ -1,102 +1,174 @@
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class HotelManagementSystem extends JFrame {
-    private Connection connection;
+    private static final Logger LOG = Logger.getLogger(HotelManagementSystem.class.getName());
+
+    private HotelService service;
+    private DataAccess dataAccess;
+    private HotelHttpServer httpServer;
     private String currentUser;
     private String currentRole;
 
+    private static final int BOOKINGS_PAGE_SIZE = 200;
+    // Columnar pages cost about 5 KB each, so scrolling back rarely goes to the database
+    private static final int BOOKINGS_CACHED_PAGES = 200;
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    // Status bar shared by the login screen and the dashboard
+    private final JLabel statusLabel = new JLabel(" ");
+    private int pendingLoads;
+
+    // Event subscriptions of the dashboard's panels, dropped on logout
+    private final List<Runnable> subscriptions = new ArrayList<>();
+
+    // Completed on the EDT once the service is up; signing in waits for it
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
+
+    // Tab data fetched right after sign-in, claimed by the tab when it is first shown
+    private final Map<String, CompletableFuture<?>> prefetched = new HashMap<>();
+
     public HotelManagementSystem() {
         super("Hotel Management System");
         setSize(1000, 700);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
-        // Initialize database
-        initializeDatabase();
-
-        // Show login screen
+        // The login screen shows while the database starts
         showLoginScreen();
-
         setVisible(true);
+
+        initializeDatabase();
     }
 
+    // Migrates and loads caches off the EDT, then enables signing in
     private void initializeDatabase() {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            String url = "jdbc:mysql://localhost:3306/hotel_db";
-            String username = "root";
-            String password = "root"; // Replace with your MySQL password
-            connection = DriverManager.getConnection(url, username, password);
-            createTables();
-            insertSampleData();
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Database Error: " + e.getMessage());
-            System.exit(1);
-        }
+        beginLoading("Starting database");
+        Thread starter = new Thread(() -> {
+            DatabaseConfig config = null;
+            try {
+                config = DatabaseConfig.load();
+                HotelService startedService = HotelService.start(config);
+
+                // Optionally serve the HTTP API from the same process
+                Integer port = Integer.getInteger("hotel.http.port");
+                HotelHttpServer server = null;
+                if (port != null) {
+                    server = new HotelHttpServer(startedService, port, 200, 10_000);
+                    server.start();
+                }
+                HotelHttpServer startedServer = server;
+                SwingUtilities.invokeLater(() -> {
+                    service = startedService;
+                    dataAccess = service.dataAccess();
+                    httpServer = startedServer;
+                    endLoading();
+                    started.complete(null);
+                });
+            } catch (Exception e) {
+                String hint = config != null && !config.isEmbedded()
+                        ? "\n\nTo run without MySQL, start with -Dhotel.db.url=mem" : "";
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(this, "Database Error: " + e.getMessage() + hint);
+                    System.exit(1);
+                });
+            }
+        }, "hotel-startup");
+        starter.setDaemon(true);
+        starter.start();
+    }
+
+    // Runs a query off the EDT, showing a loading state until it finishes or is cancelled
+    private <T> CompletableFuture<T> runAsync(String activity, DataAccess.Call<T> work,
+                                              Consumer<T> onSuccess, String errorPrefix) {
+        return runAsync(activity, dataAccess.submit(work), onSuccess, errorPrefix);
+    }
+
+    private <T> CompletableFuture<T> runAsync(String activity, CompletableFuture<T> submitted,
+                                              Consumer<T> onSuccess, String errorPrefix) {
+        beginLoading(activity);
+        CompletableFuture<T> future = dataAccess.load(submitted, onSuccess, error -> {
+            LOG.log(Level.WARNING, activity + " failed", error);
+            JOptionPane.showMessageDialog(this, errorPrefix + error.getMessage());
+        });
+        future.whenComplete((value, error) -> SwingUtilities.invokeLater(this::endLoading));
+        return future;
+    }
+
+    private void beginLoading(String activity) {
+        pendingLoads++;
+        statusLabel.setText(activity + "...");
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
     }
 
-    private void createTables() {
-        try (Statement stmt = connection.createStatement()) {
-            // Create Users table
-            stmt.execute("CREATE TABLE IF NOT EXISTS users (" +
-                    "id INT PRIMARY KEY AUTO_INCREMENT," +
-                    "username VARCHAR(50) UNIQUE NOT NULL," +
-                    "password VARCHAR(50) NOT NULL," +
-                    "role VARCHAR(20) NOT NULL," +
-                    "fullname VARCHAR(100))");
-
-            // Create Rooms table
-            stmt.execute("CREATE TABLE IF NOT EXISTS rooms (" +
-                    "id INT PRIMARY KEY AUTO_INCREMENT," +
-                    "room_number VARCHAR(10) UNIQUE NOT NULL," +
-                    "type VARCHAR(20) NOT NULL," +
-                    "price DOUBLE NOT NULL," +
-                    "status VARCHAR(20) DEFAULT 'Available')");
-
-            // Create Bookings table
-            stmt.execute("CREATE TABLE IF NOT EXISTS bookings (" +
-                    "id INT PRIMARY KEY AUTO_INCREMENT," +
-                    "guest_id INT NOT NULL," +
-                    "room_id INT NOT NULL," +
-                    "check_in_date DATE NOT NULL," +
-                    "check_out_date DATE NOT NULL," +
-                    "total_price DOUBLE NOT NULL," +
-                    "status VARCHAR(20) DEFAULT 'Booked')");
-
-            // Create Payments table
-            stmt.execute("CREATE TABLE IF NOT EXISTS payments (" +
-                    "id INT PRIMARY KEY AUTO_INCREMENT," +
-                    "booking_id INT NOT NULL," +
-                    "amount DOUBLE NOT NULL," +
-                    "payment_date DATETIME NOT NULL," +
-                    "method VARCHAR(20) NOT NULL)");
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Table Creation Error: " + e.getMessage());
+    private void endLoading() {
+        if (pendingLoads > 0) pendingLoads--;
+        if (pendingLoads == 0) {
+            statusLabel.setText(" ");
+            setCursor(Cursor.getDefaultCursor());
         }
+        statusLabel.setToolTipText(service.pool().stats() + "; " + service.referenceData());
+    }
+
+    // Delivers domain events to a panel on the EDT, batched per frame
+    private void onEvents(Consumer<List<DomainEvent>> handler) {
+        subscriptions.add(service.events().subscribeOnEdt(handler));
     }
 
-    private void insertSampleData() {
-        try (Statement stmt = connection.createStatement()) {
-            // Insert sample users
-            stmt.execute("INSERT IGNORE INTO users (username, password, role, fullname) VALUES " +
-                    "('admin', 'admin123', 'admin', 'Admin User')," +
-                    "('staff', 'staff123', 'staff', 'Staff Member')," +
-                    "('guest', 'guest123', 'guest', 'John Doe')");
+    private static int findRow(DefaultTableModel model, Object... key) {
+        rows:
+        for (int row = 0; row < model.getRowCount(); row++) {
+            for (int column = 0; column < key.length; column++) {
+                if (!key[column].equals(model.getValueAt(row, column))) continue rows;
+            }
+            return row;
+        }
+        return -1;
+    }
 
-            // Insert sample rooms
-            stmt.execute("INSERT IGNORE INTO rooms (room_number, type, price) VALUES " +
-                    "('101', 'Standard', 100.00)," +
-                    "('102', 'Deluxe', 150.00)," +
-                    "('201', 'Suite', 250.00)");
+    /**
+     * Adds delta to a cell in the row whose leading columns match those of newRow. If there
+     * is no such row, newRow (holding zeros) is inserted in key order first.
+     */
+    private static void addToCell(DefaultTableModel model, Object[] newRow, int keyColumns, int column, Number delta) {
+        Object[] key = Arrays.copyOf(newRow, keyColumns);
+        int row = findRow(model, key);
+        if (row < 0) {
+            row = 0;
+            while (row < model.getRowCount() && compareKey(model, row, key) < 0) row++;
+            model.insertRow(row, newRow);
+        }
+        Object value = model.getValueAt(row, column);
+        model.setValueAt(delta instanceof Double
+                ? (Object) (((Number) value).doubleValue() + delta.doubleValue())
+                : (Object) (((Number) value).intValue() + delta.intValue()), row, column);
+    }
 
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Data Insertion Error: " + e.getMessage());
+    private static int compareKey(DefaultTableModel model, int row, Object[] key) {
+        for (int column = 0; column < key.length; column++) {
+            int c = String.valueOf(model.getValueAt(row, column)).compareTo(String.valueOf(key[column]));
+            if (c != 0) return c;
         }
+        return 0;
     }
 
     private void showLoginScreen() {
@@ -133,63 +205,65 @@ public class HotelManagementSystem extends JFrame {
         gbc.gridwidth = 2;
         JButton loginButton = new JButton("Login");
         panel.add(loginButton, gbc);
+        // Credentials can be typed while the database is still starting
+        loginButton.setEnabled(started.isDone());
+        started.thenRun(() -> loginButton.setEnabled(true));
 
         loginButton.addActionListener(e -> {
             String username = usernameField.getText();
             String password = new String(passwordField.getPassword());
 
-            if (authenticateUser(username, password)) {
-                getContentPane().removeAll();
-                showMainDashboard();
-                revalidate();
-                repaint();
-            } else {
-                JOptionPane.showMessageDialog(this, "Invalid username or password");
-            }
-        });
-
-        getContentPane().add(panel);
-    }
-
-    private boolean authenticateUser(String username, String password) {
-        String sql = "SELECT role, fullname FROM users WHERE username = ? AND password = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
+            loginButton.setEnabled(false);
+            StartupTimer timer = new StartupTimer();
+            runAsync("Signing in", () -> service.authenticate(username, password), user -> {
+                if (user != null) {
+                    timer.mark("sign in");
                     currentUser = username;
-                    currentRole = rs.getString("role");
-                    return true;
+                    currentRole = user.role();
+                    getContentPane().removeAll();
+                    showMainDashboard(timer);
+                    revalidate();
+                    repaint();
+                } else {
+                    JOptionPane.showMessageDialog(this, "Invalid username or password");
                 }
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Authentication Error: " + e.getMessage());
-        }
-        return false;
+            }, "Authentication Error: ").whenComplete((role, error) ->
+                    SwingUtilities.invokeLater(() -> loginButton.setEnabled(true)));
+        });
+
+        getContentPane().add(panel, BorderLayout.CENTER);
+        getContentPane().add(statusLabel, BorderLayout.SOUTH);
     }
 
-    private void showMainDashboard() {
+    private void showMainDashboard(StartupTimer timer) {
         setLayout(new BorderLayout());
 
+        // The data of every tab is fetched at once, in parallel, while only the first tab is built
+        List<CompletableFuture<?>> fetches = prefetchTabs(timer);
+
         // Create tabbed pane
         JTabbedPane tabbedPane = new JTabbedPane();
 
         // Add common tabs
-        tabbedPane.addTab("Rooms", createRoomsPanel());
+        addLazyTab(tabbedPane, "Rooms", this::createRoomsPanel);
 
         // Role-specific tabs
         if ("guest".equals(currentRole)) {
-            tabbedPane.addTab("My Bookings", createBookingsPanel());
-            tabbedPane.addTab("Book a Room", createBookingPanel());
+            addLazyTab(tabbedPane, "My Bookings", this::createBookingsPanel);
+            addLazyTab(tabbedPane, "Book a Room", this::createBookingPanel);
         } else if ("staff".equals(currentRole)) {
-            tabbedPane.addTab("Manage Bookings", createBookingsPanel());
-            tabbedPane.addTab("Check In/Out", createCheckInOutPanel());
+            addLazyTab(tabbedPane, "Manage Bookings", this::createBookingsPanel);
+            addLazyTab(tabbedPane, "Check In/Out", this::createCheckInOutPanel);
         } else if ("admin".equals(currentRole)) {
-            tabbedPane.addTab("Manage Users", createUsersPanel());
-            tabbedPane.addTab("Reports", createReportsPanel());
+            addLazyTab(tabbedPane, "Manage Users", this::createUsersPanel);
+            addLazyTab(tabbedPane, "Reports", this::createReportsPanel);
         }
+        timer.mark("dashboard");
+        long shownMillis = timer.elapsedMillis();
+        String user = currentUser;
+        CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0])).whenComplete((done, error) ->
+                LOG.info(String.format("Dashboard for %s shown %d ms after signing in, tab data fetched after %d ms"
+                        + " (%s)", user, shownMillis, timer.elapsedMillis(), timer)));
 
         // Create header panel
         JPanel headerPanel = new JPanel(new BorderLayout());
@@ -199,6 +273,10 @@ public class HotelManagementSystem extends JFrame {
         // Logout button
         JButton logoutButton = new JButton("Logout");
         logoutButton.addActionListener(e -> {
+            dataAccess.cancelAll();
+            prefetched.clear();
+            subscriptions.forEach(Runnable::run);
+            subscriptions.clear();
             getContentPane().removeAll();
             showLoginScreen();
             revalidate();
@@ -208,6 +286,61 @@ public class HotelManagementSystem extends JFrame {
 
         add(headerPanel, BorderLayout.NORTH);
         add(tabbedPane, BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Starts the first query of each of the role's tabs, so that a tab's data is usually
+     * there by the time it is opened. What a tab hasn't claimed is dropped on the next
+     * change event, since the tab only starts listening for changes once it is built.
+     */
+    private List<CompletableFuture<?>> prefetchTabs(StartupTimer timer) {
+        prefetched.clear();
+        prefetch(timer, "rooms", () -> service.listRooms(HotelService.RoomQuery.ALL));
+        if ("guest".equals(currentRole) || "staff".equals(currentRole)) {
+            String guest = "guest".equals(currentRole) ? currentUser : null;
+            prefetch(timer, "bookings", () -> service.bookingsPage(guest, BookingQuery.ALL, null, null,
+                    BOOKINGS_PAGE_SIZE, false));
+        } else if ("admin".equals(currentRole)) {
+            LocalDate from = defaultReportsStart();
+            LocalDate to = LocalDate.now();
+            prefetch(timer, "users", () -> service.listUsers(HotelService.UserQuery.ALL));
+            prefetch(timer, "occupancy", service::occupancy);
+            prefetch(timer, "revenue " + from + " " + to, () -> service.revenue(from, to));
+            prefetch(timer, "activity " + from + " " + to, () -> service.activity(from, to));
+        }
+        onEvents(events -> prefetched.clear());
+        return new ArrayList<>(prefetched.values());
+    }
+
+    private void prefetch(StartupTimer timer, String key, DataAccess.Call<?> work) {
+        prefetched.put(key, timer.track(key, dataAccess.submit(work)));
+    }
+
+    // The prefetched result for the key if there is one, otherwise the work, started now
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> prefetchedOr(String key, DataAccess.Call<T> work) {
+        CompletableFuture<T> future = (CompletableFuture<T>) prefetched.remove(key);
+        return future != null ? future : dataAccess.submit(work);
+    }
+
+    // Adds a placeholder tab whose panel is only built, and its data loaded, once the tab is selected
+    private static void addLazyTab(JTabbedPane tabbedPane, String title, Supplier<JPanel> build) {
+        JPanel holder = new JPanel(new BorderLayout());
+        tabbedPane.addTab(title, holder);
+        Runnable buildOnce = new Runnable() {
+            private boolean built;
+
+            @Override
+            public void run() {
+                if (built || tabbedPane.getSelectedComponent() != holder) return;
+                built = true;
+                holder.add(build.get(), BorderLayout.CENTER);
+                holder.revalidate();
+            }
+        };
+        tabbedPane.addChangeListener(e -> buildOnce.run());
+        buildOnce.run();
     }
 
     private JPanel createRoomsPanel() {
@@ -218,35 +351,101 @@ public class HotelManagementSystem extends JFrame {
         DefaultTableModel model = new DefaultTableModel(columns, 0);
         JTable table = new JTable(model);
 
+        // Filtering and sorting happen in the database; a newer query cancels one still running
+        FilterBar filters = new FilterBar();
+        JTextField numberFilter = filters.addText("Room", 5);
+        JComboBox<String> typeFilter = filters.addChoice("Type", "Standard", "Deluxe", "Suite");
+        JComboBox<String> statusFilter = filters.addChoice("Status",
+                HotelService.ROOM_STATUSES.toArray(String[]::new));
+        JTextField minPriceFilter = filters.addText("Price from", 5);
+        JTextField maxPriceFilter = filters.addText("to", 5);
+        String[] sortColumns = {"room_number", "type", "price", "status"};
+        String[] sortBy = {null};
+        boolean[] descending = {false};
+        HotelService.RoomQuery[] shown = {HotelService.RoomQuery.ALL};
+        CompletableFuture<?>[] pending = {null};
+
         // Load room data
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM rooms")) {
-
-            while (rs.next()) {
-                model.addRow(new Object[]{
-                        rs.getString("room_number"),
-                        rs.getString("type"),
-                        rs.getDouble("price"),
-                        rs.getString("status")
-                });
+        Runnable loadRooms = () -> {
+            if (pending[0] != null) pending[0].cancel(true);
+            HotelService.RoomQuery query = new HotelService.RoomQuery(FilterBar.text(numberFilter),
+                    FilterBar.choice(typeFilter), FilterBar.choice(statusFilter), FilterBar.number(minPriceFilter),
+                    FilterBar.number(maxPriceFilter), sortBy[0], descending[0]);
+            DataAccess.Call<List<ReferenceData.RoomInfo>> work = () -> service.listRooms(query);
+            pending[0] = runAsync("Loading rooms", query.equals(HotelService.RoomQuery.ALL)
+                    ? prefetchedOr("rooms", work) : dataAccess.submit(work), rooms -> {
+                shown[0] = query;
+                model.setRowCount(0);
+                for (ReferenceData.RoomInfo room : rooms) {
+                    model.addRow(new Object[]{room.roomNumber(), room.type(), room.price(), room.status()});
+                }
+            }, "Error loading rooms: ");
+        };
+        loadRooms.run();
+        filters.onChange(loadRooms);
+        FilterBar.sortOnHeaderClick(table, column -> true, (column, desc) -> {
+            sortBy[0] = sortColumns[column];
+            descending[0] = desc;
+            loadRooms.run();
+        });
+
+        // Apply changes as they happen instead of reloading the table, unless it is filtered
+        // or sorted and the change may move the room in or out of it
+        onEvents(events -> {
+            boolean reload = false;
+            boolean patch = shown[0].equals(HotelService.RoomQuery.ALL);
+            for (DomainEvent event : events) {
+                if (!patch && (event instanceof DomainEvent.RoomAdded || event instanceof DomainEvent.RoomStatusChanged
+                        || event instanceof DomainEvent.RoomSynced)) {
+                    reload = true;
+                } else if (event instanceof DomainEvent.RoomAdded added) {
+                    if (findRow(model, added.roomNumber()) < 0) {
+                        model.addRow(new Object[]{added.roomNumber(), added.type(), added.price(), added.status()});
+                    }
+                } else if (event instanceof DomainEvent.RoomStatusChanged changed) {
+                    int row = findRow(model, changed.roomNumber());
+                    if (row >= 0) model.setValueAt(changed.status(), row, 3);
+                } else if (event instanceof DomainEvent.RoomSynced synced) {
+                    ReferenceData.RoomInfo room = synced.room();
+                    Object[] values = {room.roomNumber(), room.type(), room.price(), room.status()};
+                    int row = findRow(model, room.roomNumber());
+                    if (row < 0) {
+                        model.addRow(values);
+                    } else {
+                        for (int column = 1; column < values.length; column++) {
+                            if (!values[column].equals(model.getValueAt(row, column))) {
+                                model.setValueAt(values[column], row, column);
+                            }
+                        }
+                    }
+                } else if (event instanceof DomainEvent.DataImported imported) {
+                    reload |= imported.kind() == BulkImporter.Kind.ROOMS;
+                }
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading rooms: " + e.getMessage());
-        }
+            if (reload) loadRooms.run();
+        });
 
+        panel.add(filters, BorderLayout.NORTH);
         panel.add(new JScrollPane(table), BorderLayout.CENTER);
 
-        // Add room button for admin
+        // Add room and import buttons for admin
         if ("admin".equals(currentRole)) {
             JButton addButton = new JButton("Add Room");
-            addButton.addActionListener(e -> showAddRoomDialog(model));
-            panel.add(addButton, BorderLayout.SOUTH);
+            addButton.addActionListener(e -> showAddRoomDialog());
+
+            JButton importButton = new JButton("Import CSV...");
+            importButton.addActionListener(e -> showImportDialog());
+
+            JPanel buttonPanel = new JPanel();
+            buttonPanel.add(addButton);
+            buttonPanel.add(importButton);
+            panel.add(buttonPanel, BorderLayout.SOUTH);
         }
 
         return panel;
     }
 
-    private void showAddRoomDialog(DefaultTableModel model) {
+    private void showAddRoomDialog() {
         JDialog dialog = new JDialog(this, "Add New Room", true);
         dialog.setSize(300, 250);
         dialog.setLayout(new GridLayout(5, 2, 10, 10));
@@ -267,29 +466,23 @@ public class HotelManagementSystem extends JFrame {
 
         JButton saveButton = new JButton("Save");
         saveButton.addActionListener(e -> {
+            String roomNumber = roomNumberField.getText();
+            String type = (String) typeCombo.getSelectedItem();
+            String status = (String) statusCombo.getSelectedItem();
+            double price;
             try {
-                String sql = "INSERT INTO rooms (room_number, type, price, status) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                    pstmt.setString(1, roomNumberField.getText());
-                    pstmt.setString(2, (String) typeCombo.getSelectedItem());
-                    pstmt.setDouble(3, Double.parseDouble(priceField.getText()));
-                    pstmt.setString(4, (String) statusCombo.getSelectedItem());
-
-                    pstmt.executeUpdate();
-
-                    // Update table
-                    model.addRow(new Object[]{
-                            roomNumberField.getText(),
-                            typeCombo.getSelectedItem(),
-                            Double.parseDouble(priceField.getText()),
-                            statusCombo.getSelectedItem()
-                    });
-
-                    dialog.dispose();
-                }
-            } catch (Exception ex) {
+                price = Double.parseDouble(priceField.getText());
+            } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialog, "Error: " + ex.getMessage());
+                return;
             }
+
+            saveButton.setEnabled(false);
+            // The rooms table picks the new room up from the event bus
+            dataAccess.load(() -> service.addRoom(roomNumber, type, price, status), roomId -> dialog.dispose(), error -> {
+                saveButton.setEnabled(true);
+                JOptionPane.showMessageDialog(dialog, "Error: " + error.getMessage());
+            });
         });
 
         dialog.add(new JLabel());
@@ -299,71 +492,199 @@ public class HotelManagementSystem extends JFrame {
         dialog.setVisible(true);
     }
 
-    private JPanel createBookingsPanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-        DefaultTableModel model = new DefaultTableModel();
-        model.addColumn("Booking ID");
-        model.addColumn("Room Number");
-        model.addColumn("Check-in Date");
-        model.addColumn("Check-out Date");
-        model.addColumn("Total Price");
-        model.addColumn("Status");
+    private void showImportDialog() {
+        BulkImporter.Kind kind = (BulkImporter.Kind) JOptionPane.showInputDialog(this, "What are you importing?",
+                "Import CSV", JOptionPane.QUESTION_MESSAGE, null, BulkImporter.Kind.values(), BulkImporter.Kind.ROOMS);
+        if (kind == null) return;
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import " + kind.name().toLowerCase() + " (columns: "
+                + String.join(", ", kind.columns()) + ")");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+
+        JDialog dialog = new JDialog(this, "Importing " + file.getFileName(), false);
+        dialog.setLayout(new BorderLayout(10, 10));
+        JLabel progressLabel = new JLabel("Starting...");
+        progressLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 10));
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        JButton cancelButton = new JButton("Cancel");
+        dialog.add(progressLabel, BorderLayout.NORTH);
+        dialog.add(progressBar, BorderLayout.CENTER);
+        dialog.add(cancelButton, BorderLayout.SOUTH);
+        dialog.setSize(420, 130);
+        dialog.setLocationRelativeTo(this);
 
-        JTable table = new JTable(model);
+        CompletableFuture<BulkImporter.Progress> future = dataAccess.load(() -> {
+            try {
+                return service.importFile(kind, file, IMPORT_BATCH_SIZE,
+                        progress -> SwingUtilities.invokeLater(() -> progressLabel.setText(progress.toString())),
+                        () -> SwingUtilities.invokeLater(() -> progressLabel.setText("Rebuilding report rollups...")));
+            } catch (IOException e) {
+                throw new IOException("Cannot read " + file + ": " + e.getMessage(), e);
+            }
+        }, result -> {
+            dialog.dispose();
+            JOptionPane.showMessageDialog(this, "Import finished: " + result
+                    + (result.rejected() > 0 ? "\nRejected rows: " + BulkImporter.rejectedFileFor(file) : ""));
+        }, error -> {
+            dialog.dispose();
+            JOptionPane.showMessageDialog(this, "Import failed: " + error.getMessage());
+        });
 
-        // Load bookings based on user role
-        String sql;
-        if ("guest".equals(currentRole)) {
-            sql = "SELECT b.id, r.room_number, b.check_in_date, b.check_out_date, b.total_price, b.status " +
-                    "FROM bookings b " +
-                    "JOIN rooms r ON b.room_id = r.id " +
-                    "JOIN users u ON b.guest_id = u.id " +
-                    "WHERE u.username = ?";
-        } else {
-            sql = "SELECT b.id, r.room_number, b.check_in_date, b.check_out_date, b.total_price, b.status " +
-                    "FROM bookings b " +
-                    "JOIN rooms r ON b.room_id = r.id";
+        cancelButton.addActionListener(e -> {
+            future.cancel(true);
+            dialog.dispose();
+        });
+        dialog.setVisible(true);
+    }
+
+    private void showExportDialog(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            JOptionPane.showMessageDialog(this, "The start date must not be after the end date");
+            return;
         }
+        DataExporter.Kind kind = (DataExporter.Kind) JOptionPane.showInputDialog(this,
+                "Export from " + from + " to " + to + ":", "Export", JOptionPane.QUESTION_MESSAGE, null,
+                DataExporter.Kind.values(), DataExporter.Kind.BOOKINGS);
+        if (kind == null) return;
+        DataExporter.Format format = (DataExporter.Format) JOptionPane.showInputDialog(this, "File format:",
+                "Export", JOptionPane.QUESTION_MESSAGE, null, DataExporter.Format.values(), DataExporter.Format.CSV);
+        if (format == null) return;
+        int history = JOptionPane.showConfirmDialog(this, "Include archived bookings and payments?", "Export",
+                JOptionPane.YES_NO_CANCEL_OPTION);
+        if (history != JOptionPane.YES_OPTION && history != JOptionPane.NO_OPTION) return;
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export " + kind.name().toLowerCase());
+        chooser.setSelectedFile(new java.io.File(kind.name().toLowerCase() + "-" + from + "-" + to + "."
+                + format.extension()));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+
+        JDialog dialog = new JDialog(this, "Exporting " + file.getFileName(), false);
+        dialog.setLayout(new BorderLayout(10, 10));
+        JLabel progressLabel = new JLabel("Starting...");
+        progressLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 10));
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        JButton cancelButton = new JButton("Cancel");
+        dialog.add(progressLabel, BorderLayout.NORTH);
+        dialog.add(progressBar, BorderLayout.CENTER);
+        dialog.add(cancelButton, BorderLayout.SOUTH);
+        dialog.setSize(420, 130);
+        dialog.setLocationRelativeTo(this);
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            if ("guest".equals(currentRole)) {
-                pstmt.setString(1, currentUser);
+        CompletableFuture<DataExporter.Progress> future = dataAccess.load(() -> {
+            try {
+                return service.export(kind, format, from, to, history == JOptionPane.YES_OPTION, file,
+                        progress -> SwingUtilities.invokeLater(() -> progressLabel.setText(progress.toString())));
+            } catch (IOException e) {
+                throw new IOException("Cannot write " + file + ": " + e.getMessage(), e);
             }
+        }, result -> {
+            dialog.dispose();
+            JOptionPane.showMessageDialog(this, "Export finished: " + result);
+        }, error -> {
+            dialog.dispose();
+            JOptionPane.showMessageDialog(this, "Export failed: " + error.getMessage());
+        });
 
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    model.addRow(new Object[]{
-                            rs.getInt("id"),
-                            rs.getString("room_number"),
-                            rs.getString("check_in_date"),
-                            rs.getString("check_out_date"),
-                            rs.getDouble("total_price"),
-                            rs.getString("status")
-                    });
+        cancelButton.addActionListener(e -> {
+            future.cancel(true);
+            dialog.dispose();
+        });
+        dialog.setVisible(true);
+    }
+
+    private JPanel createBookingsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        // Bookings are paged in as the user scrolls instead of loading the whole table
+        String guest = "guest".equals(currentRole) ? currentUser : null;
+        PagedBookingTableModel model = new PagedBookingTableModel(service, guest, BOOKINGS_PAGE_SIZE,
+                BOOKINGS_CACHED_PAGES, prefetchedOr("bookings", () -> service.bookingsPage(guest, BookingQuery.ALL,
+                null, null, BOOKINGS_PAGE_SIZE, false)), error -> JOptionPane.showMessageDialog(this,
+                "Error loading bookings: " + error.getMessage()));
+
+        JTable table = new JTable(model);
+        JScrollPane scrollPane = new JScrollPane(table);
+        model.attachTo(table, scrollPane);
+
+        // Filters and header clicks change the model's query, which pages in the database
+        FilterBar filters = new FilterBar();
+        JComboBox<String> statusFilter = filters.addChoice("Status",
+                Arrays.stream(BookingStatus.values()).map(BookingStatus::label).toArray(String[]::new));
+        JTextField fromFilter = filters.addText("Check-in from", 8);
+        JTextField toFilter = filters.addText("to", 8);
+        JComboBox<String> typeFilter = filters.addChoice("Room type", "Standard", "Deluxe", "Suite");
+        JTextField guestFilter = guest == null ? filters.addText("Guest", 10) : null;
+        JTextField minPriceFilter = filters.addText("Total from", 5);
+        JTextField maxPriceFilter = filters.addText("to", 5);
+        filters.onChange(() -> {
+            String status = FilterBar.choice(statusFilter);
+            BookingQuery current = model.getQuery();
+            model.setQuery(new BookingQuery(status == null ? null : BookingStatus.of(status),
+                    FilterBar.date(fromFilter), FilterBar.date(toFilter), FilterBar.choice(typeFilter),
+                    guestFilter == null ? null : FilterBar.text(guestFilter), FilterBar.number(minPriceFilter),
+                    FilterBar.number(maxPriceFilter), current.sort(), current.descending()));
+        });
+        FilterBar.sortOnHeaderClick(table, column -> PagedBookingTableModel.sortFor(column) != null,
+                (column, desc) -> model.setQuery(model.getQuery()
+                        .sortedBy(PagedBookingTableModel.sortFor(column), desc)));
+
+        panel.add(filters, BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+
+        // Bookings made or changed anywhere, including over the HTTP API, show up without a reload.
+        // Under a filter or sort a change can move a row in or out of the grid or to another page,
+        // so the grid is reread instead.
+        onEvents(events -> {
+            boolean reload = false;
+            boolean patch = model.getQuery().listsAllInIdOrder();
+            for (DomainEvent event : events) {
+                if (!patch && (event instanceof DomainEvent.BookingCreated || event instanceof DomainEvent.BookingSynced
+                        || event instanceof DomainEvent.BookingStatusChanged)) {
+                    reload = true;
+                } else if (event instanceof DomainEvent.BookingCreated created) {
+                    model.bookingChanged(created.guestUsername(), new HotelService.BookingRow(created.bookingId(),
+                            created.roomNumber(), created.checkIn(), created.checkOut(), created.totalPrice(),
+                            created.status()));
+                } else if (event instanceof DomainEvent.BookingSynced synced) {
+                    model.bookingChanged(synced.guestUsername(), synced.booking());
+                } else if (event instanceof DomainEvent.BookingStatusChanged changed) {
+                    model.updateStatus(changed.bookingId(), changed.status());
+                } else if (event instanceof DomainEvent.DataImported imported) {
+                    reload |= imported.kind() == BulkImporter.Kind.BOOKINGS;
+                } else if (event instanceof DomainEvent.BookingsArchived) {
+                    reload |= !model.includesHistory();
                 }
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading bookings: " + e.getMessage());
-        }
-
-        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+            if (reload) model.reload();
+        });
 
         // Add action buttons
         JPanel buttonPanel = new JPanel();
 
+        // Old closed bookings live in the archive and are left out unless asked for
+        JCheckBox historyBox = new JCheckBox("Include history");
+        historyBox.addActionListener(e -> model.setIncludeHistory(historyBox.isSelected()));
+        buttonPanel.add(historyBox);
+
         if ("staff".equals(currentRole) || "admin".equals(currentRole)) {
             JButton checkInButton = new JButton("Check In");
-            checkInButton.addActionListener(e -> updateBookingStatus(table, model, "Checked In"));
+            checkInButton.addActionListener(e -> updateBookingStatus(table, model, BookingStatus.CHECKED_IN));
             buttonPanel.add(checkInButton);
 
             JButton checkOutButton = new JButton("Check Out");
-            checkOutButton.addActionListener(e -> updateBookingStatus(table, model, "Checked Out"));
+            checkOutButton.addActionListener(e -> updateBookingStatus(table, model, BookingStatus.CHECKED_OUT));
             buttonPanel.add(checkOutButton);
         }
 
         if ("guest".equals(currentRole)) {
             JButton cancelButton = new JButton("Cancel Booking");
-            cancelButton.addActionListener(e -> updateBookingStatus(table, model, "Cancelled"));
+            cancelButton.addActionListener(e -> updateBookingStatus(table, model, BookingStatus.CANCELLED));
             buttonPanel.add(cancelButton);
         }
 
@@ -372,28 +693,32 @@ public class HotelManagementSystem extends JFrame {
         return panel;
     }
 
-    private void updateBookingStatus(JTable table, DefaultTableModel model, String newStatus) {
+    private void updateBookingStatus(JTable table, PagedBookingTableModel model, BookingStatus newStatus) {
         int row = table.getSelectedRow();
         if (row < 0) {
             JOptionPane.showMessageDialog(this, "Please select a booking");
             return;
         }
 
-        int bookingId = (Integer) model.getValueAt(row, 0);
-
-        try (PreparedStatement pstmt = connection.prepareStatement(
-                "UPDATE bookings SET status = ? WHERE id = ?")) {
-            pstmt.setString(1, newStatus);
-            pstmt.setInt(2, bookingId);
+        int bookingId = model.getBookingId(table.convertRowIndexToModel(row));
+        if (bookingId < 0) {
+            JOptionPane.showMessageDialog(this, "Please wait for the booking to load");
+            return;
+        }
 
-            int updated = pstmt.executeUpdate();
-            if (updated > 0) {
-                model.setValueAt(newStatus, row, 5);
+        runAsync("Updating booking", () -> {
+            try {
+                return service.updateBookingStatus(bookingId, newStatus, currentUser);
+            } catch (BookingStatus.TransitionRejected e) {
+                // Someone else got there first; show the status that refused the change
+                SwingUtilities.invokeLater(() -> model.updateStatus(bookingId, e.current().label()));
+                throw e;
+            }
+        }, change -> {
+            if (change != null) {
                 JOptionPane.showMessageDialog(this, "Booking status updated to: " + newStatus);
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error updating booking: " + e.getMessage());
-        }
+        }, "Error updating booking: ");
     }
 
     private JPanel createBookingPanel() {
@@ -409,25 +734,23 @@ public class HotelManagementSystem extends JFrame {
         checkInSpinner.setEditor(checkInEditor);
 
         JSpinner checkOutSpinner = new JSpinner(new SpinnerDateModel());
+        checkOutSpinner.setValue(new Date(System.currentTimeMillis() + 24L * 60 * 60 * 1000));
         JSpinner.DateEditor checkOutEditor = new JSpinner.DateEditor(checkOutSpinner, "yyyy-MM-dd");
         checkOutSpinner.setEditor(checkOutEditor);
 
         JLabel totalLabel = new JLabel("0.00");
         JComboBox<String> paymentMethodCombo = new JComboBox<>(new String[]{"Credit Card", "Cash", "Bank Transfer"});
 
-        // Load available rooms
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT room_number FROM rooms WHERE status = 'Available'")) {
-
-            while (rs.next()) {
-                roomCombo.addItem(rs.getString("room_number"));
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading rooms: " + e.getMessage());
-        }
+        // Rooms free for the chosen dates come from the in-memory availability index
+        refreshAvailableRooms(roomCombo, (Date) checkInSpinner.getValue(), (Date) checkOutSpinner.getValue());
+        checkInSpinner.addChangeListener(e -> refreshAvailableRooms(roomCombo,
+                (Date) checkInSpinner.getValue(), (Date) checkOutSpinner.getValue()));
 
         // Calculate total when dates change
-        checkOutSpinner.addChangeListener(e -> calculateTotal(roomCombo, checkInSpinner, checkOutSpinner, totalLabel));
+        checkOutSpinner.addChangeListener(e -> {
+            refreshAvailableRooms(roomCombo, (Date) checkInSpinner.getValue(), (Date) checkOutSpinner.getValue());
+            calculateTotal(roomCombo, checkInSpinner, checkOutSpinner, totalLabel);
+        });
 
         // Form layout
         formPanel.add(new JLabel("Room:"));
@@ -443,14 +766,23 @@ public class HotelManagementSystem extends JFrame {
 
         JButton bookButton = new JButton("Book Now");
         bookButton.addActionListener(e -> createBooking(
+                bookButton,
                 roomCombo,
                 (Date) checkInSpinner.getValue(),
                 (Date) checkOutSpinner.getValue(),
-                totalLabel,
                 (String) paymentMethodCombo.getSelectedItem()
         ));
 
-        formPanel.add(new JLabel());
+        // Several rooms for the same dates, booked together or not at all
+        JButton blockButton = new JButton("Book Block...");
+        blockButton.addActionListener(e -> showBlockBookingDialog(
+                roomCombo,
+                (Date) checkInSpinner.getValue(),
+                (Date) checkOutSpinner.getValue(),
+                (String) paymentMethodCombo.getSelectedItem()
+        ));
+
+        formPanel.add(blockButton);
         formPanel.add(bookButton);
 
         panel.add(formPanel, BorderLayout.CENTER);
@@ -458,43 +790,71 @@ public class HotelManagementSystem extends JFrame {
         return panel;
     }
 
-    private void calculateTotal(JComboBox<String> roomCombo, JSpinner checkIn, JSpinner checkOut, JLabel totalLabel) {
-        if (checkIn.getValue() == null || checkOut.getValue() == null) return;
+    // The reports start at the first of the month eleven months back, so a year of months shows
+    private static LocalDate defaultReportsStart() {
+        return LocalDate.now().minusMonths(11).withDayOfMonth(1);
+    }
 
-        try {
-            Date checkInDate = (Date) checkIn.getValue();
-            Date checkOutDate = (Date) checkOut.getValue();
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
 
-            // Calculate nights
-            long diff = checkOutDate.getTime() - checkInDate.getTime();
-            int nights = (int) (diff / (1000 * 60 * 60 * 24));
+    private void refreshAvailableRooms(JComboBox<String> roomCombo, Date checkIn, Date checkOut) {
+        if (checkIn == null || checkOut == null) return;
 
-            if (nights <= 0) {
-                totalLabel.setText("Invalid dates");
-                return;
-            }
+        Object selected = roomCombo.getSelectedItem();
+        roomCombo.removeAllItems();
+        for (String roomNumber : service.freeRooms(toLocalDate(checkIn), toLocalDate(checkOut))) {
+            roomCombo.addItem(roomNumber);
+        }
+        if (selected != null) {
+            roomCombo.setSelectedItem(selected);
+        }
+    }
 
-            // Get room price
-            String roomNumber = (String) roomCombo.getSelectedItem();
-            String sql = "SELECT price FROM rooms WHERE room_number = ?";
+    // Quote in flight for the booking form; superseded by the next spinner change
+    private CompletableFuture<Double> pendingQuote;
 
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, roomNumber);
+    private void calculateTotal(JComboBox<String> roomCombo, JSpinner checkIn, JSpinner checkOut, JLabel totalLabel) {
+        if (checkIn.getValue() == null || checkOut.getValue() == null) return;
 
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        double pricePerNight = rs.getDouble("price");
-                        double total = pricePerNight * nights;
-                        totalLabel.setText(String.format("%.2f", total));
-                    }
-                }
-            }
-        } catch (SQLException ex) {
-            totalLabel.setText("Error");
+        LocalDate checkInDay = toLocalDate((Date) checkIn.getValue());
+        LocalDate checkOutDay = toLocalDate((Date) checkOut.getValue());
+
+        if (!checkInDay.isBefore(checkOutDay)) {
+            totalLabel.setText("Invalid dates");
+            return;
+        }
+
+        if (pendingQuote != null) {
+            pendingQuote.cancel(true);
+        }
+
+        // Get room price, from memory unless the room isn't cached yet
+        String roomNumber = (String) roomCombo.getSelectedItem();
+        if (roomNumber == null) return;
+        Double cached;
+        try {
+            cached = service.cachedQuote(roomNumber, checkInDay, checkOutDay);
+        } catch (IllegalArgumentException e) {
+            // Minimum stay not met or dates beyond the rate calendar
+            totalLabel.setText(e.getMessage());
+            return;
+        }
+        if (cached != null) {
+            totalLabel.setText(String.format("%.2f", cached));
+            return;
         }
+
+        totalLabel.setText("Calculating...");
+        pendingQuote = dataAccess.load(() -> service.quote(roomNumber, checkInDay, checkOutDay),
+                total -> totalLabel.setText(String.format("%.2f", total)),
+                error -> totalLabel.setText(error instanceof NoSuchElementException ? "0.00"
+                        : error instanceof IllegalArgumentException ? error.getMessage() : "Error"));
     }
 
-    private void createBooking(JComboBox<String> roomCombo, Date checkIn, Date checkOut, JLabel totalLabel, String paymentMethod) {
+    private void createBooking(JButton bookButton, JComboBox<String> roomCombo, Date checkIn, Date checkOut,
+                               String paymentMethod) {
         if (roomCombo.getSelectedItem() == null) {
             JOptionPane.showMessageDialog(this, "Please select a room");
             return;
@@ -505,96 +865,83 @@ public class HotelManagementSystem extends JFrame {
             return;
         }
 
-        if (checkIn.after(checkOut)) {
+        LocalDate checkInDay = toLocalDate(checkIn);
+        LocalDate checkOutDay = toLocalDate(checkOut);
+        if (!checkInDay.isBefore(checkOutDay)) {
             JOptionPane.showMessageDialog(this, "Check-in date must be before check-out date");
             return;
         }
 
-        try {
-            // Get guest ID
-            int guestId = getUserId(currentUser);
-
-            // Get room ID
-            String roomNumber = (String) roomCombo.getSelectedItem();
-            int roomId = getRoomId(roomNumber);
-
-            // Calculate total
-            double total = Double.parseDouble(totalLabel.getText());
-
-            // Create booking
-            String sql = "INSERT INTO bookings (guest_id, room_id, check_in_date, check_out_date, total_price) " +
-                    "VALUES (?, ?, ?, ?, ?)";
-
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setInt(1, guestId);
-                pstmt.setInt(2, roomId);
-                pstmt.setString(3, new java.sql.Date(checkIn.getTime()).toString());
-                pstmt.setString(4, new java.sql.Date(checkOut.getTime()).toString());
-                pstmt.setDouble(5, total);
-
-                pstmt.executeUpdate();
-
-                // Create payment
-                int bookingId = getLastInsertId();
-                createPayment(bookingId, total, paymentMethod);
-
-                // Update room status
-                updateRoomStatus(roomId, "Booked");
-
-                JOptionPane.showMessageDialog(this, "Booking created successfully!");
+        String user = currentUser;
+        String roomNumber = (String) roomCombo.getSelectedItem();
+
+        // The service prices the stay and rejects overlapping stays before touching the database
+        bookButton.setEnabled(false);
+        runAsync("Creating booking", () -> service.book(user, roomNumber, checkInDay, checkOutDay, paymentMethod),
+                booked -> {
+                    refreshAvailableRooms(roomCombo, checkIn, checkOut);
+                    JOptionPane.showMessageDialog(this, "Booking created successfully!");
+                }, "Error creating booking: ").whenComplete((booked, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                refreshAvailableRooms(roomCombo, checkIn, checkOut);
             }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error creating booking: " + e.getMessage());
-        }
+            bookButton.setEnabled(true);
+        }));
     }
 
-    private void createPayment(int bookingId, double amount, String method) throws SQLException {
-        String sql = "INSERT INTO payments (booking_id, amount, payment_date, method) VALUES (?, ?, NOW(), ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, bookingId);
-            pstmt.setDouble(2, amount);
-            pstmt.setString(3, method);
-            pstmt.executeUpdate();
+    private void showBlockBookingDialog(JComboBox<String> roomCombo, Date checkIn, Date checkOut,
+                                        String paymentMethod) {
+        LocalDate checkInDay = toLocalDate(checkIn);
+        LocalDate checkOutDay = toLocalDate(checkOut);
+        if (!checkInDay.isBefore(checkOutDay)) {
+            JOptionPane.showMessageDialog(this, "Check-in date must be before check-out date");
+            return;
         }
-    }
 
-    private void updateRoomStatus(int roomId, String status) throws SQLException {
-        String sql = "UPDATE rooms SET status = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, status);
-            pstmt.setInt(2, roomId);
-            pstmt.executeUpdate();
+        String[] roomTypes = {"Standard", "Deluxe", "Suite"};
+        JDialog dialog = new JDialog(this, "Book a Block of Rooms", true);
+        dialog.setSize(320, 250);
+        dialog.setLayout(new GridLayout(roomTypes.length + 2, 2, 10, 10));
+
+        dialog.add(new JLabel("Dates:"));
+        dialog.add(new JLabel(checkInDay + " to " + checkOutDay));
+        JSpinner[] counts = new JSpinner[roomTypes.length];
+        for (int i = 0; i < roomTypes.length; i++) {
+            counts[i] = new JSpinner(new SpinnerNumberModel(0, 0, HotelService.MAX_BLOCK_ROOMS, 1));
+            dialog.add(new JLabel(roomTypes[i] + " rooms:"));
+            dialog.add(counts[i]);
         }
-    }
 
-    private int getUserId(String username) throws SQLException {
-        String sql = "SELECT id FROM users WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) return rs.getInt("id");
+        JButton saveButton = new JButton("Book Block");
+        saveButton.addActionListener(e -> {
+            Map<String, Integer> roomsByType = new LinkedHashMap<>();
+            for (int i = 0; i < roomTypes.length; i++) {
+                roomsByType.put(roomTypes[i], (Integer) counts[i].getValue());
             }
-        }
-        throw new SQLException("User not found");
-    }
+            String user = currentUser;
+
+            saveButton.setEnabled(false);
+            dataAccess.load(() -> service.bookBlock(user, roomsByType, checkInDay, checkOutDay, paymentMethod),
+                    block -> {
+                        dialog.dispose();
+                        refreshAvailableRooms(roomCombo, checkIn, checkOut);
+                        StringBuilder rooms = new StringBuilder();
+                        for (HotelService.Booked booked : block.bookings()) {
+                            rooms.append(rooms.length() > 0 ? ", " : "").append(booked.roomNumber());
+                        }
+                        JOptionPane.showMessageDialog(this, String.format("Booked %d rooms for %.2f: %s",
+                                block.bookings().size(), block.total(), rooms));
+                    }, error -> {
+                        saveButton.setEnabled(true);
+                        JOptionPane.showMessageDialog(dialog, "Error booking block: " + error.getMessage());
+                    });
+        });
 
-    private int getRoomId(String roomNumber) throws SQLException {
-        String sql = "SELECT id FROM rooms WHERE room_number = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, roomNumber);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) return rs.getInt("id");
-            }
-        }
-        throw new SQLException("Room not found");
-    }
+        dialog.add(new JLabel());
+        dialog.add(saveButton);
 
-    private int getLastInsertId() throws SQLException {
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
-            if (rs.next()) return rs.getInt(1);
-        }
-        throw new SQLException("Failed to get last ID");
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
     }
 
     private JPanel createCheckInOutPanel() {
@@ -637,28 +984,18 @@ public class HotelManagementSystem extends JFrame {
             return;
         }
 
+        int id;
         try {
-            String sql = "SELECT r.room_number, u.fullname " +
-                    "FROM bookings b " +
-                    "JOIN rooms r ON b.room_id = r.id " +
-                    "JOIN users u ON b.guest_id = u.id " +
-                    "WHERE b.id = ?";
-
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setInt(1, Integer.parseInt(bookingId));
-
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        roomField.setText(rs.getString("room_number"));
-                        guestField.setText(rs.getString("fullname"));
-                    } else {
-                        JOptionPane.showMessageDialog(this, "Booking not found");
-                    }
-                }
-            }
-        } catch (Exception e) {
+            id = Integer.parseInt(bookingId);
+        } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Error loading booking: " + e.getMessage());
+            return;
         }
+
+        runAsync("Loading booking", () -> service.bookingDetails(id), details -> {
+            roomField.setText(details.roomNumber());
+            guestField.setText(details.guestName());
+        }, "Error loading booking: ");
     }
 
     private void processCheckInOut(String bookingId, String action) {
@@ -667,24 +1004,23 @@ public class HotelManagementSystem extends JFrame {
             return;
         }
 
+        int id;
         try {
-            String newStatus = action.equals("Check In") ? "Checked In" : "Checked Out";
+            id = Integer.parseInt(bookingId);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Error updating booking: " + e.getMessage());
+            return;
+        }
 
-            String sql = "UPDATE bookings SET status = ? WHERE id = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, newStatus);
-                pstmt.setInt(2, Integer.parseInt(bookingId));
+        BookingStatus newStatus = action.equals("Check In") ? BookingStatus.CHECKED_IN : BookingStatus.CHECKED_OUT;
 
-                int updated = pstmt.executeUpdate();
-                if (updated > 0) {
-                    JOptionPane.showMessageDialog(this, "Booking status updated to: " + newStatus);
-                } else {
-                    JOptionPane.showMessageDialog(this, "Booking not found");
-                }
+        runAsync("Updating booking", () -> service.updateBookingStatus(id, newStatus, currentUser), change -> {
+            if (change != null) {
+                JOptionPane.showMessageDialog(this, "Booking status updated to: " + newStatus);
+            } else {
+                JOptionPane.showMessageDialog(this, "Booking not found");
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error updating booking: " + e.getMessage());
-        }
+        }, "Error updating booking: ");
     }
 
     private JPanel createUsersPanel() {
@@ -697,27 +1033,72 @@ public class HotelManagementSystem extends JFrame {
 
         JTable table = new JTable(model);
 
+        FilterBar filters = new FilterBar();
+        JTextField nameFilter = filters.addText("Name", 12);
+        JComboBox<String> roleFilter = filters.addChoice("Role", "guest", "staff", "admin");
+        String[] sortColumns = {"id", "username", "fullname", "role"};
+        String[] sortBy = {null};
+        boolean[] descending = {false};
+        HotelService.UserQuery[] shown = {HotelService.UserQuery.ALL};
+        CompletableFuture<?>[] pending = {null};
+
         // Load user data
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM users")) {
-
-            while (rs.next()) {
-                model.addRow(new Object[]{
-                        rs.getInt("id"),
-                        rs.getString("username"),
-                        rs.getString("fullname"),
-                        rs.getString("role")
-                });
+        Runnable loadUsers = () -> {
+            if (pending[0] != null) pending[0].cancel(true);
+            HotelService.UserQuery query = new HotelService.UserQuery(FilterBar.text(nameFilter),
+                    FilterBar.choice(roleFilter), sortBy[0], descending[0]);
+            DataAccess.Call<List<HotelService.UserAccount>> work = () -> service.listUsers(query);
+            pending[0] = runAsync("Loading users", query.equals(HotelService.UserQuery.ALL)
+                    ? prefetchedOr("users", work) : dataAccess.submit(work), users -> {
+                shown[0] = query;
+                model.setRowCount(0);
+                for (HotelService.UserAccount user : users) {
+                    model.addRow(new Object[]{user.id(), user.username(), user.fullName(), user.role()});
+                }
+            }, "Error loading users: ");
+        };
+        loadUsers.run();
+        filters.onChange(loadUsers);
+        FilterBar.sortOnHeaderClick(table, column -> true, (column, desc) -> {
+            sortBy[0] = sortColumns[column];
+            descending[0] = desc;
+            loadUsers.run();
+        });
+
+        onEvents(events -> {
+            boolean reload = false;
+            boolean patch = shown[0].equals(HotelService.UserQuery.ALL);
+            for (DomainEvent event : events) {
+                if (!patch && (event instanceof DomainEvent.UserAdded || event instanceof DomainEvent.UserSynced)) {
+                    reload = true;
+                } else if (event instanceof DomainEvent.UserAdded added) {
+                    if (findRow(model, added.userId()) < 0) {
+                        model.addRow(new Object[]{added.userId(), added.username(), added.fullName(), added.role()});
+                    }
+                } else if (event instanceof DomainEvent.UserSynced synced) {
+                    HotelService.UserAccount user = synced.user();
+                    Object[] values = {user.id(), user.username(), user.fullName(), user.role()};
+                    int row = findRow(model, user.id());
+                    if (row < 0) {
+                        model.addRow(values);
+                    } else {
+                        for (int column = 1; column < values.length; column++) {
+                            model.setValueAt(values[column], row, column);
+                        }
+                    }
+                } else if (event instanceof DomainEvent.DataImported imported) {
+                    reload |= imported.kind() == BulkImporter.Kind.USERS;
+                }
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading users: " + e.getMessage());
-        }
+            if (reload) loadUsers.run();
+        });
 
+        panel.add(filters, BorderLayout.NORTH);
         panel.add(new JScrollPane(table), BorderLayout.CENTER);
 
         // Add user button
         JButton addButton = new JButton("Add User");
-        addButton.addActionListener(e -> showAddUserDialog(model));
+        addButton.addActionListener(e -> showAddUserDialog());
 
         JPanel buttonPanel = new JPanel();
         buttonPanel.add(addButton);
@@ -726,7 +1107,7 @@ public class HotelManagementSystem extends JFrame {
         return panel;
     }
 
-    private void showAddUserDialog(DefaultTableModel model) {
+    private void showAddUserDialog() {
         JDialog dialog = new JDialog(this, "Add New User", true);
         dialog.setSize(300, 250);
         dialog.setLayout(new GridLayout(5, 2, 10, 10));
@@ -747,33 +1128,17 @@ public class HotelManagementSystem extends JFrame {
 
         JButton saveButton = new JButton("Save");
         saveButton.addActionListener(e -> {
-            try {
-                String sql = "INSERT INTO users (username, password, role, fullname) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                    pstmt.setString(1, usernameField.getText());
-                    pstmt.setString(2, new String(passwordField.getPassword()));
-                    pstmt.setString(3, (String) roleCombo.getSelectedItem());
-                    pstmt.setString(4, fullNameField.getText());
-
-                    pstmt.executeUpdate();
-
-                    // Update table
-                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                        if (rs.next()) {
-                            model.addRow(new Object[]{
-                                    rs.getInt(1),
-                                    usernameField.getText(),
-                                    fullNameField.getText(),
-                                    roleCombo.getSelectedItem()
-                            });
-                        }
-                    }
-
-                    dialog.dispose();
-                }
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(dialog, "Error: " + ex.getMessage());
-            }
+            String username = usernameField.getText();
+            String password = new String(passwordField.getPassword());
+            String role = (String) roleCombo.getSelectedItem();
+            String fullName = fullNameField.getText();
+
+            saveButton.setEnabled(false);
+            // The users table picks the new user up from the event bus
+            dataAccess.load(() -> service.addUser(username, password, role, fullName), id -> dialog.dispose(), error -> {
+                saveButton.setEnabled(true);
+                JOptionPane.showMessageDialog(dialog, "Error: " + error.getMessage());
+            });
         });
 
         dialog.add(new JLabel());
@@ -784,8 +1149,31 @@ public class HotelManagementSystem extends JFrame {
     }
 
     private JPanel createReportsPanel() {
-        JPanel panel = new JPanel(new GridLayout(1, 2, 20, 20));
-        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // Date range for the revenue and activity reports
+        JSpinner fromSpinner = new JSpinner(new SpinnerDateModel());
+        fromSpinner.setEditor(new JSpinner.DateEditor(fromSpinner, "yyyy-MM-dd"));
+        fromSpinner.setValue(Date.from(defaultReportsStart().atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        JSpinner toSpinner = new JSpinner(new SpinnerDateModel());
+        toSpinner.setEditor(new JSpinner.DateEditor(toSpinner, "yyyy-MM-dd"));
+        JButton refreshButton = new JButton("Refresh");
+        JButton rebuildButton = new JButton("Rebuild Rollups");
+        JButton auditButton = new JButton("Run Night Audit");
+        JButton exportButton = new JButton("Export...");
+
+        JPanel rangePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        rangePanel.add(new JLabel("From:"));
+        rangePanel.add(fromSpinner);
+        rangePanel.add(new JLabel("To:"));
+        rangePanel.add(toSpinner);
+        rangePanel.add(refreshButton);
+        rangePanel.add(rebuildButton);
+        rangePanel.add(auditButton);
+        rangePanel.add(exportButton);
+
+        JPanel reportsGrid = new JPanel(new GridLayout(2, 2, 20, 20));
 
         // Occupancy report
         JPanel occupancyPanel = new JPanel(new BorderLayout());
@@ -795,21 +1183,6 @@ public class HotelManagementSystem extends JFrame {
         occupancyModel.addColumn("Status");
         occupancyModel.addColumn("Count");
         JTable occupancyTable = new JTable(occupancyModel);
-
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(
-                     "SELECT status, COUNT(*) AS count FROM rooms GROUP BY status")) {
-
-            while (rs.next()) {
-                occupancyModel.addRow(new Object[]{
-                        rs.getString("status"),
-                        rs.getInt("count")
-                });
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading occupancy: " + e.getMessage());
-        }
-
         occupancyPanel.add(new JScrollPane(occupancyTable), BorderLayout.CENTER);
 
         // Revenue report
@@ -820,30 +1193,202 @@ public class HotelManagementSystem extends JFrame {
         revenueModel.addColumn("Month");
         revenueModel.addColumn("Total Revenue");
         JTable revenueTable = new JTable(revenueModel);
+        revenuePanel.add(new JScrollPane(revenueTable), BorderLayout.CENTER);
 
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(
-                     "SELECT DATE_FORMAT(payment_date, '%Y-%m') AS month, SUM(amount) AS revenue " +
-                             "FROM payments GROUP BY month")) {
-
-            while (rs.next()) {
-                revenueModel.addRow(new Object[]{
-                        rs.getString("month"),
-                        rs.getDouble("revenue")
-                });
+        // Revenue by payment method and room type
+        JPanel breakdownPanel = new JPanel(new BorderLayout());
+        breakdownPanel.setBorder(BorderFactory.createTitledBorder("Revenue by Method and Room Type"));
+
+        DefaultTableModel breakdownModel = new DefaultTableModel();
+        breakdownModel.addColumn("Month");
+        breakdownModel.addColumn("Method");
+        breakdownModel.addColumn("Room Type");
+        breakdownModel.addColumn("Payments");
+        breakdownModel.addColumn("Revenue");
+        JTable breakdownTable = new JTable(breakdownModel);
+        breakdownPanel.add(new JScrollPane(breakdownTable), BorderLayout.CENTER);
+
+        // Bookings and cancellations per day
+        JPanel activityPanel = new JPanel(new BorderLayout());
+        activityPanel.setBorder(BorderFactory.createTitledBorder("Booking Activity"));
+
+        DefaultTableModel activityModel = new DefaultTableModel();
+        activityModel.addColumn("Date");
+        activityModel.addColumn("Bookings");
+        activityModel.addColumn("Cancellations");
+        activityModel.addColumn("Check-ins");
+        activityModel.addColumn("Check-outs");
+        activityModel.addColumn("No-shows");
+        JTable activityTable = new JTable(activityModel);
+        activityPanel.add(new JScrollPane(activityTable), BorderLayout.CENTER);
+
+        // Range currently shown; events outside it are ignored
+        LocalDate[] range = new LocalDate[2];
+        Runnable loadReports = () -> {
+            LocalDate from = toLocalDate((Date) fromSpinner.getValue());
+            LocalDate to = toLocalDate((Date) toSpinner.getValue());
+            if (to.isBefore(from)) {
+                JOptionPane.showMessageDialog(this, "The start date must not be after the end date");
+                return;
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading revenue: " + e.getMessage());
-        }
+            range[0] = from;
+            range[1] = to;
+            loadReports(from, to, occupancyModel, revenueModel, breakdownModel, activityModel);
+        };
+        refreshButton.addActionListener(e -> loadReports.run());
+        rebuildButton.addActionListener(e -> {
+            rebuildButton.setEnabled(false);
+            runAsync("Rebuilding rollups", () -> {
+                service.rebuildRollups();
+                return null;
+            }, done -> loadReports.run(), "Error rebuilding rollups: ").whenComplete((done, error) ->
+                    SwingUtilities.invokeLater(() -> rebuildButton.setEnabled(true)));
+        });
+        // Normally scheduled; this runs it now for yesterday, or finishes an interrupted run
+        auditButton.addActionListener(e -> {
+            LocalDate businessDate = LocalDate.now().minusDays(1);
+            auditButton.setEnabled(false);
+            runAsync("Running night audit", () -> service.runNightAudit(businessDate), summary -> {
+                JOptionPane.showMessageDialog(this, summary != null ? summary.toString()
+                        : "The night audit for " + businessDate + " is already done or in progress");
+                loadReports.run();
+            }, "Error running night audit: ").whenComplete((summary, error) ->
+                    SwingUtilities.invokeLater(() -> auditButton.setEnabled(true)));
+        });
+        exportButton.addActionListener(e -> showExportDialog(toLocalDate((Date) fromSpinner.getValue()),
+                toLocalDate((Date) toSpinner.getValue())));
+        loadReports.run();
+
+        // Fold this client's writes into the report totals, as the rollups themselves do. The
+        // service drops feed rows echoing them, so synced rows are other clients' writes, which
+        // only the affected reports reread.
+        onEvents(events -> {
+            boolean reload = false;
+            boolean occupancy = false;
+            boolean bookings = false;
+            for (DomainEvent event : events) {
+                if (event instanceof DomainEvent.DataImported || event instanceof DomainEvent.BookingsArchived) {
+                    reload = true;
+                } else if (event instanceof DomainEvent.RoomSynced) {
+                    occupancy = true;
+                } else if (event instanceof DomainEvent.BookingSynced || event instanceof DomainEvent.PaymentSynced) {
+                    bookings = true;
+                } else if (range[0] != null) {
+                    applyToReports(event, range[0], range[1], occupancyModel, revenueModel, breakdownModel,
+                            activityModel);
+                }
+            }
+            if (reload) {
+                loadReports.run();
+                return;
+            }
+            if (occupancy) loadOccupancy(occupancyModel);
+            if (bookings && range[0] != null) {
+                loadRevenue(range[0], range[1], revenueModel, breakdownModel);
+                loadActivity(range[0], range[1], activityModel);
+            }
+        });
 
-        revenuePanel.add(new JScrollPane(revenueTable), BorderLayout.CENTER);
+        reportsGrid.add(occupancyPanel);
+        reportsGrid.add(revenuePanel);
+        reportsGrid.add(breakdownPanel);
+        reportsGrid.add(activityPanel);
 
-        panel.add(occupancyPanel);
-        panel.add(revenuePanel);
+        panel.add(rangePanel, BorderLayout.NORTH);
+        panel.add(reportsGrid, BorderLayout.CENTER);
 
         return panel;
     }
 
+    private void applyToReports(DomainEvent event, LocalDate from, LocalDate to, DefaultTableModel occupancyModel,
+                                DefaultTableModel revenueModel, DefaultTableModel breakdownModel,
+                                DefaultTableModel activityModel) {
+        if (event instanceof DomainEvent.RoomAdded added) {
+            addToCell(occupancyModel, new Object[]{added.status(), 0}, 1, 1, 1);
+        } else if (event instanceof DomainEvent.RoomStatusChanged changed) {
+            addToCell(occupancyModel, new Object[]{changed.previousStatus(), 0}, 1, 1, -1);
+            addToCell(occupancyModel, new Object[]{changed.status(), 0}, 1, 1, 1);
+        } else if (event instanceof DomainEvent.PaymentRecorded payment) {
+            LocalDate day = payment.paidAt().toLocalDate();
+            if (day.isBefore(from) || day.isAfter(to)) return;
+            String month = YearMonth.from(day).toString();
+            addToCell(revenueModel, new Object[]{month, 0.0}, 1, 1, payment.amount());
+            Object[] breakdownRow = {month, payment.method(), payment.roomType(), 0, 0.0};
+            addToCell(breakdownModel, breakdownRow, 3, 3, 1);
+            addToCell(breakdownModel, breakdownRow, 3, 4, payment.amount());
+        } else if (event instanceof DomainEvent.BookingCreated created) {
+            addToActivity(activityModel, created.createdAt().toLocalDate(), from, to, 1);
+        } else if (event instanceof DomainEvent.BookingStatusChanged changed) {
+            int column = switch (changed.status()) {
+                case "Cancelled" -> 2;
+                case "Checked In" -> 3;
+                case "Checked Out" -> 4;
+                case "No-Show" -> 5;
+                default -> -1;
+            };
+            if (column > 0) addToActivity(activityModel, changed.changedAt().toLocalDate(), from, to, column);
+        }
+    }
+
+    private static void addToActivity(DefaultTableModel activityModel, LocalDate day, LocalDate from, LocalDate to,
+                                      int column) {
+        if (day.isBefore(from) || day.isAfter(to)) return;
+        addToCell(activityModel, new Object[]{day.toString(), 0, 0, 0, 0, 0}, 1, column, 1);
+    }
+
+    // Reports read only the rollup tables, never the payments or bookings tables
+    private void loadReports(LocalDate from, LocalDate to, DefaultTableModel occupancyModel,
+                             DefaultTableModel revenueModel, DefaultTableModel breakdownModel,
+                             DefaultTableModel activityModel) {
+        loadOccupancy(occupancyModel);
+        loadRevenue(from, to, revenueModel, breakdownModel);
+        loadActivity(from, to, activityModel);
+    }
+
+    private void loadOccupancy(DefaultTableModel occupancyModel) {
+        runAsync("Loading occupancy", prefetchedOr("occupancy", service::occupancy), counts -> {
+            occupancyModel.setRowCount(0);
+            counts.forEach((status, count) -> occupancyModel.addRow(new Object[]{status, count}));
+        }, "Error loading occupancy: ");
+    }
+
+    private void loadRevenue(LocalDate from, LocalDate to, DefaultTableModel revenueModel,
+                             DefaultTableModel breakdownModel) {
+        String range = from + " " + to;
+        runAsync("Loading revenue", prefetchedOr("revenue " + range, () -> service.revenue(from, to)), rows -> {
+            revenueModel.setRowCount(0);
+            breakdownModel.setRowCount(0);
+            YearMonth month = null;
+            double monthTotal = 0;
+            for (Rollups.RevenueRow row : rows) {
+                YearMonth rowMonth = YearMonth.from(row.monthStart());
+                if (month != null && !month.equals(rowMonth)) {
+                    revenueModel.addRow(new Object[]{month.toString(), monthTotal});
+                    monthTotal = 0;
+                }
+                month = rowMonth;
+                monthTotal += row.revenue();
+                breakdownModel.addRow(new Object[]{
+                        rowMonth.toString(), row.method(), row.roomType(), row.payments(), row.revenue()});
+            }
+            if (month != null) {
+                revenueModel.addRow(new Object[]{month.toString(), monthTotal});
+            }
+        }, "Error loading revenue: ");
+    }
+
+    private void loadActivity(LocalDate from, LocalDate to, DefaultTableModel activityModel) {
+        String range = from + " " + to;
+        runAsync("Loading activity", prefetchedOr("activity " + range, () -> service.activity(from, to)), rows -> {
+            activityModel.setRowCount(0);
+            for (Rollups.ActivityRow row : rows) {
+                activityModel.addRow(new Object[]{
+                        row.day().toString(), row.bookings(), row.cancellations(), row.checkIns(), row.checkOuts(),
+                        row.noShows()});
+            }
+        }, "Error loading activity: ");
+    }
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new HotelManagementSystem());
     }
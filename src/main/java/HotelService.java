@@ -0,0 +1,1026 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Booking, availability, check-in/out and reporting logic with no UI dependency.
+ * The Swing client and the HTTP API are both consumers of this class. Every method
+ * blocks and is safe to call from many threads at once.
+ *
+ * Invalid input is reported as IllegalArgumentException, a conflicting booking as
+ * IllegalStateException and an unknown id as NoSuchElementException.
+ */
+public class HotelService implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(HotelService.class.getName());
+
+    public static final Set<String> PAYMENT_METHODS = Set.of("Credit Card", "Cash", "Bank Transfer");
+    // Every status a room can be in; booking a room sets Booked
+    public static final List<String> ROOM_STATUSES = List.of("Available", "Occupied", "Maintenance", "Booked");
+
+    public static final int MAX_BLOCK_ROOMS = 500;
+
+    // Local time the previous day is audited at; "off" turns it off
+    private static final String DEFAULT_AUDIT_TIME = "02:00";
+
+    // Closed bookings that ended more than this many days ago are archived after the night audit; 0 turns it off
+    private static final int DEFAULT_ARCHIVE_AFTER_DAYS = 365;
+
+    // Where booking events are journaled; "off" turns the journal off
+    private static final Path DEFAULT_JOURNAL_DIR = Path.of(System.getProperty("user.home"), ".hotel", "journal");
+    private static final long JOURNAL_REPLICATE_MILLIS = 1_000;
+    // Actor journaled for the night audit's status changes
+    private static final String NIGHT_AUDIT_ACTOR = "night-audit";
+
+    // How often to look for other clients' changes; 0 turns it off
+    private static final long DEFAULT_SYNC_MILLIS = 2_000;
+
+    public record UserAccount(int id, String username, String fullName, String role) {
+    }
+
+    public record BookingRow(int id, String roomNumber, LocalDate checkIn, LocalDate checkOut,
+                             double totalPrice, String status) {
+    }
+
+    public record BookingDetails(int id, String roomNumber, String guestName, String status, String guestUsername) {
+    }
+
+    /**
+     * Filters and order for the rooms grid. Null fields don't filter.
+     *
+     * @param roomNumber start of the room number
+     * @param sortBy     a rooms column from {@link #ROOM_SORTS}, or null for no particular order
+     */
+    public record RoomQuery(String roomNumber, String type, String status, Double minPrice, Double maxPrice,
+                            String sortBy, boolean descending) {
+        public static final RoomQuery ALL = new RoomQuery(null, null, null, null, null, null, false);
+    }
+
+    /**
+     * Filters and order for the users grid. Null fields don't filter.
+     *
+     * @param name   start of the full name
+     * @param sortBy a users column from {@link #USER_SORTS}, or null for no particular order
+     */
+    public record UserQuery(String name, String role, String sortBy, boolean descending) {
+        public static final UserQuery ALL = new UserQuery(null, null, null, false);
+    }
+
+    public static final Set<String> ROOM_SORTS = Set.of("room_number", "type", "price", "status");
+    public static final Set<String> USER_SORTS = Set.of("id", "username", "fullname", "role");
+
+    public record Booked(int bookingId, String roomNumber, double total, long elapsedNanos) {
+    }
+
+    public record BlockBooked(List<Booked> bookings, double total, long elapsedNanos) {
+    }
+
+    private final DatabaseConfig config;
+    private final ConnectionPool pool;
+    private final DataAccess dataAccess;
+    private final ReferenceData referenceData = new ReferenceData();
+    private final Metrics metrics = Metrics.get();
+    private final EventBus events = new EventBus();
+    // Rows this client changed and already published, by "booking:id", "room:id" or
+    // "payment:bookingId", with the state written, so the change feed doesn't publish them twice
+    private final ExpiringCache<String, String> ownWrites =
+            new ExpiringCache<>("ownWrites", 10_000, 1, TimeUnit.MINUTES);
+    private volatile AvailabilityIndex availability;
+    private volatile RatePlans rates;
+    private ScheduledExecutorService metricsExport;
+    private ScheduledExecutorService changeSync;
+    private ScheduledExecutorService nightAuditScheduler;
+    private ScheduledExecutorService journalReplication;
+    private volatile EventJournal journal;
+    private final NightAudit nightAudit;
+    private final Archiver archiver;
+    private final int archiveAfterDays = Integer.getInteger("hotel.archive.afterDays", DEFAULT_ARCHIVE_AFTER_DAYS);
+
+    private HotelService(DatabaseConfig config, ConnectionPool pool) {
+        this.config = config;
+        this.pool = pool;
+        this.dataAccess = new DataAccess(pool);
+        this.nightAudit = new NightAudit(pool, (bookingId, status) ->
+                journal(EventJournal.Type.STATUS_CHANGED, bookingId, NIGHT_AUDIT_ACTOR, status, 0, null));
+        this.archiver = new Archiver(pool);
+    }
+
+    /**
+     * Connects, migrates the schema and loads the in-memory indexes.
+     */
+    public static HotelService start(DatabaseConfig config) throws SQLException {
+        StartupTimer timer = new StartupTimer();
+        try {
+            Class.forName(config.dialect().driverClass());
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("JDBC driver " + config.dialect().driverClass() + " is not on the classpath", e);
+        }
+        ConnectionPool pool = new ConnectionPool(config.url(), config.username(), config.password(), 2, 20);
+        pool.setStatementListener(Metrics.get());
+        HotelService service = new HotelService(config, pool);
+        timer.mark("connect");
+        try {
+            try (Connection conn = pool.getConnection()) {
+                int previousVersion = new SchemaMigrator().migrate(conn);
+                timer.mark("migrate");
+                if (previousVersion > 0 && previousVersion < Rollups.SCHEMA_VERSION) {
+                    // Existing data predates the rollup tables
+                    Rollups.rebuild(conn);
+                    timer.mark("rebuild rollups");
+                }
+            }
+            // The caches don't depend on each other, so each loads on its own connection
+            CompletableFuture<AvailabilityIndex> availability = service.dataAccess.submit(conn ->
+                    timer.time("availability", () -> AvailabilityIndex.load(conn)));
+            CompletableFuture<RatePlans> rates = service.dataAccess.submit(conn ->
+                    timer.time("rates", () -> RatePlans.load(conn, LocalDate.now())));
+            CompletableFuture<Void> rooms = service.dataAccess.submit(conn -> timer.time("rooms", () -> {
+                service.referenceData.preloadRooms(conn);
+                return null;
+            }));
+            service.availability = await(availability);
+            service.rates = await(rates);
+            await(rooms);
+            timer.mark("caches");
+        } catch (SQLException | RuntimeException e) {
+            service.close();
+            throw e;
+        }
+        long syncMillis = Long.getLong("hotel.sync.intervalMillis", DEFAULT_SYNC_MILLIS);
+        if (syncMillis > 0) {
+            try {
+                service.startChangeSync(syncMillis);
+            } catch (SQLException | RuntimeException e) {
+                service.close();
+                throw e;
+            }
+            timer.mark("change sync");
+        }
+        String journalDir = System.getProperty("hotel.journal.dir", DEFAULT_JOURNAL_DIR.toString());
+        if (!journalDir.equalsIgnoreCase("off")) {
+            service.startJournal(Path.of(journalDir));
+            timer.mark("journal");
+        }
+        // After the journal, which records the audit's status changes
+        String auditTime = System.getProperty("hotel.audit.time", DEFAULT_AUDIT_TIME);
+        if (!auditTime.equalsIgnoreCase("off")) {
+            service.scheduleNightAudit(LocalTime.parse(auditTime));
+        }
+        String metricsFile = System.getProperty("hotel.metrics.file");
+        if (metricsFile != null) {
+            service.metricsExport = service.metrics.exportTo(Path.of(metricsFile), pool, 15, TimeUnit.SECONDS);
+        }
+        LOG.info(String.format("Started on %s in %d ms (%s)", config, timer.elapsedMillis(), timer));
+        return service;
+    }
+
+    // Waits for work started during startup, rethrowing its failure as it was thrown
+    private static <T> T await(CompletableFuture<T> work) throws SQLException {
+        try {
+            return work.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while starting", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sql) throw sql;
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    private void startChangeSync(long periodMillis) throws SQLException {
+        ChangeFeed feed = new ChangeFeed(pool, this::synced);
+        feed.start();
+        changeSync = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        changeSync.scheduleWithFixedDelay(() -> {
+            try {
+                metrics.time("syncChanges", feed::poll);
+            } catch (SQLException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Polling for changes failed", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Without a journal the service still works; it just keeps no history of booking changes
+    private void startJournal(Path dir) {
+        try {
+            journal = EventJournal.open(dir);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Booking event journal unavailable; changes won't be audited", e);
+            return;
+        }
+        JournalReplicator replicator = new JournalReplicator(pool, journal);
+        journalReplication = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-replication");
+            t.setDaemon(true);
+            return t;
+        });
+        journalReplication.scheduleWithFixedDelay(() -> {
+            try {
+                replicator.replicate();
+            } catch (SQLException | IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Copying the journal to booking_events failed; will retry", e);
+            }
+        }, 0, JOURNAL_REPLICATE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records the change in the journal once it has committed. This only copies into
+     * mapped memory, so it adds microseconds to the write path; a journal failure is
+     * logged rather than failing a change the database already holds.
+     */
+    private void journal(EventJournal.Type type, int bookingId, String actor, String status, double amount,
+                         String detail) {
+        EventJournal current = journal;
+        if (current == null) return;
+        try {
+            metrics.time("journalAppend", () -> current.append(type, bookingId, actor, status, amount, detail));
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Could not journal " + type + " of booking " + bookingId, e);
+        }
+    }
+
+    /**
+     * Audits the previous day at the given time every day. If that time has already passed
+     * today, a missed or interrupted audit of yesterday is finished straight away.
+     */
+    private void scheduleNightAudit(LocalTime at) {
+        nightAuditScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "night-audit");
+            t.setDaemon(true);
+            return t;
+        });
+        if (!LocalTime.now().isBefore(at)) {
+            nightAuditScheduler.execute(this::runScheduledNightAudit);
+        }
+        scheduleNextNightAudit(at);
+    }
+
+    private void scheduleNextNightAudit(LocalTime at) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(at);
+        if (!next.isAfter(now)) next = next.plusDays(1);
+        // Worked out afresh each day so the run stays at the same wall-clock time across DST changes
+        nightAuditScheduler.schedule(() -> {
+            runScheduledNightAudit();
+            scheduleNextNightAudit(at);
+        }, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void runScheduledNightAudit() {
+        NightAudit.Summary summary = null;
+        try {
+            summary = runNightAudit(LocalDate.now().minusDays(1));
+        } catch (SQLException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Night audit failed; the next run will resume it", e);
+        }
+        // Only the client that ran the audit archives, so the desks don't each scan bookings
+        if (summary != null && archiveAfterDays > 0) {
+            try {
+                archiveClosedBookings(archiveAfterDays);
+            } catch (SQLException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Archiving closed bookings failed; the next run will carry on", e);
+            }
+        }
+    }
+
+    /**
+     * Closes the business day: no-shows, overdue check-outs and room release. Returns
+     * null if it was already done or another client is doing it.
+     */
+    public NightAudit.Summary runNightAudit(LocalDate businessDate) throws SQLException {
+        return metrics.time("nightAudit", () -> {
+            NightAudit.Summary summary = nightAudit.run(businessDate);
+            if (summary != null) {
+                // Stays were ended and rooms released in bulk
+                referenceData.invalidateAll();
+                try (Connection conn = pool.getConnection()) {
+                    availability.reload(conn);
+                }
+            }
+            return summary;
+        });
+    }
+
+    /**
+     * Moves closed bookings whose stay ended more than the given number of days ago, and
+     * their payments, into the archive tables. Rollups already count them, so reports
+     * don't change.
+     */
+    public Archiver.Summary archiveClosedBookings(int afterDays) throws SQLException {
+        if (afterDays < 1) throw new IllegalArgumentException("Bookings must be at least a day old to archive");
+        return metrics.time("archive", () -> {
+            Archiver.Summary summary = archiver.archive(LocalDate.now().minusDays(afterDays));
+            if (summary.bookings() > 0) {
+                events.publish(new DomainEvent.BookingsArchived(summary.bookings(), summary.payments()));
+            }
+            return summary;
+        });
+    }
+
+    // Brings caches and the availability index in line with a row another client changed
+    private void synced(DomainEvent event) throws SQLException {
+        if (event instanceof DomainEvent.RoomSynced synced) {
+            ReferenceData.RoomInfo room = synced.room();
+            referenceData.invalidateRoom(room.roomNumber());
+            availability.addRoom(room.id(), room.roomNumber(), room.status());
+            if (isOwnWrite("room:" + room.id(), room.status())) return;
+        } else if (event instanceof DomainEvent.BookingSynced synced) {
+            BookingRow booking = synced.booking();
+            availability.syncBooking(booking.id(), synced.roomId(), booking.checkIn(), booking.checkOut(),
+                    booking.status());
+            if (isOwnWrite("booking:" + booking.id(), booking.status())) return;
+        } else if (event instanceof DomainEvent.PaymentSynced synced) {
+            if (isOwnWrite("payment:" + synced.bookingId(), "recorded")) return;
+        } else if (event instanceof DomainEvent.UserSynced synced) {
+            referenceData.invalidateUser(synced.user().username());
+        } else if (event instanceof DomainEvent.DataImported imported) {
+            referenceData.invalidateAll();
+            if (imported.kind() != BulkImporter.Kind.USERS) {
+                try (Connection conn = pool.getConnection()) {
+                    availability.reload(conn);
+                }
+            }
+        }
+        events.publish(event);
+    }
+
+    // The feed echoing a change this client published, rather than a newer one
+    private boolean isOwnWrite(String key, String state) {
+        if (!state.equals(ownWrites.getIfPresent(key))) return false;
+        ownWrites.invalidate(key);
+        return true;
+    }
+
+    public DatabaseConfig config() {
+        return config;
+    }
+
+    public ConnectionPool pool() {
+        return pool;
+    }
+
+    public DataAccess dataAccess() {
+        return dataAccess;
+    }
+
+    public ReferenceData referenceData() {
+        return referenceData;
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    // Every write is published here once it has committed, as are rows other clients changed
+    public EventBus events() {
+        return events;
+    }
+
+    // Returns the user, or null when the credentials don't match
+    public ReferenceData.UserInfo authenticate(String username, String password) throws SQLException {
+        return metrics.time("authenticateUser", () -> {
+            String sql = "SELECT id, role FROM users WHERE username = ? AND password = ?";
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, username);
+                pstmt.setString(2, password);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        // The password check has to hit the database, but the id lookup on booking doesn't
+                        ReferenceData.UserInfo user = new ReferenceData.UserInfo(rs.getInt("id"), username,
+                                rs.getString("role"));
+                        referenceData.cacheUser(user);
+                        return user;
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    public List<ReferenceData.RoomInfo> listRooms() throws SQLException {
+        return listRooms(RoomQuery.ALL);
+    }
+
+    public List<ReferenceData.RoomInfo> listRooms(RoomQuery query) throws SQLException {
+        SqlConditions where = new SqlConditions()
+                .startsWith("room_number", query.roomNumber())
+                .equal("type", query.type())
+                .equal("status", query.status())
+                .atLeast("price", query.minPrice())
+                .atMost("price", query.maxPrice());
+        String sql = "SELECT id, room_number, type, price, status FROM rooms" + where.where()
+                + orderBy(query.sortBy(), ROOM_SORTS, "room_number", query.descending());
+        return metrics.time("listRooms", () -> {
+            List<ReferenceData.RoomInfo> rooms = new ArrayList<>();
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                where.bind(pstmt, 1);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        rooms.add(new ReferenceData.RoomInfo(rs.getInt("id"), rs.getString("room_number"),
+                                rs.getString("type"), rs.getDouble("price"), rs.getString("status")));
+                    }
+                }
+            }
+            return rooms;
+        });
+    }
+
+    // Sorts by a whitelisted column, breaking ties on a unique one so the order is stable
+    private static String orderBy(String sortBy, Set<String> allowed, String unique, boolean descending) {
+        if (sortBy == null) return "";
+        if (!allowed.contains(sortBy)) throw new IllegalArgumentException("Cannot sort by " + sortBy);
+        String direction = descending ? " DESC" : "";
+        return " ORDER BY " + sortBy + direction + (sortBy.equals(unique) ? "" : ", " + unique + direction);
+    }
+
+    public int addRoom(String roomNumber, String type, double price, String status) throws SQLException {
+        return metrics.time("addRoom", () -> {
+            String sql = "INSERT INTO rooms (room_number, type, price, status) VALUES (?, ?, ?, ?)";
+            int roomId;
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, roomNumber);
+                pstmt.setString(2, type);
+                pstmt.setDouble(3, price);
+                pstmt.setString(4, status);
+                pstmt.executeUpdate();
+
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    if (!rs.next()) throw new SQLException("Failed to get room ID");
+                    roomId = rs.getInt(1);
+                }
+            }
+            referenceData.invalidateRoom(roomNumber);
+            availability.addRoom(roomId, roomNumber, status);
+            ownWrites.put("room:" + roomId, status);
+            events.publish(new DomainEvent.RoomAdded(roomId, roomNumber, type, price, status));
+            return roomId;
+        });
+    }
+
+    public List<UserAccount> listUsers() throws SQLException {
+        return listUsers(UserQuery.ALL);
+    }
+
+    public List<UserAccount> listUsers(UserQuery query) throws SQLException {
+        SqlConditions where = new SqlConditions()
+                .startsWith("fullname", query.name())
+                .equal("role", query.role());
+        String sql = "SELECT id, username, fullname, role FROM users" + where.where()
+                + orderBy(query.sortBy(), USER_SORTS, "id", query.descending());
+        return metrics.time("listUsers", () -> {
+            List<UserAccount> users = new ArrayList<>();
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                where.bind(pstmt, 1);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        users.add(new UserAccount(rs.getInt("id"), rs.getString("username"),
+                                rs.getString("fullname"), rs.getString("role")));
+                    }
+                }
+            }
+            return users;
+        });
+    }
+
+    public int addUser(String username, String password, String role, String fullName) throws SQLException {
+        return metrics.time("addUser", () -> {
+            String sql = "INSERT INTO users (username, password, role, fullname) VALUES (?, ?, ?, ?)";
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, username);
+                pstmt.setString(2, password);
+                pstmt.setString(3, role);
+                pstmt.setString(4, fullName);
+                pstmt.executeUpdate();
+
+                referenceData.invalidateUser(username);
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        int userId = rs.getInt(1);
+                        events.publish(new DomainEvent.UserAdded(userId, username, fullName, role));
+                        return userId;
+                    }
+                }
+            }
+            throw new SQLException("Failed to get user ID");
+        });
+    }
+
+    /**
+     * One keyset page of bookings with ids in (afterId, upToId], ordered by id. Archived
+     * bookings are left out.
+     *
+     * @param guestUsername only this guest's bookings, or null for all
+     * @param upToId        upper bound when refetching a known page, or null
+     */
+    public List<BookingRow> bookingsPage(String guestUsername, int afterId, Integer upToId, int limit)
+            throws SQLException {
+        return bookingsPage(guestUsername, afterId, upToId, limit, false);
+    }
+
+    /**
+     * As above, optionally with archived bookings merged in by id.
+     */
+    public List<BookingRow> bookingsPage(String guestUsername, int afterId, Integer upToId, int limit,
+                                         boolean includeHistory) throws SQLException {
+        return bookingsPage(guestUsername, BookingQuery.ALL, new BookingQuery.Cursor(afterId, afterId),
+                upToId == null ? null : new BookingQuery.Cursor(upToId, upToId), limit, includeHistory);
+    }
+
+    /**
+     * One keyset page of the bookings matching the query, in its order: the rows after
+     * the cursor (from the start if it is null) and, when refetching a known page, up to
+     * and including upTo.
+     */
+    public List<BookingRow> bookingsPage(String guestUsername, BookingQuery query, BookingQuery.Cursor after,
+                                         BookingQuery.Cursor upTo, int limit, boolean includeHistory)
+            throws SQLException {
+        return metrics.time(includeHistory ? "loadBookingsHistoryPage" : "loadBookingsPage", () -> {
+            try (Connection conn = pool.getConnection()) {
+                List<BookingRow> rows = bookingsPage(conn, "bookings", guestUsername, query, after, upTo, limit);
+                if (!includeHistory) return rows;
+
+                // Each table is read with its own keyset query rather than through the
+                // bookings_all view, which MySQL would materialize in full
+                List<BookingRow> archived = bookingsPage(conn, "bookings_archive", guestUsername, query, after, upTo,
+                        limit);
+                Comparator<BookingRow> order = query.order();
+                List<BookingRow> merged = new ArrayList<>(limit);
+                int h = 0;
+                int a = 0;
+                while (merged.size() < limit && (h < rows.size() || a < archived.size())) {
+                    if (a == archived.size()
+                            || h < rows.size() && order.compare(rows.get(h), archived.get(a)) < 0) {
+                        merged.add(rows.get(h++));
+                    } else {
+                        merged.add(archived.get(a++));
+                    }
+                }
+                return merged;
+            }
+        });
+    }
+
+    private static List<BookingRow> bookingsPage(Connection conn, String table, String guestUsername,
+                                                 BookingQuery query, BookingQuery.Cursor after,
+                                                 BookingQuery.Cursor upTo, int limit) throws SQLException {
+        SqlConditions where = query.conditions(guestUsername, after, upTo);
+        String sql = "SELECT b.id, r.room_number, b.check_in_date, b.check_out_date, b.total_price, b.status " +
+                "FROM " + table + " b " +
+                "JOIN rooms r ON b.room_id = r.id" +
+                (query.needsUsers(guestUsername) ? " JOIN users u ON b.guest_id = u.id" : "") +
+                where.where() + query.orderBy() + " LIMIT ?";
+
+        List<BookingRow> rows = new ArrayList<>(limit);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(where.bind(pstmt, 1), limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new BookingRow(rs.getInt("id"), rs.getString("room_number"),
+                            rs.getDate("check_in_date").toLocalDate(), rs.getDate("check_out_date").toLocalDate(),
+                            rs.getDouble("total_price"), rs.getString("status")));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Looks in the archive only when the booking isn't in the hot table
+    public BookingDetails bookingDetails(int bookingId) throws SQLException {
+        return metrics.time("loadBookingDetails", () -> {
+            try (Connection conn = pool.getConnection()) {
+                for (String table : new String[]{"bookings", "bookings_archive"}) {
+                    String sql = "SELECT b.id, r.room_number, u.fullname, b.status, u.username " +
+                            "FROM " + table + " b " +
+                            "JOIN rooms r ON b.room_id = r.id " +
+                            "JOIN users u ON b.guest_id = u.id " +
+                            "WHERE b.id = ?";
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setInt(1, bookingId);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            if (rs.next()) {
+                                return new BookingDetails(rs.getInt("id"), rs.getString("room_number"),
+                                        rs.getString("fullname"), rs.getString("status"), rs.getString("username"));
+                            }
+                        }
+                    }
+                }
+            }
+            throw new NoSuchElementException("Booking not found");
+        });
+    }
+
+    public List<String> freeRooms(LocalDate checkIn, LocalDate checkOut) {
+        return availability.freeRooms(checkIn, checkOut);
+    }
+
+    /**
+     * Free rooms for the stay with their totals, in room number order. Rooms whose
+     * minimum stay isn't met are left out.
+     */
+    public Map<String, Double> freeRoomQuotes(LocalDate checkIn, LocalDate checkOut) throws SQLException {
+        return metrics.time("freeRoomQuotes", () -> {
+            nights(checkIn, checkOut);
+            List<String> free = availability.freeRooms(checkIn, checkOut);
+            RatePlans plans = rates;
+            int[] typeIds = new int[free.size()];
+            double[] prices = new double[free.size()];
+            try (Connection conn = pool.getConnection()) {
+                for (int i = 0; i < free.size(); i++) {
+                    ReferenceData.RoomInfo room = referenceData.cachedRoom(free.get(i));
+                    if (room == null) room = room(conn, free.get(i));
+                    typeIds[i] = plans.typeId(room.type());
+                    prices[i] = room.price();
+                }
+            }
+            double[] totals = new double[free.size()];
+            plans.quoteAll(typeIds, prices, checkIn, checkOut, totals);
+
+            Map<String, Double> quotes = new LinkedHashMap<>();
+            for (int i = 0; i < totals.length; i++) {
+                if (!Double.isNaN(totals[i])) quotes.put(free.get(i), totals[i]);
+            }
+            return quotes;
+        });
+    }
+
+    /**
+     * Price for the stay from cached room data, or null if the room isn't cached yet.
+     * Cheap enough to call on the EDT.
+     */
+    public Double cachedQuote(String roomNumber, LocalDate checkIn, LocalDate checkOut) {
+        ReferenceData.RoomInfo room = referenceData.cachedRoom(roomNumber);
+        return room == null ? null : rates.quote(room.type(), room.price(), checkIn, checkOut);
+    }
+
+    public double quote(String roomNumber, LocalDate checkIn, LocalDate checkOut) throws SQLException {
+        return metrics.time("quote", () -> {
+            nights(checkIn, checkOut);
+            Double cached = cachedQuote(roomNumber, checkIn, checkOut);
+            if (cached != null) return cached;
+            try (Connection conn = pool.getConnection()) {
+                ReferenceData.RoomInfo room = room(conn, roomNumber);
+                return rates.quote(room.type(), room.price(), checkIn, checkOut);
+            }
+        });
+    }
+
+    // Recompiles the rate calendars after the rate_* tables have been edited
+    public void reloadRates() throws SQLException {
+        metrics.time("loadRates", () -> {
+            try (Connection conn = pool.getConnection()) {
+                rates = RatePlans.load(conn, LocalDate.now());
+            }
+            LOG.info("Loaded " + rates);
+            return null;
+        });
+    }
+
+    // Validates the dates; the rate plans do the actual pricing
+    private static long nights(LocalDate checkIn, LocalDate checkOut) {
+        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
+        if (nights <= 0) throw new IllegalArgumentException("Check-in date must be before check-out date");
+        return nights;
+    }
+
+    private ReferenceData.RoomInfo room(Connection conn, String roomNumber) throws SQLException {
+        ReferenceData.RoomInfo room = referenceData.room(conn, roomNumber);
+        if (room == null) throw new NoSuchElementException("Room not found");
+        return room;
+    }
+
+    /**
+     * Books the room for the guest. The total is priced here from the rate plans rather than
+     * trusted from the caller.
+     * Overlapping stays are rejected by the availability index before the database is touched,
+     * and checked again under a lock on the room's row for bookings other clients just made.
+     */
+    public Booked book(String username, String roomNumber, LocalDate checkIn, LocalDate checkOut,
+                       String paymentMethod) throws SQLException {
+        return metrics.time("createBooking", () -> {
+            if (!PAYMENT_METHODS.contains(paymentMethod)) {
+                throw new IllegalArgumentException("Unknown payment method: " + paymentMethod);
+            }
+            nights(checkIn, checkOut);
+
+            try (Connection conn = pool.getConnection()) {
+                ReferenceData.UserInfo guest = referenceData.user(conn, username);
+                if (guest == null) throw new NoSuchElementException("User not found");
+                ReferenceData.RoomInfo room = room(conn, roomNumber);
+                double total = rates.quote(room.type(), room.price(), checkIn, checkOut);
+
+                AvailabilityIndex.Hold hold = availability.tryHold(room.id(), checkIn, checkOut);
+                if (hold == null) {
+                    throw new IllegalStateException("Room " + roomNumber + " is not available for those dates");
+                }
+
+                boolean booked = false;
+                try {
+                    BookingDao.BookingResult result = BookingDao.createBooking(conn, guest.id(), room,
+                            checkIn, checkOut, total, paymentMethod);
+                    hold.confirm(result.bookingId());
+                    booked = true;
+                    // Room status just changed
+                    referenceData.invalidateRoom(roomNumber);
+                    LOG.fine(() -> String.format("Booking %d created in %.1f ms",
+                            result.bookingId(), result.elapsedNanos() / 1e6));
+                    publishBooked(username, room, checkIn, checkOut, total, paymentMethod, result);
+                    return new Booked(result.bookingId(), roomNumber, total, result.elapsedNanos());
+                } finally {
+                    if (!booked) {
+                        hold.release();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Books a block of rooms for one guest and stay, such as a wedding party. roomsByType
+     * says how many rooms of each type are wanted; specific rooms are picked from those
+     * free for the dates, in room number order. Either every room is booked or none is.
+     */
+    public BlockBooked bookBlock(String username, Map<String, Integer> roomsByType, LocalDate checkIn,
+                                 LocalDate checkOut, String paymentMethod) throws SQLException {
+        return metrics.time("createBlockBooking", () -> {
+            if (!PAYMENT_METHODS.contains(paymentMethod)) {
+                throw new IllegalArgumentException("Unknown payment method: " + paymentMethod);
+            }
+            nights(checkIn, checkOut);
+            Map<String, Integer> wanted = new TreeMap<>();
+            int count = 0;
+            for (Map.Entry<String, Integer> entry : roomsByType.entrySet()) {
+                if (entry.getValue() < 0) throw new IllegalArgumentException("Room counts must not be negative");
+                if (entry.getValue() > 0) wanted.put(entry.getKey(), entry.getValue());
+                count += entry.getValue();
+            }
+            if (count == 0) throw new IllegalArgumentException("Choose at least one room");
+            if (count > MAX_BLOCK_ROOMS) {
+                throw new IllegalArgumentException("A block can have at most " + MAX_BLOCK_ROOMS + " rooms");
+            }
+
+            try (Connection conn = pool.getConnection()) {
+                ReferenceData.UserInfo guest = referenceData.user(conn, username);
+                if (guest == null) throw new NoSuchElementException("User not found");
+
+                List<ReferenceData.RoomInfo> rooms = new ArrayList<>(count);
+                List<AvailabilityIndex.Hold> holds = new ArrayList<>(count);
+                boolean booked = false;
+                try {
+                    for (String roomNumber : availability.freeRooms(checkIn, checkOut)) {
+                        if (wanted.isEmpty()) break;
+                        ReferenceData.RoomInfo room = referenceData.room(conn, roomNumber);
+                        if (room == null || !wanted.containsKey(room.type())) continue;
+                        // Another booking may have taken it since freeRooms looked
+                        AvailabilityIndex.Hold hold = availability.tryHold(room.id(), checkIn, checkOut);
+                        if (hold == null) continue;
+                        holds.add(hold);
+                        rooms.add(room);
+                        wanted.computeIfPresent(room.type(), (type, left) -> left > 1 ? left - 1 : null);
+                    }
+                    if (!wanted.isEmpty()) {
+                        StringBuilder missing = new StringBuilder();
+                        wanted.forEach((type, left) -> missing.append(missing.length() > 0 ? ", " : "")
+                                .append(left).append(' ').append(type));
+                        throw new IllegalStateException("Not enough free rooms for those dates; short by " + missing);
+                    }
+
+                    RatePlans plans = rates;
+                    int[] typeIds = new int[count];
+                    double[] prices = new double[count];
+                    for (int i = 0; i < count; i++) {
+                        typeIds[i] = plans.typeId(rooms.get(i).type());
+                        prices[i] = rooms.get(i).price();
+                    }
+                    double[] totals = new double[count];
+                    plans.quoteAll(typeIds, prices, checkIn, checkOut, totals);
+                    for (int i = 0; i < count; i++) {
+                        if (Double.isNaN(totals[i])) {
+                            // Same message quote() would give
+                            plans.quote(rooms.get(i).type(), prices[i], checkIn, checkOut);
+                        }
+                    }
+
+                    BookingDao.BlockResult result = BookingDao.createBlock(conn, guest.id(), rooms, checkIn, checkOut,
+                            totals, paymentMethod);
+                    List<Booked> bookings = new ArrayList<>(count);
+                    double total = 0;
+                    for (int i = 0; i < count; i++) {
+                        holds.get(i).confirm(result.bookingIds()[i]);
+                        bookings.add(new Booked(result.bookingIds()[i], rooms.get(i).roomNumber(), totals[i],
+                                result.elapsedNanos()));
+                        total += totals[i];
+                    }
+                    booked = true;
+                    for (int i = 0; i < count; i++) {
+                        ReferenceData.RoomInfo room = rooms.get(i);
+                        referenceData.invalidateRoom(room.roomNumber());
+                        publishBooked(username, room, checkIn, checkOut, totals[i], paymentMethod,
+                                new BookingDao.BookingResult(result.bookingIds()[i], result.createdAt(),
+                                        result.elapsedNanos()));
+                    }
+                    LOG.info(String.format("Block of %d rooms booked for %s in %.1f ms",
+                            count, username, result.elapsedNanos() / 1e6));
+                    return new BlockBooked(bookings, Math.round(total * 100) / 100.0, result.elapsedNanos());
+                } finally {
+                    if (!booked) {
+                        holds.forEach(AvailabilityIndex.Hold::release);
+                    }
+                }
+            }
+        });
+    }
+
+    private void publishBooked(String username, ReferenceData.RoomInfo room, LocalDate checkIn, LocalDate checkOut,
+                               double total, String paymentMethod, BookingDao.BookingResult result) {
+        journal(EventJournal.Type.BOOKING_CREATED, result.bookingId(), username, "Booked", total,
+                room.roomNumber());
+        journal(EventJournal.Type.PAYMENT_RECORDED, result.bookingId(), username, "Booked", total, paymentMethod);
+        ownWrites.put("booking:" + result.bookingId(), "Booked");
+        ownWrites.put("payment:" + result.bookingId(), "recorded");
+        events.publish(new DomainEvent.BookingCreated(result.bookingId(), username, room.roomNumber(),
+                checkIn, checkOut, total, "Booked", result.createdAt()));
+        events.publish(new DomainEvent.PaymentRecorded(result.bookingId(), total, paymentMethod, room.type(),
+                result.createdAt()));
+        if (!"Booked".equals(room.status())) {
+            ownWrites.put("room:" + room.id(), "Booked");
+            events.publish(new DomainEvent.RoomStatusChanged(room.id(), room.roomNumber(), room.status(), "Booked"));
+        }
+    }
+
+    /**
+     * Moves the booking to the status. Returns null if the id doesn't exist.
+     *
+     * @param actor who made the change, for the booking event journal
+     * @throws BookingStatus.TransitionRejected if the booking's lifecycle doesn't allow it,
+     *         typically because someone else changed the booking first
+     */
+    public BookingDao.StatusChange updateBookingStatus(int bookingId, BookingStatus status, String actor)
+            throws SQLException {
+        return metrics.time("updateBookingStatus", () -> {
+            BookingDao.StatusChange change;
+            try (Connection conn = pool.getConnection()) {
+                change = BookingDao.changeBookingStatus(conn, bookingId, status);
+            }
+            if (change != null) {
+                availability.bookingStatusChanged(bookingId, status.label());
+                journal(EventJournal.Type.STATUS_CHANGED, bookingId, actor, status.label(), 0, null);
+                ownWrites.put("booking:" + bookingId, status.label());
+                events.publish(new DomainEvent.BookingStatusChanged(bookingId, status.label(), change.changedAt()));
+            }
+            return change;
+        });
+    }
+
+    public Map<String, Integer> occupancy() throws SQLException {
+        return metrics.time("occupancyReport", () -> {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            try (Connection conn = pool.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT status, COUNT(*) AS count FROM rooms GROUP BY status")) {
+                while (rs.next()) {
+                    counts.put(rs.getString("status"), rs.getInt("count"));
+                }
+            }
+            return counts;
+        });
+    }
+
+    public List<Rollups.RevenueRow> revenue(LocalDate from, LocalDate to) throws SQLException {
+        return metrics.time("revenueReport", () -> {
+            try (Connection conn = pool.getConnection()) {
+                return Rollups.revenue(conn, from, to);
+            }
+        });
+    }
+
+    public List<Rollups.ActivityRow> activity(LocalDate from, LocalDate to) throws SQLException {
+        return metrics.time("activityReport", () -> {
+            try (Connection conn = pool.getConnection()) {
+                return Rollups.activity(conn, from, to);
+            }
+        });
+    }
+
+    public void rebuildRollups() throws SQLException {
+        metrics.time("rebuildRollups", () -> {
+            try (Connection conn = pool.getConnection()) {
+                Rollups.rebuild(conn);
+            }
+            return null;
+        });
+    }
+
+    public BulkImporter.Progress importFile(BulkImporter.Kind kind, Path file, int batchSize,
+                                            Consumer<BulkImporter.Progress> onProgress,
+                                            Runnable onRebuildingRollups) throws SQLException, IOException {
+        try {
+            return metrics.time("importFile", () -> {
+                BulkImporter.Progress result;
+                try (Connection conn = pool.getConnection()) {
+                    result = new BulkImporter(referenceData, batchSize).importFile(conn, kind, file, onProgress);
+                    if (kind == BulkImporter.Kind.BOOKINGS && result.imported() > 0) {
+                        // Imported history bypasses the per-write rollup updates
+                        onRebuildingRollups.run();
+                        Rollups.rebuild(conn);
+                    }
+                    referenceData.invalidateAll();
+                    if (kind != BulkImporter.Kind.USERS) {
+                        availability.reload(conn);
+                    }
+                    if (result.imported() > 0) {
+                        events.publish(new DomainEvent.DataImported(kind));
+                    }
+                } catch (IOException e) {
+                    // Operation only carries one checked exception type
+                    throw new UncheckedIOException(e);
+                }
+                return result;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Streams bookings or payments dated from..to into the file. Runs on its own pooled
+     * connection for as long as the export takes.
+     */
+    public DataExporter.Progress export(DataExporter.Kind kind, DataExporter.Format format, LocalDate from,
+                                        LocalDate to, boolean includeHistory, Path file,
+                                        Consumer<DataExporter.Progress> onProgress)
+            throws SQLException, IOException {
+        try {
+            return metrics.time("export", () -> {
+                try (Connection conn = pool.getConnection()) {
+                    return new DataExporter(kind, format, includeHistory).export(conn, from, to, file, onProgress);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (metricsExport != null) {
+            metricsExport.shutdownNow();
+        }
+        if (changeSync != null) {
+            changeSync.shutdownNow();
+        }
+        if (nightAuditScheduler != null) {
+            nightAuditScheduler.shutdownNow();
+        }
+        if (journalReplication != null) {
+            journalReplication.shutdownNow();
+        }
+        if (journal != null) {
+            // Whatever wasn't copied yet is picked up from the journal on the next start
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Closing the booking event journal failed", e);
+            }
+        }
+        dataAccess.close();
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies the event journal into the booking_events table behind the writers, a batch
+ * at a time. The table's last sequence for this journal is the checkpoint, so after a
+ * restart, or against an emptied table, copying simply replays the journal from there.
+ */
+public class JournalReplicator {
+
+    static final int BATCH_SIZE = 500;
+
+    private final ConnectionPool pool;
+    private final EventJournal journal;
+    private EventJournal.Cursor cursor;
+
+    public JournalReplicator(ConnectionPool pool, EventJournal journal) {
+        this.pool = pool;
+        this.journal = journal;
+    }
+
+    /**
+     * Copies everything appended since the last call and returns how many entries that
+     * was. Not safe to call from more than one thread at a time.
+     */
+    public int replicate() throws SQLException, IOException {
+        try (Connection conn = pool.getConnection()) {
+            if (cursor == null) {
+                cursor = journal.cursor(lastReplicated(conn));
+            }
+            int total = 0;
+            List<EventJournal.Entry> batch = new ArrayList<>(BATCH_SIZE);
+            while (true) {
+                batch.clear();
+                cursor.next(BATCH_SIZE, batch::add);
+                if (batch.isEmpty()) return total;
+                try {
+                    DataAccess.inTransaction(conn, c -> insert(c, batch));
+                } catch (SQLException e) {
+                    // The cursor has moved past the batch; start again from what was committed
+                    cursor = null;
+                    throw e;
+                }
+                total += batch.size();
+                if (batch.size() < BATCH_SIZE) return total;
+            }
+        }
+    }
+
+    private long lastReplicated(Connection conn) throws SQLException {
+        String sql = "SELECT MAX(sequence) FROM booking_events WHERE source = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, journal.source());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private Void insert(Connection conn, List<EventJournal.Entry> batch) throws SQLException {
+        String sql = "INSERT INTO booking_events (source, sequence, event_type, booking_id, actor, status, amount, " +
+                "detail, occurred_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (EventJournal.Entry entry : batch) {
+                pstmt.setString(1, journal.source());
+                pstmt.setLong(2, entry.sequence());
+                pstmt.setString(3, entry.type().name());
+                pstmt.setInt(4, entry.bookingId());
+                pstmt.setString(5, entry.actor());
+                pstmt.setString(6, entry.status());
+                pstmt.setDouble(7, entry.amount());
+                pstmt.setString(8, entry.detail());
+                pstmt.setTimestamp(9, Timestamp.valueOf(entry.occurredAt()));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        return null;
+    }
+}
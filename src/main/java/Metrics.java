@@ -0,0 +1,339 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Latency histograms, row counts and error counts for each named data operation, plus a
+ * slow-statement log and JFR events. Operations nest: statements run by the pool are
+ * charged to the innermost operation on the calling thread.
+ *
+ * Settings (system properties): hotel.metrics.slowQueryMillis (default 250) and
+ * hotel.metrics.file, a path the Prometheus text dump is rewritten to every 15 seconds.
+ */
+public class Metrics implements ConnectionPool.StatementListener {
+    private static final Logger LOG = Logger.getLogger(Metrics.class.getName());
+    private static final Logger SLOW_LOG = Logger.getLogger("hotel.slowquery");
+
+    private static final Metrics INSTANCE = new Metrics(Long.getLong("hotel.metrics.slowQueryMillis", 250));
+
+    @FunctionalInterface
+    public interface Operation<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private final long slowNanos;
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final LongAdder slowStatements = new LongAdder();
+    private final ThreadLocal<Scope> current = new ThreadLocal<>();
+
+    Metrics(long slowQueryMillis) {
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    }
+
+    // Process-wide registry, shared by the service, the DAOs and the connection pool
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the work as the named operation, recording its latency, whether it failed, and
+     * its rows: the size of a returned collection or map, otherwise the rows its statements updated.
+     */
+    public <T, E extends Exception> T time(String name, Operation<T, E> work) throws E {
+        Scope scope = new Scope(name, current.get());
+        current.set(scope);
+        OperationEvent event = new OperationEvent();
+        event.begin();
+        boolean failed = true;
+        T result = null;
+        try {
+            result = work.run();
+            failed = false;
+            return result;
+        } finally {
+            current.set(scope.parent);
+            long nanos = System.nanoTime() - scope.startNanos;
+            long rows = result instanceof Collection<?> c ? c.size()
+                    : result instanceof Map<?, ?> m ? m.size() : scope.updatedRows;
+            stats(name).record(nanos, rows, failed);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = name;
+                event.rows = rows;
+                event.success = !failed;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void statementExecuted(String sql, long nanos, long updatedRows, SQLException error) {
+        Scope scope = current.get();
+        String operation = scope != null ? scope.name : "unnamed";
+        if (scope != null && updatedRows > 0) {
+            scope.updatedRows += updatedRows;
+        }
+        if (scope == null) {
+            // Statements outside any named operation still get their own latency
+            stats("unnamed").record(nanos, Math.max(0, updatedRows), error != null);
+        }
+
+        if (nanos >= slowNanos) {
+            slowStatements.increment();
+            SLOW_LOG.warning(String.format("Slow statement in %s: %.1f ms%s: %s", operation, nanos / 1e6,
+                    updatedRows >= 0 ? ", " + updatedRows + " rows" : "", sql));
+        }
+
+        StatementEvent event = new StatementEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.sql = sql;
+            event.rows = updatedRows;
+            event.success = error == null;
+            event.durationMillis = nanos / 1e6;
+            event.commit();
+        }
+    }
+
+    private OperationStats stats(String name) {
+        return operations.computeIfAbsent(name, n -> new OperationStats());
+    }
+
+    /**
+     * Prometheus text exposition format, with pool gauges when a pool is given.
+     */
+    public String toPrometheus(ConnectionPool pool) {
+        StringBuilder out = new StringBuilder(4096);
+        Map<String, OperationStats> sorted = new TreeMap<>(operations);
+
+        out.append("# HELP hotel_operation_duration_seconds Latency of named data operations\n");
+        out.append("# TYPE hotel_operation_duration_seconds summary\n");
+        sorted.forEach((name, stats) -> {
+            LatencyHistogram.Snapshot snapshot = stats.latency.snapshot();
+            for (double quantile : new double[]{0.5, 0.95, 0.99}) {
+                out.append("hotel_operation_duration_seconds{operation=\"").append(name)
+                        .append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(snapshot.percentileNanos(quantile) / 1e9).append('\n');
+            }
+            out.append("hotel_operation_duration_seconds_sum{operation=\"").append(name).append("\"} ")
+                    .append(snapshot.sumNanos() / 1e9).append('\n');
+            out.append("hotel_operation_duration_seconds_count{operation=\"").append(name).append("\"} ")
+                    .append(snapshot.count()).append('\n');
+        });
+
+        counter(out, sorted, "hotel_operation_rows_total", "Rows returned or updated by named operations",
+                stats -> stats.rows.sum());
+        counter(out, sorted, "hotel_operation_errors_total", "Failed named operations",
+                stats -> stats.errors.sum());
+
+        out.append("# HELP hotel_slow_statements_total Statements slower than the slow-query threshold\n");
+        out.append("# TYPE hotel_slow_statements_total counter\n");
+        out.append("hotel_slow_statements_total ").append(slowStatements.sum()).append('\n');
+
+        if (pool != null) {
+            ConnectionPool.Stats stats = pool.stats();
+            gauge(out, "hotel_pool_active_connections", "Connections currently borrowed", stats.active());
+            gauge(out, "hotel_pool_idle_connections", "Open connections waiting in the pool", stats.idle());
+            gauge(out, "hotel_pool_waiting_threads", "Threads waiting for a connection", stats.waiting());
+            gauge(out, "hotel_pool_avg_wait_seconds", "Average wait to borrow a connection",
+                    stats.avgWaitMillis() / 1e3);
+        }
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, Map<String, OperationStats> operations, String metric,
+                                String help, ToLongFunction<OperationStats> value) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(" counter\n");
+        operations.forEach((name, stats) -> out.append(metric).append("{operation=\"").append(name)
+                .append("\"} ").append(value.applyAsLong(stats)).append('\n'));
+    }
+
+    private static void gauge(StringBuilder out, String metric, String help, double value) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(" gauge\n");
+        out.append(metric).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Rewrites the Prometheus dump to the file on a schedule, for node_exporter's textfile
+     * collector or just for reading. Returns the scheduler so the caller can stop it.
+     */
+    public ScheduledExecutorService exportTo(Path file, ConnectionPool pool, long period, TimeUnit unit) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-export");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                // Write then rename so readers never see half a file
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    out.write(toPrometheus(pool));
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Cannot write metrics to " + file, e);
+            }
+        }, 0, period, unit);
+        return scheduler;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        new TreeMap<>(operations).forEach((name, stats) -> {
+            LatencyHistogram.Snapshot s = stats.latency.snapshot();
+            out.append(String.format("%s: %d calls, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, %d errors%n",
+                    name, s.count(), s.percentileNanos(0.5) / 1e6, s.percentileNanos(0.95) / 1e6,
+                    s.percentileNanos(0.99) / 1e6, stats.errors.sum()));
+        });
+        return out.toString();
+    }
+
+    // The operation running on a thread; only that thread touches it
+    private static final class Scope {
+        final String name;
+        final Scope parent;
+        final long startNanos = System.nanoTime();
+        long updatedRows;
+
+        Scope(String name, Scope parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+    }
+
+    private static final class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder rows = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        void record(long nanos, long rowCount, boolean failed) {
+            latency.record(nanos);
+            rows.add(rowCount);
+            if (failed) errors.increment();
+        }
+    }
+
+    /**
+     * Lock-free log-linear histogram: each power of two of microseconds is split into
+     * eight buckets, so percentiles are within 12.5% from 1 microsecond up to hours.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BUCKETS = 8;
+        private static final int SUB_BITS = 3;
+        private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            counts.incrementAndGet(bucket(micros));
+            sum.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        static int bucket(long micros) {
+            if (micros < SUB_BUCKETS) return (int) micros;
+            int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return Math.min(BUCKETS - 1, (magnitude - SUB_BITS + 1) * SUB_BUCKETS + sub);
+        }
+
+        // Largest value, in microseconds, that lands in the bucket
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int magnitude = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            int sub = bucket % SUB_BUCKETS;
+            long low = (long) (SUB_BUCKETS + sub) << (magnitude - SUB_BITS);
+            return low + (1L << (magnitude - SUB_BITS)) - 1;
+        }
+
+        Snapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = counts.get(i);
+                total += copy[i];
+            }
+            return new Snapshot(copy, total, sum.sum(), max.get());
+        }
+
+        record Snapshot(long[] counts, long count, long sumNanos, long maxNanos) {
+            long percentileNanos(double quantile) {
+                if (count == 0) return 0;
+                long rank = (long) Math.ceil(quantile * count);
+                long seen = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    seen += counts[i];
+                    if (seen >= rank) return Math.min(maxNanos, upperBound(i) * 1000 + 999);
+                }
+                return maxNanos;
+            }
+        }
+    }
+
+    @Name("hotel.Operation")
+    @Label("Data Operation")
+    @Category({"Hotel", "Database"})
+    @Description("A named service or DAO operation")
+    static final class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("hotel.Statement")
+    @Label("SQL Statement")
+    @Category({"Hotel", "Database"})
+    @Description("One JDBC statement execution")
+    static final class StatementEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("SQL")
+        String sql;
+
+        @Label("Updated Rows")
+        long rows;
+
+        @Label("Success")
+        boolean success;
+
+        @Label("Duration (ms)")
+        double durationMillis;
+    }
+}
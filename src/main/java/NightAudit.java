@@ -0,0 +1,296 @@
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Closes a business day. Bookings still "Booked" whose check-in day has passed become
+ * No-Show, stays still "Checked In" past their check-out day are checked out, and rooms
+ * left Booked or Occupied with no current stay are released.
+ *
+ * Candidate bookings are streamed by id from a forward-only cursor on one connection
+ * while a second connection applies them in chunks of {@link #CHUNK_SIZE}, so memory use
+ * does not depend on the number of bookings. Each chunk commits together with its rollups
+ * and the checkpoint in night_audit_runs, so an interrupted audit picks up where it left
+ * off. The same row keeps two clients from auditing one day at the same time.
+ *
+ * Each booking whose status changed is passed to the {@link Listener} once its chunk has
+ * committed, so the booking event journal records the audit's changes too.
+ */
+public class NightAudit {
+    private static final Logger LOG = Logger.getLogger(NightAudit.class.getName());
+
+    public interface Listener {
+        void statusChanged(int bookingId, String status);
+    }
+
+    public record Summary(LocalDate businessDate, int noShows, int checkedOut, int roomsReleased, boolean resumed,
+                          long elapsedNanos) {
+        @Override
+        public String toString() {
+            return String.format("Night audit for %s%s: %,d no-shows, %,d checked out, %,d rooms released (%.1f s)",
+                    businessDate, resumed ? " (resumed)" : "", noShows, checkedOut, roomsReleased, elapsedNanos / 1e9);
+        }
+    }
+
+    private enum Phase {
+        NO_SHOW("Booked", "No-Show",
+                "SELECT id FROM bookings WHERE status = 'Booked' AND check_in_date <= ? AND id > ? ORDER BY id"),
+        CHECK_OUT("Checked In", "Checked Out",
+                "SELECT id FROM bookings WHERE status = 'Checked In' AND check_out_date <= ? AND id > ? ORDER BY id"),
+        RELEASE_ROOMS(null, null, null),
+        DONE(null, null, null);
+
+        private final String fromStatus;
+        private final String toStatus;
+        private final String candidates;
+
+        Phase(String fromStatus, String toStatus, String candidates) {
+            this.fromStatus = fromStatus;
+            this.toStatus = toStatus;
+            this.candidates = candidates;
+        }
+    }
+
+    private static final int CHUNK_SIZE = 1000;
+    // A run whose owner hasn't committed anything for this long is taken over
+    private static final long STALE_MILLIS = 10 * 60_000;
+
+    private final ConnectionPool pool;
+    private final Listener listener;
+    private final String owner;
+
+    public NightAudit(ConnectionPool pool, Listener listener) {
+        this.pool = pool;
+        this.listener = listener;
+        this.owner = ProcessHandle.current().pid() + "@" + hostName();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Audits the day, or finishes an earlier attempt at it. Returns null if the day was
+     * already audited or another client is auditing it right now.
+     */
+    public Summary run(LocalDate businessDate) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection();
+             Connection cursorConn = pool.getConnection()) {
+            Checkpoint checkpoint = claim(conn, businessDate);
+            if (checkpoint == null) return null;
+            boolean resumed = checkpoint.phase != Phase.NO_SHOW || checkpoint.lastBookingId > 0;
+            if (resumed) {
+                LOG.info("Resuming night audit for " + businessDate + " at " + checkpoint.phase
+                        + " after booking " + checkpoint.lastBookingId);
+            }
+
+            while (checkpoint.phase != Phase.DONE) {
+                switch (checkpoint.phase) {
+                    case NO_SHOW, CHECK_OUT -> processBookings(conn, cursorConn, businessDate, checkpoint);
+                    case RELEASE_ROOMS -> releaseRooms(conn, businessDate, checkpoint);
+                    default -> throw new IllegalStateException("Unexpected phase " + checkpoint.phase);
+                }
+            }
+
+            Summary summary = new Summary(businessDate, checkpoint.noShows, checkpoint.checkedOut,
+                    checkpoint.roomsReleased, resumed, System.nanoTime() - start);
+            LOG.info(summary.toString());
+            return summary;
+        }
+    }
+
+    private static final class Checkpoint {
+        private Phase phase;
+        private int lastBookingId;
+        private int noShows;
+        private int checkedOut;
+        private int roomsReleased;
+    }
+
+    // Takes the day's run row, creating it on the first attempt
+    private Checkpoint claim(Connection conn, LocalDate businessDate) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String insert = "INSERT INTO night_audit_runs (business_date, status, owner, phase, started_at, heartbeat_at) " +
+                "VALUES (?, 'Running', ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(businessDate));
+            pstmt.setString(2, owner);
+            pstmt.setString(3, Phase.NO_SHOW.name());
+            pstmt.setTimestamp(4, now);
+            pstmt.setTimestamp(5, now);
+            pstmt.executeUpdate();
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.phase = Phase.NO_SHOW;
+            return checkpoint;
+        } catch (SQLException e) {
+            // 23xxx: the row is already there
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) throw e;
+        }
+
+        String takeOver = "UPDATE night_audit_runs SET owner = ?, heartbeat_at = ? " +
+                "WHERE business_date = ? AND status = 'Running' AND (owner = ? OR heartbeat_at < ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(takeOver)) {
+            pstmt.setString(1, owner);
+            pstmt.setTimestamp(2, now);
+            pstmt.setDate(3, java.sql.Date.valueOf(businessDate));
+            pstmt.setString(4, owner);
+            pstmt.setTimestamp(5, new Timestamp(now.getTime() - STALE_MILLIS));
+            if (pstmt.executeUpdate() == 0) return null;
+        }
+
+        String select = "SELECT phase, last_booking_id, no_shows, checked_out, rooms_released " +
+                "FROM night_audit_runs WHERE business_date = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(select)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(businessDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return null;
+                Checkpoint checkpoint = new Checkpoint();
+                checkpoint.phase = Phase.valueOf(rs.getString("phase"));
+                checkpoint.lastBookingId = rs.getInt("last_booking_id");
+                checkpoint.noShows = rs.getInt("no_shows");
+                checkpoint.checkedOut = rs.getInt("checked_out");
+                checkpoint.roomsReleased = rs.getInt("rooms_released");
+                return checkpoint;
+            }
+        }
+    }
+
+    private void processBookings(Connection conn, Connection cursorConn, LocalDate businessDate,
+                                 Checkpoint checkpoint) throws SQLException {
+        Phase phase = checkpoint.phase;
+        int[] chunk = new int[CHUNK_SIZE];
+        int size = 0;
+        try (PreparedStatement pstmt = cursorConn.prepareStatement(phase.candidates,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(SqlDialect.of(cursorConn).streamingFetchSize(CHUNK_SIZE));
+            pstmt.setDate(1, java.sql.Date.valueOf(businessDate));
+            pstmt.setInt(2, checkpoint.lastBookingId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    chunk[size++] = rs.getInt(1);
+                    if (size == CHUNK_SIZE) {
+                        applyChunk(conn, businessDate, checkpoint, chunk, size);
+                        size = 0;
+                    }
+                }
+            }
+        }
+        if (size > 0) {
+            applyChunk(conn, businessDate, checkpoint, chunk, size);
+        }
+        advance(conn, businessDate, checkpoint, Phase.values()[phase.ordinal() + 1]);
+    }
+
+    private void applyChunk(Connection conn, LocalDate businessDate, Checkpoint checkpoint, int[] ids, int size)
+            throws SQLException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new SQLException("Night audit interrupted; it will resume from booking " + checkpoint.lastBookingId);
+        }
+        Phase phase = checkpoint.phase;
+        int[] changedIds = DataAccess.inTransaction(conn, c -> {
+            LocalDateTime now = LocalDateTime.now();
+            int[] updatedIds = new int[size];
+            int updated = 0;
+            // The status guard skips bookings another desk changed after the cursor read them
+            String sql = "UPDATE bookings SET status = ?, status_changed_at = ?, version = version + 1 " +
+                    "WHERE id = ? AND status = ?";
+            try (PreparedStatement pstmt = c.prepareStatement(sql)) {
+                for (int i = 0; i < size; i++) {
+                    pstmt.setString(1, phase.toStatus);
+                    pstmt.setTimestamp(2, Timestamp.valueOf(now));
+                    pstmt.setInt(3, ids[i]);
+                    pstmt.setString(4, phase.fromStatus);
+                    pstmt.addBatch();
+                }
+                int[] counts = pstmt.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    // SUCCESS_NO_INFO (-2) still means the row was updated
+                    if (counts[i] != 0) updatedIds[updated++] = ids[i];
+                }
+            }
+            if (updated > 0) {
+                Rollups.recordStatusChanges(c, now.toLocalDate(), phase.toStatus, updated);
+            }
+            saveCheckpoint(c, businessDate, phase, ids[size - 1],
+                    phase == Phase.NO_SHOW ? updated : 0, phase == Phase.CHECK_OUT ? updated : 0, 0, false);
+            return Arrays.copyOf(updatedIds, updated);
+        });
+        checkpoint.lastBookingId = ids[size - 1];
+        if (phase == Phase.NO_SHOW) {
+            checkpoint.noShows += changedIds.length;
+        } else {
+            checkpoint.checkedOut += changedIds.length;
+        }
+        for (int id : changedIds) {
+            listener.statusChanged(id, phase.toStatus);
+        }
+    }
+
+    // Rooms marked Booked or Occupied with no stay still running past the business day
+    private void releaseRooms(Connection conn, LocalDate businessDate, Checkpoint checkpoint) throws SQLException {
+        int released = DataAccess.inTransaction(conn, c -> {
+            String sql = "UPDATE rooms SET status = 'Available' WHERE status IN ('Booked', 'Occupied') " +
+                    "AND NOT EXISTS (SELECT 1 FROM bookings b WHERE b.room_id = rooms.id " +
+                    "AND b.status IN ('Booked', 'Checked In') AND b.check_out_date > ?)";
+            int updated;
+            try (PreparedStatement pstmt = c.prepareStatement(sql)) {
+                pstmt.setDate(1, java.sql.Date.valueOf(businessDate));
+                updated = pstmt.executeUpdate();
+            }
+            saveCheckpoint(c, businessDate, Phase.DONE, 0, 0, 0, updated, true);
+            return updated;
+        });
+        checkpoint.roomsReleased += released;
+        checkpoint.phase = Phase.DONE;
+        checkpoint.lastBookingId = 0;
+    }
+
+    private void advance(Connection conn, LocalDate businessDate, Checkpoint checkpoint, Phase next)
+            throws SQLException {
+        DataAccess.inTransaction(conn, c -> {
+            saveCheckpoint(c, businessDate, next, 0, 0, 0, 0, false);
+            return null;
+        });
+        checkpoint.phase = next;
+        checkpoint.lastBookingId = 0;
+    }
+
+    // Fails the surrounding transaction if another client has taken the run over
+    private void saveCheckpoint(Connection conn, LocalDate businessDate, Phase phase, int lastBookingId,
+                                int noShows, int checkedOut, int roomsReleased, boolean finished)
+            throws SQLException {
+        String sql = "UPDATE night_audit_runs SET phase = ?, last_booking_id = ?, no_shows = no_shows + ?, " +
+                "checked_out = checked_out + ?, rooms_released = rooms_released + ?, heartbeat_at = ?" +
+                (finished ? ", status = 'Completed', finished_at = ?" : "") +
+                " WHERE business_date = ? AND owner = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int i = 1;
+            pstmt.setString(i++, phase.name());
+            pstmt.setInt(i++, lastBookingId);
+            pstmt.setInt(i++, noShows);
+            pstmt.setInt(i++, checkedOut);
+            pstmt.setInt(i++, roomsReleased);
+            pstmt.setTimestamp(i++, now);
+            if (finished) pstmt.setTimestamp(i++, now);
+            pstmt.setDate(i++, java.sql.Date.valueOf(businessDate));
+            pstmt.setString(i, owner);
+            if (pstmt.executeUpdate() == 0) {
+                throw new SQLException("Night audit for " + businessDate + " was taken over by another client");
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Bookings grid that loads rows a page at a time using keyset pagination in the order of
+ * its {@link BookingQuery}, by id unless a column header was clicked. Pages are fetched
+ * as the viewport reaches them, the next page once the viewport is halfway through the
+ * last one it shows, so opening the grid costs one page. Only the most recently used
+ * pages are kept in memory, stored as {@link BookingColumns}. Changing the query
+ * cancels page loads still running for the old one. All state is touched on the EDT only.
+ */
+public class PagedBookingTableModel extends AbstractTableModel {
+    public static final int ID_COLUMN = 0;
+    public static final int STATUS_COLUMN = 5;
+
+    private static final String[] COLUMNS = {
+            "Booking ID", "Room Number", "Check-in Date", "Check-out Date", "Total Price", "Status"};
+
+    private final HotelService service;
+    private final DataAccess dataAccess;
+    private final String guestUsername;
+    private final int pageSize;
+    private final Consumer<Throwable> onError;
+
+    // pageStartAfter.get(p) is the last row before page p; page 0 starts after null
+    private final List<BookingQuery.Cursor> pageStartAfter = new ArrayList<>();
+    private final Map<Integer, BookingColumns> pages;
+    private final BookingColumns.Dictionary roomNumbers = new BookingColumns.Dictionary();
+    private final Map<Integer, CompletableFuture<?>> loading = new HashMap<>();
+    private BookingQuery query = BookingQuery.ALL;
+    private boolean includeHistory;
+    private int rowCount;
+    private boolean exhausted;
+    private int generation;
+    // First page fetched before the grid was built, used instead of querying again
+    private CompletableFuture<List<HotelService.BookingRow>> firstPage;
+
+    /**
+     * @param guestUsername only show this guest's bookings, or null for every booking
+     */
+    public PagedBookingTableModel(HotelService service, String guestUsername, int pageSize, int maxCachedPages,
+                                  Consumer<Throwable> onError) {
+        this(service, guestUsername, pageSize, maxCachedPages, null, onError);
+    }
+
+    /**
+     * @param firstPage the first page of every booking in id order, already being fetched, or null
+     */
+    public PagedBookingTableModel(HotelService service, String guestUsername, int pageSize, int maxCachedPages,
+                                  CompletableFuture<List<HotelService.BookingRow>> firstPage,
+                                  Consumer<Throwable> onError) {
+        this.firstPage = firstPage;
+        this.service = service;
+        this.dataAccess = service.dataAccess();
+        this.guestUsername = guestUsername;
+        this.pageSize = pageSize;
+        this.onError = onError;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BookingColumns> eldest) {
+                return size() > maxCachedPages;
+            }
+        };
+        reload();
+    }
+
+    // Drops everything and starts again from the first page
+    public void reload() {
+        generation++;
+        pageStartAfter.clear();
+        pageStartAfter.add(null);
+        pages.clear();
+        // Results for the old query are no use; stop the database working on them
+        for (CompletableFuture<?> load : loading.values()) {
+            load.cancel(true);
+        }
+        loading.clear();
+        exhausted = false;
+        int removed = rowCount;
+        rowCount = 0;
+        if (removed > 0) {
+            fireTableRowsDeleted(0, removed - 1);
+        }
+        requestPage(0);
+    }
+
+    // Archived bookings are only listed when asked for
+    public void setIncludeHistory(boolean includeHistory) {
+        if (this.includeHistory == includeHistory) return;
+        this.includeHistory = includeHistory;
+        reload();
+    }
+
+    public boolean includesHistory() {
+        return includeHistory;
+    }
+
+    public void setQuery(BookingQuery query) {
+        if (this.query.equals(query)) return;
+        this.query = query;
+        reload();
+    }
+
+    public BookingQuery getQuery() {
+        return query;
+    }
+
+    // What sorting by the column means, or null if the grid can't be sorted by it
+    public static BookingQuery.Sort sortFor(int column) {
+        return switch (column) {
+            case ID_COLUMN -> BookingQuery.Sort.ID;
+            case 2 -> BookingQuery.Sort.CHECK_IN;
+            case 3 -> BookingQuery.Sort.CHECK_OUT;
+            case 4 -> BookingQuery.Sort.TOTAL_PRICE;
+            case STATUS_COLUMN -> BookingQuery.Sort.STATUS;
+            default -> null;
+        };
+    }
+
+    // Loads pages under the visible rows whenever the user scrolls
+    public void attachTo(JTable table, JScrollPane scrollPane) {
+        scrollPane.getViewport().addChangeListener(e -> {
+            Rectangle view = scrollPane.getViewport().getViewRect();
+            int first = table.rowAtPoint(new Point(0, view.y));
+            int last = table.rowAtPoint(new Point(0, view.y + view.height - 1));
+            if (first < 0) return;
+            ensureLoaded(first, last < 0 ? rowCount - 1 : last);
+        });
+    }
+
+    public void ensureLoaded(int firstRow, int lastRow) {
+        int lastPage = lastRow / pageSize;
+        for (int page = firstRow / pageSize; page <= lastPage; page++) {
+            requestPage(page);
+        }
+        // Prefetch the next page so scrolling into it doesn't stall; its start is only
+        // known once this page has loaded, and growing the table then calls this again
+        if (lastRow % pageSize >= pageSize / 2) {
+            requestPage(lastPage + 1);
+        }
+    }
+
+    private void requestPage(int page) {
+        if (page >= pageStartAfter.size() || pages.containsKey(page) || loading.containsKey(page)) return;
+
+        BookingQuery.Cursor startAfter = pageStartAfter.get(page);
+        // Known pages are bounded on both sides so a refetch never spills into the next page
+        BookingQuery.Cursor endAt = page + 1 < pageStartAfter.size() ? pageStartAfter.get(page + 1) : null;
+        int requestGeneration = generation;
+        BookingQuery pageQuery = query;
+        boolean history = includeHistory;
+
+        CompletableFuture<List<HotelService.BookingRow>> fetch = page == 0 && firstPage != null ? firstPage
+                : dataAccess.submit(() -> service.bookingsPage(guestUsername, pageQuery, startAfter, endAt, pageSize,
+                history));
+        firstPage = null;
+        loading.put(page, dataAccess.load(fetch, rows -> {
+            if (requestGeneration != generation) return;
+            loading.remove(page);
+            BookingColumns columns = new BookingColumns(pageSize, roomNumbers);
+            for (HotelService.BookingRow row : rows) {
+                columns.add(row);
+            }
+            pageLoaded(page, columns, rows.isEmpty() ? null : pageQuery.cursorAt(rows.get(rows.size() - 1)));
+        }, error -> {
+            if (requestGeneration != generation) return;
+            loading.remove(page);
+            onError.accept(error);
+        }));
+    }
+
+    private void pageLoaded(int page, BookingColumns rows, BookingQuery.Cursor last) {
+        pages.put(page, rows);
+        int firstRow = page * pageSize;
+
+        if (page == pageStartAfter.size() - 1 && !exhausted) {
+            // First time this page is seen: grow the table
+            int oldCount = rowCount;
+            rowCount = Math.max(rowCount, firstRow + rows.size());
+            if (rowCount > oldCount) {
+                fireTableRowsInserted(oldCount, rowCount - 1);
+            }
+
+            if (rows.size() == pageSize) {
+                pageStartAfter.add(last);
+            } else {
+                exhausted = true;
+            }
+        } else if (rows.size() > 0) {
+            fireTableRowsUpdated(firstRow, Math.min(rowCount, firstRow + pageSize) - 1);
+        }
+    }
+
+    /**
+     * Applies a booking created or changed after the grid was loaded. Loaded rows are
+     * updated in place. New bookings only matter once the last page has been reached;
+     * until then they turn up when paging gets there. When the grid is filtered or sorted
+     * they turn up on the next query instead.
+     */
+    public void bookingChanged(String bookingGuest, HotelService.BookingRow booking) {
+        if (guestUsername != null && !guestUsername.equals(bookingGuest)) return;
+
+        for (Map.Entry<Integer, BookingColumns> entry : pages.entrySet()) {
+            BookingColumns rows = entry.getValue();
+            int i = rows.indexOf(booking.id());
+            if (i >= 0) {
+                rows.set(i, booking);
+                int row = entry.getKey() * pageSize + i;
+                fireTableRowsUpdated(row, row);
+                return;
+            }
+        }
+
+        int lastPage = pageStartAfter.size() - 1;
+        BookingQuery.Cursor lastStart = pageStartAfter.get(lastPage);
+        if (!query.listsAllInIdOrder() || !exhausted || lastStart != null && booking.id() <= lastStart.id()) return;
+        BookingColumns rows = pages.get(lastPage);
+        if (rows != null && rows.size() < pageSize) {
+            if (rows.size() > 0 && rows.id(rows.size() - 1) > booking.id()) return;
+            rows.add(booking);
+            rowCount++;
+            fireTableRowsInserted(rowCount - 1, rowCount - 1);
+        } else {
+            // Last page is full or was evicted: fetch it again and carry on paging from there
+            pages.remove(lastPage);
+            exhausted = false;
+            requestPage(lastPage);
+        }
+    }
+
+    // -1 if the row's page isn't loaded yet
+    public int getBookingId(int row) {
+        BookingColumns rows = loadedPage(row / pageSize);
+        int index = row % pageSize;
+        return rows != null && index < rows.size() ? rows.id(index) : -1;
+    }
+
+    // Updates the status of a booking that is currently loaded
+    public void updateStatus(int bookingId, String status) {
+        for (Map.Entry<Integer, BookingColumns> entry : pages.entrySet()) {
+            BookingColumns rows = entry.getValue();
+            int i = rows.indexOf(bookingId);
+            if (i >= 0) {
+                rows.setStatus(i, BookingStatus.of(status));
+                int row = entry.getKey() * pageSize + i;
+                fireTableCellUpdated(row, STATUS_COLUMN);
+                return;
+            }
+        }
+    }
+
+    // Avoids touching LRU order for pages that aren't loaded
+    private BookingColumns loadedPage(int page) {
+        return pages.containsKey(page) ? pages.get(page) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return switch (column) {
+            case ID_COLUMN -> Integer.class;
+            case 2, 3 -> LocalDate.class;
+            case 4 -> Double.class;
+            default -> String.class;
+        };
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / pageSize;
+        BookingColumns rows = loadedPage(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        int index = row % pageSize;
+        return index < rows.size() ? rows.value(index, column) : null;
+    }
+}
@@ -0,0 +1,236 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Nightly rates per room type, compiled from the rate_* tables into arrays indexed by
+ * epoch day. Each room type keeps prefix sums of its price multipliers and of its fixed
+ * rates, so pricing a stay of any length is a few array reads and allocates nothing.
+ * Immutable; reload to pick up rate changes.
+ */
+public final class RatePlans {
+    // Range covered by the arrays, relative to the day they were compiled
+    private static final int DAYS_BACK = 366;
+    private static final int DAYS_AHEAD = 5 * 366;
+
+    private final int firstDay;
+    private final int days;
+    private final Map<String, Integer> typeIds;
+    private final TypeRates[] types;
+
+    private static final class TypeRates {
+        // Sums over [0, i) of the multiplier on nights without a fixed rate, and of the fixed rates
+        private final double[] factorSums;
+        private final double[] fixedSums;
+        private final short[] minStay;
+        // Length-of-stay discounts by ascending minimum nights
+        private final int[] discountNights;
+        private final double[] discountPercent;
+
+        TypeRates(double[] factorSums, double[] fixedSums, short[] minStay, int[] discountNights,
+                  double[] discountPercent) {
+            this.factorSums = factorSums;
+            this.fixedSums = fixedSums;
+            this.minStay = minStay;
+            this.discountNights = discountNights;
+            this.discountPercent = discountPercent;
+        }
+    }
+
+    private record Season(LocalDate start, LocalDate end, double multiplier, int minStay) {
+    }
+
+    private record DateRate(Double rate, Integer minStay) {
+    }
+
+    // Rules for one room type as read from the database
+    private static final class Rules {
+        private final List<Season> seasons = new ArrayList<>();
+        private final double[] dayOfWeek = {1, 1, 1, 1, 1, 1, 1};
+        private final Map<LocalDate, DateRate> dates = new HashMap<>();
+        private final TreeMap<Integer, Double> discounts = new TreeMap<>();
+    }
+
+    private RatePlans(int firstDay, int days, Map<String, Integer> typeIds, TypeRates[] types) {
+        this.firstDay = firstDay;
+        this.days = days;
+        this.typeIds = typeIds;
+        this.types = types;
+    }
+
+    public static RatePlans load(Connection conn, LocalDate today) throws SQLException {
+        Map<String, Rules> rules = new TreeMap<>();
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT room_type, start_date, end_date, multiplier, min_stay FROM rate_seasons " +
+                            "ORDER BY priority, start_date")) {
+                while (rs.next()) {
+                    rules.computeIfAbsent(rs.getString("room_type"), t -> new Rules()).seasons.add(new Season(
+                            rs.getDate("start_date").toLocalDate(), rs.getDate("end_date").toLocalDate(),
+                            rs.getDouble("multiplier"), rs.getInt("min_stay")));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT room_type, day_of_week, multiplier FROM rate_day_of_week")) {
+                while (rs.next()) {
+                    int dayOfWeek = rs.getInt("day_of_week");
+                    if (dayOfWeek < 1 || dayOfWeek > 7) {
+                        throw new SQLException("rate_day_of_week.day_of_week must be 1-7, was " + dayOfWeek);
+                    }
+                    rules.computeIfAbsent(rs.getString("room_type"), t -> new Rules())
+                            .dayOfWeek[dayOfWeek - 1] = rs.getDouble("multiplier");
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT room_type, day, rate, min_stay FROM rate_dates")) {
+                while (rs.next()) {
+                    rules.computeIfAbsent(rs.getString("room_type"), t -> new Rules()).dates.put(
+                            rs.getDate("day").toLocalDate(),
+                            new DateRate(rs.getObject("rate") != null ? rs.getDouble("rate") : null,
+                                    rs.getObject("min_stay") != null ? rs.getInt("min_stay") : null));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT room_type, min_nights, discount_percent FROM rate_length_of_stay")) {
+                while (rs.next()) {
+                    rules.computeIfAbsent(rs.getString("room_type"), t -> new Rules())
+                            .discounts.put(rs.getInt("min_nights"), rs.getDouble("discount_percent"));
+                }
+            }
+        }
+        return compile(rules, today);
+    }
+
+    private static RatePlans compile(Map<String, Rules> rules, LocalDate today) {
+        int firstDay = (int) today.toEpochDay() - DAYS_BACK;
+        int days = DAYS_BACK + DAYS_AHEAD;
+        Map<String, Integer> typeIds = new HashMap<>();
+        TypeRates[] types = new TypeRates[rules.size()];
+        for (Map.Entry<String, Rules> entry : rules.entrySet()) {
+            typeIds.put(entry.getKey(), typeIds.size());
+            types[typeIds.size() - 1] = compile(entry.getValue(), firstDay, days);
+        }
+        return new RatePlans(firstDay, days, typeIds, types);
+    }
+
+    private static TypeRates compile(Rules rules, int firstDay, int days) {
+        double[] seasonMultiplier = new double[days];
+        short[] minStay = new short[days];
+        Arrays.fill(seasonMultiplier, 1);
+        Arrays.fill(minStay, (short) 1);
+        // Lowest priority first, so higher priority seasons overwrite it where they overlap
+        for (Season season : rules.seasons) {
+            int from = Math.max(0, (int) season.start().toEpochDay() - firstDay);
+            int to = Math.min(days - 1, (int) season.end().toEpochDay() - firstDay);
+            for (int i = from; i <= to; i++) {
+                seasonMultiplier[i] = season.multiplier();
+                minStay[i] = (short) season.minStay();
+            }
+        }
+
+        double[] factorSums = new double[days + 1];
+        double[] fixedSums = new double[days + 1];
+        for (int i = 0; i < days; i++) {
+            DateRate fixed = rules.dates.get(LocalDate.ofEpochDay(firstDay + i));
+            if (fixed != null && fixed.minStay() != null) minStay[i] = fixed.minStay().shortValue();
+            // Epoch day 0 was a Thursday
+            double multiplier = seasonMultiplier[i] * rules.dayOfWeek[Math.floorMod(firstDay + i + 3, 7)];
+            boolean isFixed = fixed != null && fixed.rate() != null;
+            factorSums[i + 1] = factorSums[i] + (isFixed ? 0 : multiplier);
+            fixedSums[i + 1] = fixedSums[i] + (isFixed ? fixed.rate() : 0);
+        }
+
+        int[] discountNights = new int[rules.discounts.size()];
+        double[] discountPercent = new double[rules.discounts.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> discount : rules.discounts.entrySet()) {
+            discountNights[i] = discount.getKey();
+            discountPercent[i++] = discount.getValue();
+        }
+        return new TypeRates(factorSums, fixedSums, minStay, discountNights, discountPercent);
+    }
+
+    // Id for quoteAll, or -1 for a room type without rate rules (charged its base price every night)
+    public int typeId(String roomType) {
+        Integer id = typeIds.get(roomType);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Total for the stay at a room of the given type and base price.
+     *
+     * @throws IllegalArgumentException if the dates are out of order, outside the rate
+     *                                  calendar, or shorter than the minimum stay
+     */
+    public double quote(String roomType, double basePrice, LocalDate checkIn, LocalDate checkOut) {
+        int from = (int) checkIn.toEpochDay();
+        int to = (int) checkOut.toEpochDay();
+        if (from >= to) throw new IllegalArgumentException("Check-in date must be before check-out date");
+        int typeId = typeId(roomType);
+        if (typeId < 0) return round(basePrice * (to - from));
+
+        checkRange(from, to);
+        int minStay = types[typeId].minStay[from - firstDay];
+        if (to - from < minStay) {
+            throw new IllegalArgumentException("Stays from " + checkIn + " must be at least " + minStay + " nights");
+        }
+        return total(types[typeId], basePrice, from, to);
+    }
+
+    /**
+     * Prices the same stay for many rooms at once. totals[i] is set to NaN where the stay
+     * is shorter than that room type's minimum stay.
+     */
+    public void quoteAll(int[] typeIds, double[] basePrices, LocalDate checkIn, LocalDate checkOut, double[] totals) {
+        int from = (int) checkIn.toEpochDay();
+        int to = (int) checkOut.toEpochDay();
+        if (from >= to) throw new IllegalArgumentException("Check-in date must be before check-out date");
+        checkRange(from, to);
+        for (int i = 0; i < typeIds.length; i++) {
+            if (typeIds[i] < 0) {
+                totals[i] = round(basePrices[i] * (to - from));
+            } else {
+                TypeRates rates = types[typeIds[i]];
+                totals[i] = to - from < rates.minStay[from - firstDay]
+                        ? Double.NaN : total(rates, basePrices[i], from, to);
+            }
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < firstDay || to > firstDay + days) {
+            throw new IllegalArgumentException("Rates are only available from " + LocalDate.ofEpochDay(firstDay)
+                    + " to " + LocalDate.ofEpochDay(firstDay + days));
+        }
+    }
+
+    private double total(TypeRates rates, double basePrice, int from, int to) {
+        int start = from - firstDay;
+        int end = to - firstDay;
+        double total = basePrice * (rates.factorSums[end] - rates.factorSums[start])
+                + (rates.fixedSums[end] - rates.fixedSums[start]);
+
+        int nights = to - from;
+        double discount = 0;
+        for (int i = 0; i < rates.discountNights.length && rates.discountNights[i] <= nights; i++) {
+            discount = rates.discountPercent[i];
+        }
+        return round(total * (1 - discount / 100));
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+
+    @Override
+    public String toString() {
+        return "RatePlans[" + typeIds.size() + " room types, " + LocalDate.ofEpochDay(firstDay) + " to "
+                + LocalDate.ofEpochDay(firstDay + days) + "]";
+    }
+}
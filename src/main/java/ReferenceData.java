@@ -0,0 +1,90 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached rooms and users. Writers call the invalidate methods after their change commits.
+ */
+public class ReferenceData {
+
+    public record RoomInfo(int id, String roomNumber, String type, double price, String status) {
+    }
+
+    public record UserInfo(int id, String username, String role) {
+    }
+
+    private final ExpiringCache<String, RoomInfo> rooms =
+            new ExpiringCache<>("rooms", 10_000, 10, TimeUnit.MINUTES);
+    private final ExpiringCache<String, UserInfo> users =
+            new ExpiringCache<>("users", 10_000, 10, TimeUnit.MINUTES);
+
+    // Loads every room so quoting never has to wait for the database
+    public void preloadRooms(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, room_number, type, price, status FROM rooms")) {
+            while (rs.next()) {
+                RoomInfo room = readRoom(rs);
+                rooms.put(room.roomNumber(), room);
+            }
+        }
+    }
+
+    public RoomInfo cachedRoom(String roomNumber) {
+        return rooms.getIfPresent(roomNumber);
+    }
+
+    public RoomInfo room(Connection conn, String roomNumber) throws SQLException {
+        return rooms.get(roomNumber, number -> {
+            String sql = "SELECT id, room_number, type, price, status FROM rooms WHERE room_number = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, number);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? readRoom(rs) : null;
+                }
+            }
+        });
+    }
+
+    public UserInfo user(Connection conn, String username) throws SQLException {
+        return users.get(username, name -> {
+            String sql = "SELECT id, username, role FROM users WHERE username = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, name);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? new UserInfo(rs.getInt("id"), rs.getString("username"),
+                            rs.getString("role")) : null;
+                }
+            }
+        });
+    }
+
+    public void cacheUser(UserInfo user) {
+        users.put(user.username(), user);
+    }
+
+    public void invalidateRoom(String roomNumber) {
+        rooms.invalidate(roomNumber);
+    }
+
+    public void invalidateUser(String username) {
+        users.invalidate(username);
+    }
+
+    public void invalidateAll() {
+        rooms.invalidateAll();
+        users.invalidateAll();
+    }
+
+    private static RoomInfo readRoom(ResultSet rs) throws SQLException {
+        return new RoomInfo(rs.getInt("id"), rs.getString("room_number"), rs.getString("type"),
+                rs.getDouble("price"), rs.getString("status"));
+    }
+
+    @Override
+    public String toString() {
+        return rooms + "; " + users;
+    }
+}
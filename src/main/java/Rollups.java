@@ -0,0 +1,247 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Daily and monthly revenue and booking activity totals, kept up to date by the
+ * write paths inside their own transactions so reports never scan payments.
+ */
+public class Rollups {
+
+    public record RevenueRow(LocalDate monthStart, String method, String roomType, double revenue, int payments) {
+    }
+
+    public record ActivityRow(LocalDate day, int bookings, int cancellations, int checkIns, int checkOuts,
+                              int noShows) {
+    }
+
+    // Last schema version that changed the rollup tables; older databases get a rebuild
+    public static final int SCHEMA_VERSION = 6;
+
+    private static final List<String> REVENUE_COUNTERS = List.of("revenue", "payments");
+
+    private Rollups() {
+    }
+
+    public static void recordPayment(Connection conn, LocalDate day, String method, String roomType, double amount)
+            throws SQLException {
+        recordPayments(conn, day, method, roomType, amount, 1);
+    }
+
+    // Several payments with the same day, method and room type, amount being their sum
+    public static void recordPayments(Connection conn, LocalDate day, String method, String roomType, double amount,
+                                      int count) throws SQLException {
+        LocalDate month = day.withDayOfMonth(1);
+        SqlDialect dialect = SqlDialect.of(conn);
+        String upsertDaily = dialect.upsertAdding("revenue_daily",
+                List.of("day", "month_start", "method", "room_type"), REVENUE_COUNTERS);
+        try (PreparedStatement pstmt = conn.prepareStatement(upsertDaily)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(day));
+            pstmt.setDate(2, java.sql.Date.valueOf(month));
+            pstmt.setString(3, method);
+            pstmt.setString(4, roomType);
+            pstmt.setDouble(5, amount);
+            pstmt.setInt(6, count);
+            pstmt.executeUpdate();
+        }
+        String upsertMonthly = dialect.upsertAdding("revenue_monthly",
+                List.of("month_start", "method", "room_type"), REVENUE_COUNTERS);
+        try (PreparedStatement pstmt = conn.prepareStatement(upsertMonthly)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(month));
+            pstmt.setString(2, method);
+            pstmt.setString(3, roomType);
+            pstmt.setDouble(4, amount);
+            pstmt.setInt(5, count);
+            pstmt.executeUpdate();
+        }
+    }
+
+    public static void recordBookingCreated(Connection conn, LocalDate day) throws SQLException {
+        recordActivity(conn, day, "bookings", 1);
+    }
+
+    public static void recordBookingsCreated(Connection conn, LocalDate day, int count) throws SQLException {
+        recordActivity(conn, day, "bookings", count);
+    }
+
+    public static void recordStatusChange(Connection conn, LocalDate day, String status) throws SQLException {
+        recordStatusChanges(conn, day, status, 1);
+    }
+
+    public static void recordStatusChanges(Connection conn, LocalDate day, String status, int count)
+            throws SQLException {
+        switch (status) {
+            case "Cancelled" -> recordActivity(conn, day, "cancellations", count);
+            case "Checked In" -> recordActivity(conn, day, "check_ins", count);
+            case "Checked Out" -> recordActivity(conn, day, "check_outs", count);
+            case "No-Show" -> recordActivity(conn, day, "no_shows", count);
+            default -> {
+            }
+        }
+    }
+
+    private static void recordActivity(Connection conn, LocalDate day, String column, int count) throws SQLException {
+        String sql = SqlDialect.of(conn).upsertAdding("booking_activity_daily", List.of("day"), List.of(column));
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(day));
+            pstmt.setInt(2, count);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Revenue per month for [from, to]. Whole months come from the monthly rollup and
+     * the partial months at either end from the daily one.
+     */
+    public static List<RevenueRow> revenue(Connection conn, LocalDate from, LocalDate to) throws SQLException {
+        LocalDate firstFull = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+        LocalDate afterLastFull = to.plusDays(1).withDayOfMonth(1);
+
+        String sql = "SELECT month_start, method, room_type, SUM(revenue) AS revenue, SUM(payments) AS payments FROM (" +
+                "SELECT month_start, method, room_type, revenue, payments FROM revenue_monthly " +
+                "WHERE month_start >= ? AND month_start < ? " +
+                "UNION ALL " +
+                "SELECT month_start, method, room_type, revenue, payments FROM revenue_daily " +
+                "WHERE day >= ? AND day <= ? AND (day < ? OR day >= ?)" +
+                ") r GROUP BY month_start, method, room_type ORDER BY month_start, method, room_type";
+
+        List<RevenueRow> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(firstFull));
+            pstmt.setDate(2, java.sql.Date.valueOf(afterLastFull));
+            pstmt.setDate(3, java.sql.Date.valueOf(from));
+            pstmt.setDate(4, java.sql.Date.valueOf(to));
+            pstmt.setDate(5, java.sql.Date.valueOf(firstFull));
+            pstmt.setDate(6, java.sql.Date.valueOf(afterLastFull));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new RevenueRow(rs.getDate("month_start").toLocalDate(), rs.getString("method"),
+                            rs.getString("room_type"), rs.getDouble("revenue"), rs.getInt("payments")));
+                }
+            }
+        }
+        return rows;
+    }
+
+    public static List<ActivityRow> activity(Connection conn, LocalDate from, LocalDate to) throws SQLException {
+        String sql = "SELECT day, bookings, cancellations, check_ins, check_outs, no_shows FROM booking_activity_daily " +
+                "WHERE day BETWEEN ? AND ? ORDER BY day";
+        List<ActivityRow> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(from));
+            pstmt.setDate(2, java.sql.Date.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new ActivityRow(rs.getDate("day").toLocalDate(), rs.getInt("bookings"),
+                            rs.getInt("cancellations"), rs.getInt("check_ins"), rs.getInt("check_outs"),
+                            rs.getInt("no_shows")));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Recomputes every rollup from bookings and payments, archived ones included, in one
+     * transaction. Used for the initial backfill and after bulk imports. Bookings written
+     * before created_at and status_changed_at existed are dated by their first payment or
+     * stay dates instead.
+     */
+    public static void rebuild(Connection conn) throws SQLException {
+        DataAccess.inTransaction(conn, c -> {
+            try (Statement stmt = c.createStatement()) {
+                stmt.executeUpdate("DELETE FROM revenue_daily");
+                stmt.executeUpdate("DELETE FROM revenue_monthly");
+                stmt.executeUpdate("DELETE FROM booking_activity_daily");
+            }
+            rebuildRevenue(c);
+            rebuildActivity(c);
+            return null;
+        });
+    }
+
+    private static void rebuildRevenue(Connection conn) throws SQLException {
+        String daily = "SELECT CAST(p.payment_date AS DATE) AS day, p.method, r.type AS room_type, " +
+                "SUM(p.amount) AS revenue, COUNT(*) AS payments " +
+                "FROM payments_all p JOIN bookings_all b ON p.booking_id = b.id JOIN rooms r ON b.room_id = r.id " +
+                "GROUP BY CAST(p.payment_date AS DATE), p.method, r.type";
+        String insert = "INSERT INTO revenue_daily (day, month_start, method, room_type, revenue, payments) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(daily);
+             PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            int pending = 0;
+            while (rs.next()) {
+                LocalDate day = rs.getDate("day").toLocalDate();
+                pstmt.setDate(1, java.sql.Date.valueOf(day));
+                pstmt.setDate(2, java.sql.Date.valueOf(day.withDayOfMonth(1)));
+                pstmt.setString(3, rs.getString("method"));
+                pstmt.setString(4, rs.getString("room_type"));
+                pstmt.setDouble(5, rs.getDouble("revenue"));
+                pstmt.setInt(6, rs.getInt("payments"));
+                pstmt.addBatch();
+                if (++pending % 1000 == 0) pstmt.executeBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO revenue_monthly (month_start, method, room_type, revenue, payments) " +
+                    "SELECT month_start, method, room_type, SUM(revenue), SUM(payments) FROM revenue_daily " +
+                    "GROUP BY month_start, method, room_type");
+        }
+    }
+
+    private static void rebuildActivity(Connection conn) throws SQLException {
+        Map<LocalDate, int[]> days = new TreeMap<>();
+
+        // Grouped by the full expression; not every database accepts GROUP BY 1
+        String createdDay = "CAST(COALESCE(b.created_at, " +
+                "(SELECT MIN(p.payment_date) FROM payments_all p WHERE p.booking_id = b.id), b.check_in_date) AS DATE)";
+        String created = "SELECT " + createdDay + " AS day, COUNT(*) AS n FROM bookings_all b GROUP BY " + createdDay;
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(created)) {
+            while (rs.next()) {
+                days.computeIfAbsent(rs.getDate("day").toLocalDate(), d -> new int[5])[0] += rs.getInt("n");
+            }
+        }
+
+        String changedDay = "CAST(COALESCE(status_changed_at, " +
+                "CASE WHEN status = 'Checked Out' THEN check_out_date ELSE check_in_date END) AS DATE)";
+        String changed = "SELECT status, " + changedDay + " AS day, COUNT(*) AS n FROM bookings_all " +
+                "WHERE status IN ('Cancelled', 'Checked In', 'Checked Out', 'No-Show') GROUP BY status, " + changedDay;
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(changed)) {
+            while (rs.next()) {
+                int column = switch (rs.getString("status")) {
+                    case "Cancelled" -> 1;
+                    case "Checked In" -> 2;
+                    case "Checked Out" -> 3;
+                    default -> 4;
+                };
+                days.computeIfAbsent(rs.getDate("day").toLocalDate(), d -> new int[5])[column] += rs.getInt("n");
+            }
+        }
+
+        String insert = "INSERT INTO booking_activity_daily " +
+                "(day, bookings, cancellations, check_ins, check_outs, no_shows) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            for (Map.Entry<LocalDate, int[]> entry : days.entrySet()) {
+                int[] counts = entry.getValue();
+                pstmt.setDate(1, java.sql.Date.valueOf(entry.getKey()));
+                for (int i = 0; i < counts.length; i++) {
+                    pstmt.setInt(i + 2, counts[i]);
+                }
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Applies the numbered scripts under db/migration in order and records each one in
+ * schema_version. When the database is already current it costs a single query.
+ *
+ * Desks starting together migrate one at a time: on MySQL under a named lock held by the
+ * session, since its DDL commits as it goes and a row lock would be released with it;
+ * on H2, whose embedded databases belong to one process, under a lock in this JVM.
+ */
+public class SchemaMigrator {
+    private static final Logger LOG = Logger.getLogger(SchemaMigrator.class.getName());
+
+    private static final String LOCK_NAME = "hotel_schema";
+    private static final int LOCK_TIMEOUT_SECONDS = 600;
+    private static final ReentrantLock LOCAL_LOCK = new ReentrantLock();
+
+    // Ordered list of migrations; append new scripts here
+    private static final String[] MIGRATIONS = {
+            "V1__baseline.sql",
+            "V2__indexes_and_foreign_keys.sql",
+            "V3__rollups.sql",
+            "V4__change_tracking.sql",
+            "V5__rate_plans.sql",
+            "V6__night_audit.sql",
+            "V7__archive.sql",
+            "V8__booking_events.sql",
+            "V9__booking_version.sql",
+            "V10__grid_filters.sql",
+    };
+
+    // Rows the foreign keys added by V2 would reject: table, column, referenced table
+    private static final String[][] V2_REFERENCES = {
+            {"bookings", "guest_id", "users"},
+            {"bookings", "room_id", "rooms"},
+            {"payments", "booking_id", "bookings"},
+    };
+
+    public static int latestVersion() {
+        return MIGRATIONS.length;
+    }
+
+    /**
+     * Brings the schema up to date and returns the version it was at beforehand,
+     * so callers can backfill data for features that just arrived.
+     */
+    public int migrate(Connection conn) throws SQLException {
+        int current = currentVersion(conn);
+        if (current >= latestVersion()) return current;
+
+        SqlDialect dialect = SqlDialect.of(conn);
+        lock(conn, dialect);
+        try {
+            // Another desk may have migrated while this one waited for the lock
+            current = currentVersion(conn);
+            apply(conn, dialect, current);
+        } finally {
+            unlock(conn, dialect);
+        }
+        return current;
+    }
+
+    private void apply(Connection conn, SqlDialect dialect, int current) throws SQLException {
+        for (int version = current + 1; version <= latestVersion(); version++) {
+            String script = MIGRATIONS[version - 1];
+            long start = System.nanoTime();
+            if (version == 2) checkReferences(conn, script);
+            for (String sql : statements(load(script))) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    // MySQL has committed the script's earlier DDL; it can't be rolled back
+                    String partial = dialect == SqlDialect.MYSQL
+                            ? "; statements before it were applied and must be undone by hand before retrying" : "";
+                    throw new SQLException("Migration " + script + " failed on: " + sql + " (" + e.getMessage() + ")"
+                            + partial, e.getSQLState(), e.getErrorCode(), e);
+                }
+            }
+            recordVersion(conn, version, script);
+            LOG.info(String.format("Applied %s in %.0f ms", script, (System.nanoTime() - start) / 1e6));
+        }
+    }
+
+    /**
+     * Fails before any of the script runs if existing rows would break one of its foreign keys,
+     * since on MySQL the indexes it created first would stay behind.
+     */
+    private static void checkReferences(Connection conn, String script) throws SQLException {
+        List<String> orphans = new ArrayList<>();
+        for (String[] ref : V2_REFERENCES) {
+            String sql = "SELECT COUNT(*) FROM " + ref[0] + " c LEFT JOIN " + ref[2] + " p ON p.id = c." + ref[1]
+                    + " WHERE c." + ref[1] + " IS NOT NULL AND p.id IS NULL";
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+                int count = rs.next() ? rs.getInt(1) : 0;
+                if (count > 0) orphans.add(count + " " + ref[0] + " rows whose " + ref[1] + " is missing from " + ref[2]);
+            }
+        }
+        if (!orphans.isEmpty()) {
+            throw new SQLException("Migration " + script + " cannot add its foreign keys: "
+                    + String.join(", ", orphans) + ". Fix or delete those rows and start again; nothing was changed");
+        }
+    }
+
+    private static void lock(Connection conn, SqlDialect dialect) throws SQLException {
+        if (dialect != SqlDialect.MYSQL) {
+            LOCAL_LOCK.lock();
+            return;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT GET_LOCK('" + LOCK_NAME + "', " + LOCK_TIMEOUT_SECONDS + ")")) {
+            rs.next();
+            int got = rs.getInt(1);
+            if (rs.wasNull()) throw new SQLException("Could not take the schema migration lock");
+            if (got != 1) {
+                throw new SQLException("Timed out waiting for another instance to finish migrating the schema");
+            }
+        }
+    }
+
+    private static void unlock(Connection conn, SqlDialect dialect) {
+        if (dialect != SqlDialect.MYSQL) {
+            LOCAL_LOCK.unlock();
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SELECT RELEASE_LOCK('" + LOCK_NAME + "')");
+        } catch (SQLException e) {
+            // The lock goes with the session anyway; don't hide why the migration failed
+            LOG.log(Level.WARNING, "Could not release the schema migration lock", e);
+        }
+    }
+
+    private int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            } catch (SQLException e) {
+                // Only a missing table means a first run (MySQL 42S02, H2 42102); anything else is a real failure
+                if (!"42S02".equals(e.getSQLState()) && !"42102".equals(e.getSQLState())) throw e;
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INT PRIMARY KEY," +
+                        "script VARCHAR(200) NOT NULL," +
+                        "installed_on DATETIME NOT NULL)");
+                return 0;
+            }
+        }
+    }
+
+    private void recordVersion(Connection conn, int version, String script) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, script, installed_on) VALUES (?, ?, CURRENT_TIMESTAMP)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, version);
+            pstmt.setString(2, script);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static String load(String script) throws SQLException {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream("/db/migration/" + script)) {
+            if (in == null) throw new SQLException("Missing migration script " + script);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Cannot read migration script " + script, e);
+        }
+    }
+
+    // Splits a script on semicolons that end a line, dropping -- comment lines
+    static List<String> statements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) continue;
+            if (trimmed.endsWith(";")) {
+                current.append(trimmed, 0, trimmed.length() - 1);
+                statements.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(trimmed).append('\n');
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,60 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WHERE conditions and their parameters, built from optional filters: a null value adds
+ * no condition. Values are always bound, never spliced into the SQL.
+ */
+public class SqlConditions {
+    private final List<String> conditions = new ArrayList<>();
+    private final List<Object> params = new ArrayList<>();
+
+    public SqlConditions equal(String column, Object value) {
+        return value == null ? this : add(column + " = ?", value);
+    }
+
+    public SqlConditions atLeast(String column, Object value) {
+        return value == null ? this : add(column + " >= ?", value);
+    }
+
+    public SqlConditions atMost(String column, Object value) {
+        return value == null ? this : add(column + " <= ?", value);
+    }
+
+    // A prefix match, which unlike a match anywhere in the value can use an index on the column
+    public SqlConditions startsWith(String column, String prefix) {
+        if (prefix == null) return this;
+        String escaped = prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        return add(column + " LIKE ? ESCAPE '!'", escaped + "%");
+    }
+
+    public SqlConditions add(String condition, Object... values) {
+        conditions.add(condition);
+        params.addAll(List.of(values));
+        return this;
+    }
+
+    // " WHERE ..." or nothing
+    public String where() {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Binds the parameters in order starting at the given index, and returns the index
+     * after the last one.
+     */
+    public int bind(PreparedStatement pstmt, int first) throws SQLException {
+        int i = first;
+        for (Object value : params) {
+            if (value instanceof LocalDate date) {
+                pstmt.setDate(i++, java.sql.Date.valueOf(date));
+            } else {
+                pstmt.setObject(i++, value);
+            }
+        }
+        return i;
+    }
+}
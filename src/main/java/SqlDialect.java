@@ -0,0 +1,104 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The SQL that differs between the supported databases. H2 always runs in MySQL mode,
+ * which covers AUTO_INCREMENT and INSERT IGNORE in the migration scripts, so what is
+ * left here is URL settings, error codes and statements we build ourselves.
+ */
+public enum SqlDialect {
+    MYSQL("com.mysql.cj.jdbc.Driver"),
+    H2("org.h2.Driver");
+
+    // MySQL compatibility, lower-case names like MySQL on Linux, and 'day' usable as a column
+    private static final List<String> H2_SETTINGS = List.of(
+            "MODE=MySQL", "DATABASE_TO_LOWER=TRUE", "CASE_INSENSITIVE_IDENTIFIERS=TRUE", "NON_KEYWORDS=DAY,VALUE");
+
+    private final String driverClass;
+
+    SqlDialect(String driverClass) {
+        this.driverClass = driverClass;
+    }
+
+    public String driverClass() {
+        return driverClass;
+    }
+
+    public static SqlDialect fromUrl(String url) {
+        if (url.startsWith("jdbc:mysql:")) return MYSQL;
+        if (url.startsWith("jdbc:h2:")) return H2;
+        throw new IllegalArgumentException("Unsupported JDBC URL: " + url);
+    }
+
+    public static SqlDialect fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public static SqlDialect of(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        return "H2".equalsIgnoreCase(product) ? H2 : MYSQL;
+    }
+
+    /**
+     * Adds the connection settings this code relies on when the URL doesn't set them.
+     */
+    public String prepareUrl(String url) {
+        if (this != H2) return url;
+        StringBuilder prepared = new StringBuilder(url);
+        String upper = url.toUpperCase(Locale.ROOT);
+        for (String setting : H2_SETTINGS) {
+            String key = setting.substring(0, setting.indexOf('=') + 1);
+            if (!upper.contains(";" + key)) {
+                prepared.append(';').append(setting);
+            }
+        }
+        // Keep an in-memory database alive while the pool has no open connections
+        if (upper.startsWith("JDBC:H2:MEM:") && !upper.contains(";DB_CLOSE_DELAY=")) {
+            prepared.append(";DB_CLOSE_DELAY=-1");
+        }
+        return prepared.toString();
+    }
+
+    /**
+     * INSERT that adds to the counters of an existing row instead of failing on its key.
+     * Parameters are the key columns followed by the counter columns.
+     */
+    public String upsertAdding(String table, List<String> keyColumns, List<String> counterColumns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        String columns = String.join(", ", keyColumns) + ", " + String.join(", ", counterColumns);
+        sql.append(columns).append(") VALUES (");
+        for (int i = 0; i < keyColumns.size() + counterColumns.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ON DUPLICATE KEY UPDATE ");
+        for (int i = 0; i < counterColumns.size(); i++) {
+            String column = counterColumns.get(i);
+            if (i > 0) sql.append(", ");
+            sql.append(column).append(" = ").append(column).append(" + VALUES(").append(column).append(')');
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Fetch size that makes a forward-only, read-only query stream its rows instead of
+     * buffering the whole result. Connector/J only streams with Integer.MIN_VALUE (or a
+     * cursor, which needs useCursorFetch=true on the URL); H2 honours the size as given.
+     */
+    public int streamingFetchSize(int rows) {
+        return this == MYSQL ? Integer.MIN_VALUE : rows;
+    }
+
+    /**
+     * True for deadlock and lock wait timeout errors, where rerunning the transaction
+     * is expected to succeed.
+     */
+    public static boolean isRetryable(SQLException e) {
+        // 40001 is a serialization failure on every database
+        if ("40001".equals(e.getSQLState())) return true;
+        // MySQL: 1213 deadlock, 1205 lock wait timeout; H2: 50200 lock timeout
+        return e.getErrorCode() == 1213 || e.getErrorCode() == 1205
+                || ("HYT00".equals(e.getSQLState()) && e.getErrorCode() == 50200);
+    }
+}
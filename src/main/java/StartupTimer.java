@@ -0,0 +1,58 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wall-clock time of each step between starting something and it being usable, e.g.
+ * migrating and loading caches at launch, or signing in and prefetching the dashboard,
+ * so a slow start can be pinned on one step. Steps that run alongside each other are
+ * timed on their own and overlap.
+ */
+public class StartupTimer {
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> steps = new LinkedHashMap<>();
+    private long lastMark = startNanos;
+
+    // Ends a step that followed the previous one
+    public synchronized void mark(String step) {
+        long now = System.nanoTime();
+        steps.put(step, now - lastMark);
+        lastMark = now;
+    }
+
+    // Times a step that may run alongside others
+    public <T, E extends Exception> T time(String step, Metrics.Operation<T, E> work) throws E {
+        long begin = System.nanoTime();
+        try {
+            return work.run();
+        } finally {
+            record(step, System.nanoTime() - begin);
+        }
+    }
+
+    // Times work already running, from now until it completes or fails
+    public <T> CompletableFuture<T> track(String step, CompletableFuture<T> work) {
+        long begin = System.nanoTime();
+        work.whenComplete((value, error) -> record(step, System.nanoTime() - begin));
+        return work;
+    }
+
+    private synchronized void record(String step, long nanos) {
+        steps.put(step, nanos);
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    // "migrate 40 ms, availability 120 ms, ..."
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        steps.forEach((step, nanos) -> {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(step).append(' ').append(nanos / 1_000_000).append(" ms");
+        });
+        return sb.toString();
+    }
+}
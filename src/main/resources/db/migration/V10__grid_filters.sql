@@ -0,0 +1,11 @@
+-- Filtering and sorting the grids in the database. The bookings indexes end in id so that
+-- keyset pages over (column, id) are read straight from the index in order; sorting by
+-- check-in date uses idx_bookings_check_in.
+CREATE INDEX idx_bookings_status_id ON bookings (status, id);
+CREATE INDEX idx_bookings_check_out_id ON bookings (check_out_date, id);
+CREATE INDEX idx_bookings_total_price_id ON bookings (total_price, id);
+
+-- Finding a guest's bookings by the start of their name
+CREATE INDEX idx_users_fullname ON users (fullname);
+
+CREATE INDEX idx_rooms_type ON rooms (type);
@@ -0,0 +1,45 @@
+-- Tables as originally created on every startup; IF NOT EXISTS keeps this safe on existing databases
+CREATE TABLE IF NOT EXISTS users (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    username VARCHAR(50) UNIQUE NOT NULL,
+    password VARCHAR(50) NOT NULL,
+    role VARCHAR(20) NOT NULL,
+    fullname VARCHAR(100)
+);
+
+CREATE TABLE IF NOT EXISTS rooms (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    room_number VARCHAR(10) UNIQUE NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    price DOUBLE NOT NULL,
+    status VARCHAR(20) DEFAULT 'Available'
+);
+
+CREATE TABLE IF NOT EXISTS bookings (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    guest_id INT NOT NULL,
+    room_id INT NOT NULL,
+    check_in_date DATE NOT NULL,
+    check_out_date DATE NOT NULL,
+    total_price DOUBLE NOT NULL,
+    status VARCHAR(20) DEFAULT 'Booked'
+);
+
+CREATE TABLE IF NOT EXISTS payments (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    booking_id INT NOT NULL,
+    amount DOUBLE NOT NULL,
+    payment_date DATETIME NOT NULL,
+    method VARCHAR(20) NOT NULL
+);
+
+-- Sample data
+INSERT IGNORE INTO users (username, password, role, fullname) VALUES
+    ('admin', 'admin123', 'admin', 'Admin User'),
+    ('staff', 'staff123', 'staff', 'Staff Member'),
+    ('guest', 'guest123', 'guest', 'John Doe');
+
+INSERT IGNORE INTO rooms (room_number, type, price) VALUES
+    ('101', 'Standard', 100.00),
+    ('102', 'Deluxe', 150.00),
+    ('201', 'Suite', 250.00);
@@ -0,0 +1,17 @@
+-- Availability and the bookings grid join on room and filter by stay dates
+CREATE INDEX idx_bookings_room_dates ON bookings (room_id, check_in_date, check_out_date);
+
+-- A guest's own bookings
+CREATE INDEX idx_bookings_guest ON bookings (guest_id, check_in_date);
+
+-- Date-range scans and loading stays that are still active
+CREATE INDEX idx_bookings_check_in ON bookings (check_in_date);
+CREATE INDEX idx_bookings_status_check_out ON bookings (status, check_out_date);
+
+-- Booking details and revenue by period
+CREATE INDEX idx_payments_booking ON payments (booking_id);
+CREATE INDEX idx_payments_date ON payments (payment_date, method);
+
+ALTER TABLE bookings ADD CONSTRAINT fk_bookings_guest FOREIGN KEY (guest_id) REFERENCES users (id);
+ALTER TABLE bookings ADD CONSTRAINT fk_bookings_room FOREIGN KEY (room_id) REFERENCES rooms (id);
+ALTER TABLE payments ADD CONSTRAINT fk_payments_booking FOREIGN KEY (booking_id) REFERENCES bookings (id);
@@ -0,0 +1,30 @@
+-- When a booking was made and when its status last changed, for the activity rollup
+ALTER TABLE bookings ADD COLUMN created_at DATETIME NULL;
+ALTER TABLE bookings ADD COLUMN status_changed_at DATETIME NULL;
+
+CREATE TABLE revenue_daily (
+    day DATE NOT NULL,
+    month_start DATE NOT NULL,
+    method VARCHAR(20) NOT NULL,
+    room_type VARCHAR(20) NOT NULL,
+    revenue DOUBLE NOT NULL,
+    payments INT NOT NULL,
+    PRIMARY KEY (day, method, room_type)
+);
+
+CREATE TABLE revenue_monthly (
+    month_start DATE NOT NULL,
+    method VARCHAR(20) NOT NULL,
+    room_type VARCHAR(20) NOT NULL,
+    revenue DOUBLE NOT NULL,
+    payments INT NOT NULL,
+    PRIMARY KEY (month_start, method, room_type)
+);
+
+CREATE TABLE booking_activity_daily (
+    day DATE PRIMARY KEY,
+    bookings INT NOT NULL DEFAULT 0,
+    cancellations INT NOT NULL DEFAULT 0,
+    check_ins INT NOT NULL DEFAULT 0,
+    check_outs INT NOT NULL DEFAULT 0
+);
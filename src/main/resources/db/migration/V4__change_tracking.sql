@@ -0,0 +1,11 @@
+-- Last change to each row, kept by the database so every writer (including other clients
+-- and bulk imports) bumps it. Clients poll these to pick up each other's changes.
+ALTER TABLE rooms ADD COLUMN updated_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+ALTER TABLE bookings ADD COLUMN updated_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+ALTER TABLE payments ADD COLUMN updated_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+ALTER TABLE users ADD COLUMN updated_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+
+CREATE INDEX idx_rooms_updated ON rooms (updated_at);
+CREATE INDEX idx_bookings_updated ON bookings (updated_at);
+CREATE INDEX idx_payments_updated ON payments (updated_at);
+CREATE INDEX idx_users_updated ON users (updated_at);
@@ -0,0 +1,37 @@
+-- Rate plans per room type. A night costs the room's own price times the season and
+-- day-of-week multipliers, unless rate_dates fixes the rate for that date.
+CREATE TABLE rate_seasons (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    room_type VARCHAR(20) NOT NULL,
+    name VARCHAR(50) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    multiplier DOUBLE NOT NULL DEFAULT 1,
+    min_stay INT NOT NULL DEFAULT 1,
+    priority INT NOT NULL DEFAULT 0
+);
+
+-- day_of_week runs from 1 (Monday) to 7 (Sunday)
+CREATE TABLE rate_day_of_week (
+    room_type VARCHAR(20) NOT NULL,
+    day_of_week INT NOT NULL,
+    multiplier DOUBLE NOT NULL,
+    PRIMARY KEY (room_type, day_of_week)
+);
+
+CREATE TABLE rate_dates (
+    room_type VARCHAR(20) NOT NULL,
+    day DATE NOT NULL,
+    rate DOUBLE NULL,
+    min_stay INT NULL,
+    PRIMARY KEY (room_type, day)
+);
+
+CREATE TABLE rate_length_of_stay (
+    room_type VARCHAR(20) NOT NULL,
+    min_nights INT NOT NULL,
+    discount_percent DOUBLE NOT NULL,
+    PRIMARY KEY (room_type, min_nights)
+);
+
+CREATE INDEX idx_rate_seasons_type ON rate_seasons (room_type, priority);
@@ -0,0 +1,20 @@
+-- One row per audited business day. It doubles as the lock that keeps two clients from
+-- auditing the same day, and as the checkpoint an interrupted audit resumes from.
+CREATE TABLE night_audit_runs (
+    business_date DATE PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    owner VARCHAR(100) NOT NULL,
+    phase VARCHAR(20) NOT NULL,
+    last_booking_id INT NOT NULL DEFAULT 0,
+    no_shows INT NOT NULL DEFAULT 0,
+    checked_out INT NOT NULL DEFAULT 0,
+    rooms_released INT NOT NULL DEFAULT 0,
+    started_at DATETIME NOT NULL,
+    heartbeat_at DATETIME NOT NULL,
+    finished_at DATETIME NULL
+);
+
+-- Finding bookings whose guest never arrived
+CREATE INDEX idx_bookings_status_check_in ON bookings (status, check_in_date);
+
+ALTER TABLE booking_activity_daily ADD COLUMN no_shows INT NOT NULL DEFAULT 0;
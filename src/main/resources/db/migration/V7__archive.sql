@@ -0,0 +1,45 @@
+-- Closed bookings and their payments, moved out of the hot tables once they are old
+-- enough that only reports and audits look at them. Rows keep their original ids.
+CREATE TABLE bookings_archive (
+    id INT PRIMARY KEY,
+    guest_id INT NOT NULL,
+    room_id INT NOT NULL,
+    check_in_date DATE NOT NULL,
+    check_out_date DATE NOT NULL,
+    total_price DOUBLE NOT NULL,
+    status VARCHAR(20),
+    created_at DATETIME NULL,
+    status_changed_at DATETIME NULL,
+    archived_at DATETIME NOT NULL
+);
+
+CREATE TABLE payments_archive (
+    id INT PRIMARY KEY,
+    booking_id INT NOT NULL,
+    amount DOUBLE NOT NULL,
+    payment_date DATETIME NOT NULL,
+    method VARCHAR(20) NOT NULL,
+    archived_at DATETIME NOT NULL
+);
+
+CREATE INDEX idx_bookings_archive_guest ON bookings_archive (guest_id, check_in_date);
+CREATE INDEX idx_bookings_archive_check_in ON bookings_archive (check_in_date);
+CREATE INDEX idx_payments_archive_booking ON payments_archive (booking_id);
+CREATE INDEX idx_payments_archive_date ON payments_archive (payment_date, method);
+
+ALTER TABLE bookings_archive ADD CONSTRAINT fk_bookings_archive_guest FOREIGN KEY (guest_id) REFERENCES users (id);
+ALTER TABLE bookings_archive ADD CONSTRAINT fk_bookings_archive_room FOREIGN KEY (room_id) REFERENCES rooms (id);
+ALTER TABLE payments_archive ADD CONSTRAINT fk_payments_archive_booking FOREIGN KEY (booking_id) REFERENCES bookings_archive (id);
+
+-- Hot and archived rows together, for full rebuilds that have to see all of history
+CREATE VIEW bookings_all AS
+    SELECT id, guest_id, room_id, check_in_date, check_out_date, total_price, status, created_at, status_changed_at
+    FROM bookings
+    UNION ALL
+    SELECT id, guest_id, room_id, check_in_date, check_out_date, total_price, status, created_at, status_changed_at
+    FROM bookings_archive;
+
+CREATE VIEW payments_all AS
+    SELECT id, booking_id, amount, payment_date, method FROM payments
+    UNION ALL
+    SELECT id, booking_id, amount, payment_date, method FROM payments_archive;
@@ -0,0 +1,16 @@
+-- Who changed which booking and when, copied write-behind from each client's event journal.
+-- source is the journal's id; sequence numbers are only unique within one journal.
+CREATE TABLE booking_events (
+    source VARCHAR(40) NOT NULL,
+    sequence BIGINT NOT NULL,
+    event_type VARCHAR(20) NOT NULL,
+    booking_id INT NOT NULL,
+    actor VARCHAR(50),
+    status VARCHAR(20),
+    amount DOUBLE,
+    detail VARCHAR(50),
+    occurred_at DATETIME(3) NOT NULL,
+    PRIMARY KEY (source, sequence)
+);
+
+CREATE INDEX idx_booking_events_booking ON booking_events (booking_id, occurred_at);
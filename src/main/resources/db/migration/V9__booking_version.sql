@@ -0,0 +1,3 @@
+-- Bumped by every status change, so a desk only applies its change if the booking is
+-- still the version it read. Archived bookings are closed and never change again.
+ALTER TABLE bookings ADD COLUMN version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,166 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityIndexTest {
+    private static final LocalDate DAY = LocalDate.now().plusDays(10);
+
+    private AvailabilityIndex index;
+
+    @BeforeEach
+    void rooms() {
+        index = new AvailabilityIndex();
+        index.addRoom(1, "101", "Available");
+        index.addRoom(2, "102", "Available");
+    }
+
+    private static LocalDate day(int offset) {
+        return DAY.plusDays(offset);
+    }
+
+    @Test
+    void holdBlocksOverlappingStays() {
+        assertNotNull(index.tryHold(1, day(0), day(3)));
+
+        assertNull(index.tryHold(1, day(0), day(3)));
+        assertNull(index.tryHold(1, day(-1), day(1)));
+        assertNull(index.tryHold(1, day(2), day(5)));
+        assertNull(index.tryHold(1, day(1), day(2)));
+        assertNull(index.tryHold(1, day(-5), day(10)));
+        assertFalse(index.isFree(1, day(2), day(3)));
+        assertTrue(index.isFree(2, day(0), day(3)));
+    }
+
+    @Test
+    void staysMayMeetOnTheChangeoverDay() {
+        assertNotNull(index.tryHold(1, day(0), day(3)));
+
+        assertNotNull(index.tryHold(1, day(3), day(5)));
+        assertNotNull(index.tryHold(1, day(-2), day(0)));
+        assertEquals(List.of("102"), index.freeRooms(day(-2), day(5)));
+    }
+
+    @Test
+    void releaseFreesTheRoom() {
+        AvailabilityIndex.Hold hold = index.tryHold(1, day(0), day(3));
+        hold.release();
+
+        assertTrue(index.isFree(1, day(0), day(3)));
+        assertNotNull(index.tryHold(1, day(1), day(2)));
+    }
+
+    @Test
+    void confirmedStayFollowsItsBookingId() {
+        index.tryHold(1, day(0), day(3)).confirm(42);
+        assertFalse(index.isFree(1, day(0), day(3)));
+
+        index.bookingStatusChanged(42, "Checked In");
+        assertFalse(index.isFree(1, day(0), day(3)));
+
+        index.bookingStatusChanged(42, "Cancelled");
+        assertTrue(index.isFree(1, day(0), day(3)));
+    }
+
+    @Test
+    void confirmAfterTheFeedReadTheBookingKeepsOneStay() {
+        AvailabilityIndex.Hold hold = index.tryHold(1, day(0), day(3));
+        index.syncBooking(42, 1, day(0), day(3), "Booked");
+        hold.confirm(42);
+
+        index.bookingStatusChanged(42, "No-Show");
+        assertTrue(index.isFree(1, day(0), day(3)));
+    }
+
+    @Test
+    void syncedInactiveBookingsAreIgnored() {
+        index.syncBooking(42, 1, day(0), day(3), "Cancelled");
+        index.syncBooking(43, 1, LocalDate.now().minusDays(5), LocalDate.now().minusDays(2), "Booked");
+
+        assertTrue(index.isFree(1, day(0), day(3)));
+        assertTrue(index.isFree(1, LocalDate.now().minusDays(5), LocalDate.now().minusDays(2)));
+    }
+
+    @Test
+    void earlyCheckOutFreesTheRestOfTheStay() {
+        LocalDate today = LocalDate.now();
+        index.addBooking(42, 1, today.minusDays(2), today.plusDays(3));
+
+        index.bookingStatusChanged(42, "Checked Out");
+
+        assertTrue(index.isFree(1, today, today.plusDays(3)));
+        assertFalse(index.isFree(1, today.minusDays(2), today));
+    }
+
+    @Test
+    void roomsUnderMaintenanceAreNeverFree() {
+        index.roomStatusChanged(1, "Maintenance");
+
+        assertNull(index.tryHold(1, day(0), day(1)));
+        assertEquals(List.of("102"), index.freeRooms(day(0), day(1)));
+
+        index.roomStatusChanged(1, "Available");
+        assertNotNull(index.tryHold(1, day(0), day(1)));
+    }
+
+    @Test
+    void rejectsEmptyStays() {
+        assertThrows(IllegalArgumentException.class, () -> index.tryHold(1, day(1), day(1)));
+        assertTrue(index.freeRooms(day(1), day(0)).isEmpty());
+        assertNull(index.tryHold(99, day(0), day(1)));
+    }
+
+    @Test
+    void reloadKeepsHoldsAndConfirmationsMadeWhileReading() throws Exception {
+        AvailabilityIndex.Hold before = index.tryHold(1, day(0), day(3));
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        FakeJdbc db = new FakeJdbc()
+                .row("rooms", "id", 1, "room_number", "101", "status", "Available")
+                .row("rooms", "id", 2, "room_number", "102", "status", "Available")
+                .beforeQuery(sql -> {
+                    if (!sql.contains("FROM bookings")) return;
+                    reading.countDown();
+                    try {
+                        resume.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread reload = new Thread(() -> {
+            try {
+                index.reload(db.connection());
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        reload.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        // Committed after the reload read the bookings table
+        index.tryHold(2, day(0), day(3)).confirm(50);
+        resume.countDown();
+        reload.join();
+        assertNull(failure.get());
+
+        assertFalse(index.isFree(1, day(0), day(3)));
+        assertFalse(index.isFree(2, day(0), day(3)));
+        before.confirm(51);
+        index.bookingStatusChanged(51, "Cancelled");
+        index.bookingStatusChanged(50, "Cancelled");
+        assertTrue(index.isFree(1, day(0), day(3)));
+        assertTrue(index.isFree(2, day(0), day(3)));
+    }
+}
@@ -0,0 +1,156 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventJournalTest {
+    // Length, checksum and sequence ahead of each payload
+    private static final int HEADER_BYTES = 16;
+
+    @TempDir
+    Path dir;
+
+    private static List<EventJournal.Entry> replay(EventJournal journal, long after) throws IOException {
+        List<EventJournal.Entry> entries = new ArrayList<>();
+        EventJournal.Cursor cursor = journal.cursor(after);
+        int read;
+        do {
+            read = cursor.next(100, entries::add);
+        } while (read == 100);
+        return entries;
+    }
+
+    private void appendThree() throws Exception {
+        try (EventJournal journal = EventJournal.open(dir)) {
+            journal.append(EventJournal.Type.BOOKING_CREATED, 7, "alice", "Booked", 300, "101");
+            journal.append(EventJournal.Type.PAYMENT_RECORDED, 7, "alice", "Booked", 300, "Cash");
+            long last = journal.append(EventJournal.Type.STATUS_CHANGED, 7, "desk", "Checked In", 0, null);
+            assertTrue(journal.awaitDurable(last, 5, TimeUnit.SECONDS));
+        }
+    }
+
+    // Offset of the record with the given sequence in the first segment
+    private static int offsetOf(MappedByteBuffer segment, long sequence) {
+        int at = 0;
+        for (long s = 1; s < sequence; s++) {
+            at += HEADER_BYTES + segment.getInt(at);
+        }
+        return at;
+    }
+
+    private FileChannel firstSegment() throws IOException {
+        return FileChannel.open(dir.resolve(String.format("%020d.seg", 1)), StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    @Test
+    void replaysEverythingAfterReopening() throws Exception {
+        appendThree();
+
+        try (EventJournal journal = EventJournal.open(dir)) {
+            assertEquals(3, journal.lastSequence());
+            List<EventJournal.Entry> entries = replay(journal, 0);
+            assertEquals(3, entries.size());
+
+            EventJournal.Entry created = entries.get(0);
+            assertEquals(1, created.sequence());
+            assertEquals(EventJournal.Type.BOOKING_CREATED, created.type());
+            assertEquals(7, created.bookingId());
+            assertEquals("alice", created.actor());
+            assertEquals("Booked", created.status());
+            assertEquals(300.0, created.amount());
+            assertEquals("101", created.detail());
+            assertEquals("Checked In", entries.get(2).status());
+            assertNull(entries.get(2).detail());
+
+            assertEquals(List.of(2L, 3L), replay(journal, 1).stream().map(EventJournal.Entry::sequence).toList());
+            assertEquals(4, journal.append(EventJournal.Type.STATUS_CHANGED, 7, "desk", "Checked Out", 0, null));
+        }
+    }
+
+    @Test
+    void tornRecordIsDroppedAndItsSequenceReused() throws Exception {
+        appendThree();
+        try (FileChannel channel = firstSegment()) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int at = offsetOf(segment, 3) + HEADER_BYTES;
+            segment.put(at, (byte) (segment.get(at) ^ 0xFF));
+            segment.force();
+        }
+
+        try (EventJournal journal = EventJournal.open(dir)) {
+            assertEquals(2, journal.lastSequence());
+            assertEquals(2, replay(journal, 0).size());
+            assertEquals(3, journal.append(EventJournal.Type.STATUS_CHANGED, 7, "desk", "Cancelled", 0, null));
+        }
+        try (EventJournal journal = EventJournal.open(dir)) {
+            List<EventJournal.Entry> entries = replay(journal, 0);
+            assertEquals(3, entries.size());
+            assertEquals("Cancelled", entries.get(2).status());
+        }
+    }
+
+    @Test
+    void fileCutShortInsideARecordKeepsTheRecordsBeforeIt() throws Exception {
+        appendThree();
+        try (FileChannel channel = firstSegment()) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int cut = offsetOf(segment, 3) + HEADER_BYTES + 4;
+            channel.truncate(cut);
+        }
+
+        try (EventJournal journal = EventJournal.open(dir)) {
+            assertEquals(2, journal.lastSequence());
+            List<EventJournal.Entry> entries = replay(journal, 0);
+            assertEquals(List.of(1L, 2L), entries.stream().map(EventJournal.Entry::sequence).toList());
+            long next = journal.append(EventJournal.Type.STATUS_CHANGED, 7, "desk", "Checked In", 0, null);
+            assertEquals(3, next);
+            assertTrue(journal.awaitDurable(next, 5, TimeUnit.SECONDS));
+        }
+        try (EventJournal journal = EventJournal.open(dir)) {
+            assertEquals(3, journal.lastSequence());
+        }
+    }
+
+    @Test
+    void strayLengthPastTheLastRecordIsCleared() throws Exception {
+        appendThree();
+        try (FileChannel channel = firstSegment()) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            // A header written without its payload: the process died mid-append
+            int end = offsetOf(segment, 4);
+            segment.putInt(end, 40);
+            segment.putLong(end + 8, 4);
+            segment.force();
+        }
+
+        try (EventJournal journal = EventJournal.open(dir)) {
+            assertEquals(3, journal.lastSequence());
+            assertEquals(3, replay(journal, 0).size());
+        }
+        try (FileChannel channel = firstSegment()) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            assertEquals(0, segment.getInt(offsetOf(segment, 4)));
+        }
+    }
+
+    @Test
+    void secondOpenOfTheSameDirectoryFails() throws Exception {
+        try (EventJournal journal = EventJournal.open(dir)) {
+            assertEquals(0, journal.lastSequence());
+            assertThrows(IOException.class, () -> EventJournal.open(dir));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A Connection that answers createStatement().executeQuery() from rows held in memory,
+ * for the classes that only read a few tables at load time. A query is answered from the
+ * first table whose name follows FROM in its SQL; WHERE clauses are ignored.
+ */
+final class FakeJdbc {
+    private final Map<String, List<Map<String, Object>>> tables = new HashMap<>();
+    private Consumer<String> beforeQuery = sql -> {
+    };
+
+    // Columns and values alternate: row("rooms", "id", 1, "room_number", "101")
+    FakeJdbc row(String table, Object... columnsAndValues) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < columnsAndValues.length; i += 2) {
+            row.put((String) columnsAndValues[i], columnsAndValues[i + 1]);
+        }
+        synchronized (tables) {
+            tables.computeIfAbsent(table, t -> new ArrayList<>()).add(row);
+        }
+        return this;
+    }
+
+    // Runs after a query has read its rows and before it returns them
+    FakeJdbc beforeQuery(Consumer<String> hook) {
+        this.beforeQuery = hook;
+        return this;
+    }
+
+    Connection connection() {
+        Statement statement = proxy(Statement.class, (method, args) -> switch (method) {
+            case "executeQuery" -> query((String) args[0]);
+            case "close" -> null;
+            default -> throw new UnsupportedOperationException(method);
+        });
+        return proxy(Connection.class, (method, args) -> switch (method) {
+            case "createStatement" -> statement;
+            case "close" -> null;
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private ResultSet query(String sql) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        synchronized (tables) {
+            tables.forEach((table, tableRows) -> {
+                if (sql.contains("FROM " + table + " ") || sql.endsWith("FROM " + table)) rows.addAll(tableRows);
+            });
+        }
+        beforeQuery.accept(sql);
+        int[] at = {-1};
+        return proxy(ResultSet.class, (method, args) -> switch (method) {
+            case "next" -> ++at[0] < rows.size();
+            case "close" -> null;
+            case "getObject" -> rows.get(at[0]).get((String) args[0]);
+            case "getString" -> (String) rows.get(at[0]).get((String) args[0]);
+            case "getInt" -> ((Number) rows.get(at[0]).getOrDefault((String) args[0], 0)).intValue();
+            case "getDouble" -> ((Number) rows.get(at[0]).getOrDefault((String) args[0], 0)).doubleValue();
+            case "getDate" -> java.sql.Date.valueOf((LocalDate) rows.get(at[0]).get((String) args[0]));
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.invoke(method.getName(), args)));
+    }
+}
@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RatePlansTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 6, 1);
+
+    private RatePlans rates;
+
+    @BeforeEach
+    void load() throws SQLException {
+        FakeJdbc db = new FakeJdbc()
+                // Friday and Saturday nights cost half as much again
+                .row("rate_day_of_week", "room_type", "Weekend", "day_of_week", 5, "multiplier", 1.5)
+                .row("rate_day_of_week", "room_type", "Weekend", "day_of_week", 6, "multiplier", 1.5)
+                .row("rate_seasons", "room_type", "Season", "start_date", LocalDate.of(2026, 12, 20),
+                        "end_date", LocalDate.of(2026, 12, 31), "multiplier", 2.0, "min_stay", 1)
+                .row("rate_seasons", "room_type", "Season", "start_date", LocalDate.of(2026, 7, 1),
+                        "end_date", LocalDate.of(2026, 7, 31), "multiplier", 1.2, "min_stay", 3)
+                .row("rate_length_of_stay", "room_type", "Discount", "min_nights", 7, "discount_percent", 10.0)
+                .row("rate_length_of_stay", "room_type", "Discount", "min_nights", 14, "discount_percent", 20.0)
+                .row("rate_dates", "room_type", "Fixed", "day", LocalDate.of(2026, 8, 15), "rate", 80.0,
+                        "min_stay", null)
+                .row("rate_dates", "room_type", "Fixed", "day", LocalDate.of(2026, 8, 20), "rate", null,
+                        "min_stay", 2);
+        rates = RatePlans.load(db.connection(), TODAY);
+    }
+
+    private double quote(String type, LocalDate checkIn, LocalDate checkOut) {
+        return rates.quote(type, 100, checkIn, checkOut);
+    }
+
+    @Test
+    void typeWithoutRulesPaysItsBasePrice() {
+        assertEquals(-1, rates.typeId("Standard"));
+        assertEquals(300.0, quote("Standard", TODAY, TODAY.plusDays(3)));
+    }
+
+    @Test
+    void weekendNightsAreTheFridayAndSaturday() {
+        LocalDate thursday = TODAY.with(TemporalAdjusters.next(DayOfWeek.THURSDAY));
+        LocalDate friday = thursday.plusDays(1);
+        LocalDate sunday = thursday.plusDays(3);
+
+        assertEquals(400.0, quote("Weekend", thursday, sunday));
+        assertEquals(100.0, quote("Weekend", thursday, friday));
+        assertEquals(150.0, quote("Weekend", friday, friday.plusDays(1)));
+        assertEquals(100.0, quote("Weekend", sunday, sunday.plusDays(1)));
+        // Checking out on Friday doesn't pay for Friday night
+        assertEquals(500.0, quote("Weekend", sunday, sunday.plusDays(5)));
+    }
+
+    @Test
+    void seasonCoversItsStartAndEndDates() {
+        assertEquals(300.0, quote("Season", LocalDate.of(2026, 12, 19), LocalDate.of(2026, 12, 21)));
+        assertEquals(300.0, quote("Season", LocalDate.of(2026, 12, 31), LocalDate.of(2027, 1, 2)));
+        assertEquals(2200.0, quote("Season", LocalDate.of(2026, 12, 20), LocalDate.of(2026, 12, 31)));
+    }
+
+    @Test
+    void minimumStayDependsOnTheArrivalDay() {
+        LocalDate july1 = LocalDate.of(2026, 7, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> quote("Season", july1, july1.plusDays(2)));
+        assertEquals(360.0, quote("Season", july1, july1.plusDays(3)));
+        assertEquals(100.0, quote("Season", july1.minusDays(1), july1));
+        assertEquals(220.0, quote("Season", july1.minusDays(1), july1.plusDays(1)));
+
+        LocalDate august20 = LocalDate.of(2026, 8, 20);
+        assertThrows(IllegalArgumentException.class, () -> quote("Fixed", august20, august20.plusDays(1)));
+        assertEquals(200.0, quote("Fixed", august20, august20.plusDays(2)));
+    }
+
+    @Test
+    void lengthOfStayDiscountStartsAtItsMinimumNights() {
+        assertEquals(600.0, quote("Discount", TODAY, TODAY.plusDays(6)));
+        assertEquals(630.0, quote("Discount", TODAY, TODAY.plusDays(7)));
+        assertEquals(1170.0, quote("Discount", TODAY, TODAY.plusDays(13)));
+        assertEquals(1120.0, quote("Discount", TODAY, TODAY.plusDays(14)));
+    }
+
+    @Test
+    void fixedRateReplacesTheBasePriceForItsNight() {
+        assertEquals(280.0, quote("Fixed", LocalDate.of(2026, 8, 14), LocalDate.of(2026, 8, 17)));
+    }
+
+    @Test
+    void quoteAllMatchesQuoteAndMarksStaysTooShort() {
+        LocalDate july1 = LocalDate.of(2026, 7, 1);
+        int[] typeIds = {rates.typeId("Season"), rates.typeId("Standard"), rates.typeId("Weekend")};
+        double[] prices = {100, 80, 100};
+        double[] totals = new double[3];
+
+        rates.quoteAll(typeIds, prices, july1, july1.plusDays(2), totals);
+
+        assertTrue(Double.isNaN(totals[0]));
+        assertEquals(160.0, totals[1]);
+        assertEquals(quote("Weekend", july1, july1.plusDays(2)), totals[2]);
+    }
+
+    @Test
+    void rejectsStaysOutOfOrderOrBeyondTheCalendar() {
+        assertThrows(IllegalArgumentException.class, () -> quote("Weekend", TODAY, TODAY));
+        assertThrows(IllegalArgumentException.class,
+                () -> quote("Weekend", TODAY.plusYears(6), TODAY.plusYears(6).plusDays(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> quote("Weekend", TODAY.minusYears(2), TODAY.minusYears(2).plusDays(1)));
+    }
+}